@@ -0,0 +1,83 @@
+package Benchmarks;
+
+import Parser.RSMLGenerator;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Synthetic RSML inputs for the benchmarks, written by {@link RSMLGenerator}.
+ * Files are generated from a fixed seed, so every run measures the same documents.
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Size presets of the generated files, as seen at the last date of a series.
+     */
+    public enum InputSize {
+        SMALL(1, new int[]{5, 3}, 20),        // 20 roots, 400 points
+        MEDIUM(4, new int[]{10, 10}, 100),    // 440 roots, 44 000 points
+        HUGE(10, new int[]{20, 20}, 200);     // 4 200 roots, 840 000 points
+
+        final int plants;
+        final int[] rootsPerOrder;
+        final int pointsPerPolyline;
+
+        InputSize(int plants, int[] rootsPerOrder, int pointsPerPolyline) {
+            this.plants = plants;
+            this.rootsPerOrder = rootsPerOrder;
+            this.pointsPerPolyline = pointsPerPolyline;
+        }
+    }
+
+    /**
+     * Writes a series of RSML files, one per day starting on 13/05/2018, in which the roots grow from one date to the next.
+     *
+     * @param directory The directory to write to.
+     * @param size      The size of the last file of the series.
+     * @param timeData  True for 2D+t files (coord_x, coord_t...), false for 2D files (x, y).
+     * @param dateCount The number of files (dates) to write.
+     * @return The paths of the written files, by date.
+     * @throws IOException If a file cannot be written.
+     */
+    static List<Path> writeSeries(Path directory, InputSize size, boolean timeData, int dateCount) throws IOException {
+        RSMLGenerator.Options options = new RSMLGenerator.Options();
+        options.seed = SEED;
+        options.plants = size.plants;
+        options.rootsPerOrder = size.rootsPerOrder;
+        options.pointsPerPolyline = size.pointsPerPolyline;
+        options.functions = 1;
+        options.properties = 1;
+        options.dates = dateCount;
+        options.timeData = timeData;
+        options.name = size.name().toLowerCase(Locale.ROOT) + (timeData ? "_t" : "_2d");
+        return new RSMLGenerator(options).generate(directory);
+    }
+
+    /**
+     * Deletes the generated files and their directory.
+     *
+     * @param directory The directory holding the generated files.
+     * @throws IOException If a file cannot be deleted.
+     */
+    static void deleteDirectory(Path directory) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,84 @@
+package Benchmarks;
+
+import RootModels.Root.Geometry.Geometry;
+import RootModels.Root.Geometry.Polyline2D;
+import RootModels.Root.Geometry.Polyline2DplusT;
+import io.github.rocsg.fijiyama.registration.ItkTransform;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the geometry hot paths: {@link Geometry#getLengthUntil(double)}, as called for every observation hour
+ * when growth curves are extracted, and {@link Geometry#transform(ItkTransform)}, as called during registration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeometryBenchmark {
+
+    private static final int OBSERVATIONS = 20;
+
+    @Param({"100", "10000", "1000000"})
+    public int points;
+
+    @Param({"2D", "2D+t"})
+    public String format;
+
+    private Geometry geometry;
+    private ItkTransform identity;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42L);
+        LocalDateTime date = LocalDateTime.of(2018, 5, 13, 0, 0);
+        double x = 0;
+        double y = 0;
+        if ("2D+t".equals(format)) {
+            Polyline2DplusT polyline = new Polyline2DplusT(date);
+            for (int i = 0; i < points; i++) {
+                x += random.nextGaussian();
+                y += 1 + random.nextGaussian();
+                double t = 1 + (double) i * OBSERVATIONS / points;
+                polyline.addPoint(x, y, t, (t - 1) * 24);
+            }
+            geometry = polyline;
+        } else {
+            Polyline2D polyline = new Polyline2D(date);
+            for (int i = 0; i < points; i++) {
+                x += random.nextGaussian();
+                y += 1 + random.nextGaussian();
+                polyline.addPoint(x, y);
+            }
+            geometry = polyline;
+        }
+        identity = new ItkTransform();
+    }
+
+    /**
+     * Length at every observation time, the access pattern of growth curve extraction.
+     */
+    @Benchmark
+    @OperationsPerInvocation(OBSERVATIONS)
+    public double getLengthUntil() {
+        double sum = 0;
+        for (int t = 1; t <= OBSERVATIONS; t++) {
+            sum += geometry.getLengthUntil(t - 0.5);
+        }
+        return sum;
+    }
+
+    /**
+     * Identity transform of every point; the length index is dropped, as it would be after a real registration.
+     */
+    @Benchmark
+    public Geometry transform() {
+        geometry.transform(identity);
+        return geometry;
+    }
+}
@@ -0,0 +1,55 @@
+package Benchmarks;
+
+import RootModels.RootModel;
+import RootModels.RootModelLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link RootModelLoader#loadRsmlFiles(Set)} on a series of dated files:
+ * format detection, parsing and construction of the RootModel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoaderBenchmark {
+
+    private static final int DATES = 3;
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public BenchmarkData.InputSize size;
+
+    @Param({"2D", "2D+t"})
+    public String format;
+
+    private Path directory;
+    private Set<String> files;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rsml-bench");
+        files = new TreeSet<>();
+        for (Path file : BenchmarkData.writeSeries(directory, size, "2D+t".equals(format), DATES)) {
+            files.add(file.toString());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public RootModel loadRsmlFiles() throws Exception {
+        return RootModelLoader.loadRsmlFiles(files);
+    }
+}
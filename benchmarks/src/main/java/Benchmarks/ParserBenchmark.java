@@ -0,0 +1,61 @@
+package Benchmarks;
+
+import Parser.ParsedRsml;
+import Parser.Parser2D;
+import Parser.Parser2DTime;
+import Parser.RSMLParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link RSMLParser#parseRsmlFile(String)} on one file, with the streaming and the DOM backends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public BenchmarkData.InputSize size;
+
+    @Param({"2D", "2D+t"})
+    public String format;
+
+    private Path directory;
+    private String file;
+    private RSMLParser<?> streamingParser;
+    private RSMLParser<?> domParser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        boolean timeData = "2D+t".equals(format);
+        directory = Files.createTempDirectory("rsml-bench");
+        file = BenchmarkData.writeSeries(directory, size, timeData, 1).get(0).toString();
+
+        streamingParser = timeData ? new Parser2DTime() : new Parser2D();
+        domParser = timeData ? new Parser2DTime() : new Parser2D();
+        domParser.setStreaming(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public ParsedRsml<?> parseStreaming() throws Exception {
+        return streamingParser.parseRsmlFile(file);
+    }
+
+    @Benchmark
+    public ParsedRsml<?> parseDom() throws Exception {
+        return domParser.parseRsmlFile(file);
+    }
+}
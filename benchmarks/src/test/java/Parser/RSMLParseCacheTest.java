@@ -0,0 +1,152 @@
+package Parser;
+
+import RootModels.Root.Geometry.Polyline2D;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Invalidation paths of {@link RSMLParseCache}: touched modification time, changed size, eviction under the maximum
+ * size and removal of a corrupted entry.
+ */
+public class RSMLParseCacheTest {
+
+    private Path directory;
+    private Path cacheDirectory;
+    private List<Path> files;
+
+    @Before
+    public void createFiles() throws IOException {
+        directory = Files.createTempDirectory("parse-cache-test");
+        cacheDirectory = directory.resolve("cache");
+        RSMLGenerator.Options options = new RSMLGenerator.Options();
+        options.dates = 3;
+        files = new RSMLGenerator(options).generate(Files.createDirectory(directory.resolve("series")));
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void touchedFileWithSameContentIsHit() throws Exception {
+        RSMLParseCache cache = new RSMLParseCache(cacheDirectory);
+        Parser2D parser = parser(cache, DiagnosticsSink.NONE);
+        Path file = files.get(0);
+        int rootCount = parser.parseRsmlFile(file.toString()).flatRoots.size();
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+        ParsedRsml<Polyline2D> cached = parser.parseRsmlFile(file.toString());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(rootCount, cached.flatRoots.size());
+
+        // The new modification time is remembered, so the content is not hashed again
+        parser.parseRsmlFile(file.toString());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void changedSizeIsMiss() throws Exception {
+        RSMLParseCache cache = new RSMLParseCache(cacheDirectory);
+        Parser2D parser = parser(cache, DiagnosticsSink.NONE);
+        Path file = files.get(0);
+        int rootCount = parser.parseRsmlFile(file.toString()).flatRoots.size();
+
+        Files.write(file, "\n".getBytes("UTF-8"), StandardOpenOption.APPEND);
+        ParsedRsml<Polyline2D> parsed = parser.parseRsmlFile(file.toString());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(rootCount, parsed.flatRoots.size());
+        assertEquals(1, cache.getEntryCount());
+
+        // The entry was replaced by one matching the new size
+        parser.parseRsmlFile(file.toString());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void evictionKeepsCacheUnderMaxBytes() throws Exception {
+        RSMLParseCache unbounded = new RSMLParseCache(directory.resolve("unbounded"));
+        Parser2D parser = parser(unbounded, DiagnosticsSink.NONE);
+        long largestEntry = 0;
+        for (Path file : files) {
+            long before = unbounded.getSizeBytes();
+            parser.parseRsmlFile(file.toString());
+            largestEntry = Math.max(largestEntry, unbounded.getSizeBytes() - before);
+        }
+
+        long maxBytes = largestEntry + largestEntry / 2;
+        RSMLParseCache cache = new RSMLParseCache(cacheDirectory, maxBytes);
+        parser = parser(cache, DiagnosticsSink.NONE);
+        for (Path file : files) {
+            parser.parseRsmlFile(file.toString());
+            assertTrue(cache.getSizeBytes() <= maxBytes);
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(files.size() - cache.getEvictionCount(), cache.getEntryCount());
+        assertEquals(cache.getEntryCount(), entryFiles().length);
+
+        // The most recently used file is still cached
+        parser.parseRsmlFile(files.get(files.size() - 1).toString());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void corruptedEntryIsDeletedAndReported() throws Exception {
+        RSMLParseCache cache = new RSMLParseCache(cacheDirectory);
+        DiagnosticsCollector collector = new DiagnosticsCollector();
+        Parser2D parser = parser(cache, collector);
+        Path file = files.get(0);
+        int rootCount = parser.parseRsmlFile(file.toString()).flatRoots.size();
+
+        Path entry = entryFiles()[0];
+        byte[] corrupted = Files.readAllBytes(entry);
+        corrupted[corrupted.length - 10] ^= 1;
+        Files.write(entry, corrupted);
+
+        ParsedRsml<Polyline2D> parsed = parser.parseRsmlFile(file.toString());
+        assertNotNull(parsed);
+        assertEquals(rootCount, parsed.flatRoots.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(Long.valueOf(1), collector.getCounts().get(ParseDiagnostics.Category.CACHE_FAILURE));
+
+        // The corrupted entry was deleted, then rewritten from the fresh parse
+        assertEquals(1, cache.getEntryCount());
+        assertFalse(Arrays.equals(corrupted, Files.readAllBytes(entry)));
+        parser.parseRsmlFile(file.toString());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    private static Parser2D parser(RSMLParseCache cache, DiagnosticsSink sink) {
+        Parser2D parser = new Parser2D();
+        parser.setCache(cache);
+        parser.setDiagnosticsSink(sink);
+        return parser;
+    }
+
+    private Path[] entryFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(cacheDirectory)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(".rpc")).toArray(Path[]::new);
+        }
+    }
+}
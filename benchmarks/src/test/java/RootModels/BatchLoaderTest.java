@@ -0,0 +1,63 @@
+package RootModels;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Resolution of the files, directories and glob patterns given to {@link BatchLoader}.
+ */
+public class BatchLoaderTest {
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("batch-loader-test").toRealPath();
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void leadingDoubleStarMatchesZeroDirectories() throws IOException {
+        Path direct = create("data/box_1/a.rsml");
+        Path nested = create("data/exp/box_2/b.rsml");
+        Path deeper = create("data/exp/run/box_3/c.rsml");
+        create("data/exp/other/d.rsml");
+        create("data/box_4/e.txt");
+
+        List<Path> files = BatchLoader.resolveInputs(Collections.singletonList(directory + "/data/**/box_*/*.rsml"));
+        assertEquals(Arrays.asList(direct, nested, deeper), files);
+    }
+
+    @Test
+    public void doubleStarAloneMatchesEveryDepth() throws IOException {
+        Path top = create("data/a.rsml");
+        Path nested = create("data/exp/b.rsml");
+
+        List<Path> files = BatchLoader.resolveInputs(Collections.singletonList(directory + "/data/**.rsml"));
+        assertEquals(Arrays.asList(top, nested), files);
+    }
+
+    private Path create(String relativePath) throws IOException {
+        Path file = directory.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        return Files.createFile(file);
+    }
+}
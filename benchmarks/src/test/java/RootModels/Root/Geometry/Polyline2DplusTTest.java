@@ -0,0 +1,60 @@
+package RootModels.Root.Geometry;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Regression checks of the time queries of {@link Polyline2DplusT} on unknown (NaN) and non-monotonic point times.
+ */
+public class Polyline2DplusTTest {
+
+    private static final double EPSILON = 1e-12;
+
+    /**
+     * Builds a polyline along the x axis with unit spacing, the given point times and a constant diameter of 2.
+     */
+    private static Polyline2DplusT polyline(double... times) {
+        Polyline2DplusT polyline = new Polyline2DplusT(LocalDateTime.of(2018, 5, 24, 0, 0));
+        for (int i = 0; i < times.length; i++) {
+            polyline.addPoint(i, 0, times[i], times[i], 2, Double.NaN, Double.NaN);
+        }
+        return polyline;
+    }
+
+    @Test
+    public void nanTimeDoesNotStopTheWalk() {
+        Polyline2DplusT polyline = polyline(1, Double.NaN, 2, 3);
+        assertEquals(0.0, polyline.getLengthUntil(0.5), EPSILON);
+        assertEquals(2.0, polyline.getLengthUntil(2), EPSILON);
+        assertEquals(2.5, polyline.getLengthUntil(2.5), EPSILON);
+        assertEquals(3.0, polyline.getLengthUntil(3), EPSILON);
+        assertEquals(3.0, polyline.getLengthUntil(Double.NaN), EPSILON);
+    }
+
+    @Test
+    public void leadingNanTimes() {
+        Polyline2DplusT polyline = polyline(Double.NaN, Double.NaN, 2);
+        assertEquals(1.0, polyline.getLengthUntil(1), EPSILON);
+        assertEquals(2.0, polyline.getLengthUntil(2), EPSILON);
+    }
+
+    @Test
+    public void nonMonotonicTimes() {
+        Polyline2DplusT polyline = polyline(1, 3, 2, 4);
+        assertEquals(0.5, polyline.getLengthUntil(2), EPSILON);
+        assertEquals(0.75, polyline.getLengthUntil(2.5), EPSILON);
+        assertEquals(2.0, polyline.getLengthUntil(3), EPSILON);
+        assertEquals(2.5, polyline.getLengthUntil(3.5), EPSILON);
+    }
+
+    @Test
+    public void diameterAndVolumeWithNanTime() {
+        Polyline2DplusT polyline = polyline(1, Double.NaN, 2, 3);
+        assertEquals(2.0, polyline.getMeanDiameterUntil(2), EPSILON);
+        assertEquals(2 * Math.PI, polyline.getVolumeUntil(2), EPSILON);
+        assertEquals(2.5 * Math.PI, polyline.getVolumeUntil(2.5), EPSILON);
+    }
+}
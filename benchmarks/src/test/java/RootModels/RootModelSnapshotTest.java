@@ -0,0 +1,159 @@
+package RootModels;
+
+import Parser.RSMLGenerator;
+import RootModels.Root.Geometry.Geometry;
+import RootModels.Root.Geometry.Polyline2D;
+import RootModels.Root.Geometry.Polyline2DplusT;
+import RootModels.Root.Root;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Write/read roundtrip of {@link RootModelSnapshot} in eager and lazy modes, and rejection of corrupted files,
+ * on series generated by {@link RSMLGenerator}.
+ */
+public class RootModelSnapshotTest {
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("snapshot-test");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void eagerRoundtrip() throws Exception {
+        for (boolean timeData : new boolean[]{false, true}) {
+            RootModel model = load(timeData);
+            Path snapshot = directory.resolve("eager-" + timeData + ".rms");
+            RootModelSnapshot.write(model, snapshot);
+            assertSameModel(model, RootModelSnapshot.read(snapshot, false));
+        }
+    }
+
+    @Test
+    public void lazyRoundtrip() throws Exception {
+        for (boolean timeData : new boolean[]{false, true}) {
+            RootModel model = load(timeData);
+            Path snapshot = directory.resolve("lazy-" + timeData + ".rms");
+            RootModelSnapshot.write(model, snapshot);
+            RootModel lazy = RootModelSnapshot.read(snapshot, true);
+
+            Geometry first = lazy.dataByDate.firstEntry().getValue().flatRootList.get(0).getGeometry();
+            assertFalse("geometry loaded before any access", isMaterialized(first));
+            assertSameModel(model, lazy);
+            assertTrue(isMaterialized(first));
+        }
+    }
+
+    @Test
+    public void corruptedGeometryBlockIsRejected() throws Exception {
+        Path snapshot = directory.resolve("corrupted.rms");
+        RootModelSnapshot.write(load(true), snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[RootModelSnapshot.HEADER_SIZE + 100] ^= 1;
+        Files.write(snapshot, bytes);
+
+        try {
+            RootModelSnapshot.read(snapshot, false);
+            fail("corrupted geometry section accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("checksum"));
+        }
+
+        // In lazy mode, the block checksum is checked when the geometry is first accessed
+        RootModel lazy = RootModelSnapshot.read(snapshot, true);
+        try {
+            for (Root root : lazy.dataByDate.firstEntry().getValue().flatRootList) {
+                root.getGeometry().getTotalLength();
+            }
+            fail("corrupted geometry block accepted");
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().contains("checksum"));
+        }
+    }
+
+    @Test
+    public void corruptedStructureIsRejected() throws Exception {
+        Path snapshot = directory.resolve("corrupted.rms");
+        RootModelSnapshot.write(load(false), snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 10] ^= 1;
+        Files.write(snapshot, bytes);
+
+        for (boolean lazy : new boolean[]{false, true}) {
+            try {
+                RootModelSnapshot.read(snapshot, lazy);
+                fail("corrupted structure section accepted");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("checksum"));
+            }
+        }
+    }
+
+    private RootModel load(boolean timeData) throws Exception {
+        RSMLGenerator.Options options = new RSMLGenerator.Options();
+        options.plants = 2;
+        options.dates = 3;
+        options.timeData = timeData;
+        Path series = Files.createTempDirectory(directory, "series");
+        TreeSet<String> files = new TreeSet<>();
+        for (Path file : new RSMLGenerator(options).generate(series)) {
+            files.add(file.toString());
+        }
+        return RootModelLoader.loadRsmlFiles(files);
+    }
+
+    private static void assertSameModel(RootModel expected, RootModel actual) {
+        assertEquals(expected.dataByDate.keySet(), actual.dataByDate.keySet());
+        for (LocalDateTime date : expected.dataByDate.keySet()) {
+            RootModel.RootModelEntry expectedEntry = expected.dataByDate.get(date);
+            RootModel.RootModelEntry actualEntry = actual.dataByDate.get(date);
+            assertEquals(expectedEntry.metadata.getDateOfCapture(), actualEntry.metadata.getDateOfCapture());
+            assertEquals(expectedEntry.scene.getPlants().size(), actualEntry.scene.getPlants().size());
+
+            List<Root> expectedRoots = expectedEntry.flatRootList;
+            List<Root> actualRoots = actualEntry.flatRootList;
+            assertEquals(expectedRoots.size(), actualRoots.size());
+            for (int i = 0; i < expectedRoots.size(); i++) {
+                Root expectedRoot = expectedRoots.get(i);
+                Root actualRoot = actualRoots.get(i);
+                assertEquals(expectedRoot.getId(), actualRoot.getId());
+                assertEquals(expectedRoot.getParentId(), actualRoot.getParentId());
+                assertEquals(expectedRoot.getOrder(), actualRoot.getOrder());
+                assertEquals(expectedRoot.getChildren().size(), actualRoot.getChildren().size());
+                assertEquals(expectedRoot.getGeometry(), actualRoot.getGeometry());
+                assertEquals(expectedRoot.getGeometry().getBounds(), actualRoot.getGeometry().getBounds());
+            }
+        }
+    }
+
+    private static boolean isMaterialized(Geometry geometry) {
+        return geometry instanceof Polyline2DplusT
+                ? ((Polyline2DplusT) geometry).isMaterialized()
+                : ((Polyline2D) geometry).isMaterialized();
+    }
+}
@@ -0,0 +1,151 @@
+package Parser;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Détecte la date de capture la plus ancienne dans les chaînes d'un fichier RSML (nom de fichier, métadonnées, attributs).
+ * Les motifs sont compilés une seule fois et chaque motif indique directement la position du jour, du mois et de l'année,
+ * sans essayer successivement plusieurs formats en rattrapant des exceptions.
+ * Les valeurs d'attributs ne sont comparées qu'aux formats jour-mois-année ({@code dd_MM_yyyy} et {@code dd/MM/yyyy}) :
+ * une coordonnée ou un identifiant de 8 chiffres ne doit pas devenir la date de capture du fichier.
+ * Une instance accumule les dates d'un seul fichier et n'est pas thread-safe.
+ */
+public class DateDetector {
+
+    // Nombre minimal de chiffres pour qu'une chaîne puisse contenir une date (jour, mois et année sur 4 chiffres)
+    private static final int MIN_DIGITS = 8;
+
+    // Formats jour-mois-année, reconnus partout
+    private static final DateLayout[] DAY_FIRST_LAYOUTS = {
+            new DateLayout("(\\d{2})_(\\d{2})_(\\d{4})", 1, 2, 3),          // ex: 24_05_2018
+            new DateLayout("\\b(\\d{2})/(\\d{2})/(\\d{4})\\b", 1, 2, 3),    // ex: 24/05/2018
+    };
+
+    // Formats année-mois-jour, reconnus seulement dans le nom du fichier et les métadonnées
+    private static final DateLayout[] YEAR_FIRST_LAYOUTS = {
+            new DateLayout("\\b(\\d{4})-(\\d{2})-(\\d{2})\\b", 3, 2, 1),    // ex: 2018-05-24
+            new DateLayout("\\b(\\d{4})/(\\d{2})/(\\d{2})\\b", 3, 2, 1),    // ex: 2018/05/24
+            new DateLayout("\\b(\\d{4})(\\d{2})(\\d{2})\\b", 3, 2, 1),      // ex: 20180524
+            new DateLayout("\\b(\\d{4})_(\\d{2})_(\\d{2})\\b", 3, 2, 1),    // ex: 2018_05_24
+    };
+
+    private LocalDate earliest;
+
+    /**
+     * Analyse le nom du fichier ou le texte d'une métadonnée et retient la date la plus ancienne qu'il contient,
+     * dans tous les formats reconnus.
+     *
+     * @param text La chaîne à analyser (peut être null).
+     */
+    public void scan(String text) {
+        if (text == null || countDigits(text) < MIN_DIGITS) {
+            return;
+        }
+        scan(text, DAY_FIRST_LAYOUTS);
+        scan(text, YEAR_FIRST_LAYOUTS);
+    }
+
+    /**
+     * Analyse la valeur d'un attribut et retient la date la plus ancienne qu'elle contient,
+     * dans les seuls formats {@code dd_MM_yyyy} et {@code dd/MM/yyyy}.
+     *
+     * @param value La valeur à analyser (peut être null).
+     */
+    public void scanAttribute(String value) {
+        if (value == null || !hasDateSeparator(value) || countDigits(value) < MIN_DIGITS) {
+            return;
+        }
+        scan(value, DAY_FIRST_LAYOUTS);
+    }
+
+    private void scan(String text, DateLayout[] layouts) {
+        for (DateLayout layout : layouts) {
+            Matcher matcher = layout.pattern.matcher(text);
+            while (matcher.find()) {
+                LocalDate date = layout.toDate(matcher);
+                if (date != null && (earliest == null || date.isBefore(earliest))) {
+                    earliest = date;
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtient la date la plus ancienne trouvée jusqu'ici.
+     *
+     * @return La date la plus ancienne à minuit, ou null si aucune date n'a été trouvée.
+     */
+    public LocalDateTime getEarliestDate() {
+        return earliest == null ? null : earliest.atStartOfDay();
+    }
+
+    /**
+     * Indique si une chaîne contient un séparateur des formats jour-mois-année, ce qui écarte sans expression régulière
+     * les nombres des coordonnées.
+     *
+     * @param text La chaîne à analyser.
+     * @return true si la chaîne contient '_' ou '/'.
+     */
+    private static boolean hasDateSeparator(String text) {
+        return text.indexOf('_') >= 0 || text.indexOf('/') >= 0;
+    }
+
+    /**
+     * Compte les chiffres d'une chaîne, en s'arrêtant dès que le minimum requis est atteint.
+     *
+     * @param text La chaîne à analyser.
+     * @return Le nombre de chiffres, plafonné à {@link #MIN_DIGITS}.
+     */
+    private static int countDigits(String text) {
+        int digits = 0;
+        for (int i = 0; i < text.length() && digits < MIN_DIGITS; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            }
+        }
+        return digits;
+    }
+
+    /**
+     * Motif de date précompilé avec la position des groupes jour, mois et année.
+     */
+    private static final class DateLayout {
+        final Pattern pattern;
+        final int dayGroup;
+        final int monthGroup;
+        final int yearGroup;
+
+        DateLayout(String regex, int dayGroup, int monthGroup, int yearGroup) {
+            this.pattern = Pattern.compile(regex);
+            this.dayGroup = dayGroup;
+            this.monthGroup = monthGroup;
+            this.yearGroup = yearGroup;
+        }
+
+        /**
+         * Construit la date correspondant à une occurrence du motif.
+         *
+         * @param matcher Matcher positionné sur une occurrence.
+         * @return La date, ou null si le jour ou le mois est hors limites.
+         */
+        LocalDate toDate(Matcher matcher) {
+            int year = Integer.parseInt(matcher.group(yearGroup));
+            int month = Integer.parseInt(matcher.group(monthGroup));
+            int day = Integer.parseInt(matcher.group(dayGroup));
+            if (month < 1 || month > 12 || day < 1) {
+                return null;
+            }
+            int monthLength = Month.of(month).length(Year.isLeap(year));
+            if (day > monthLength) {
+                return null;
+            }
+            return LocalDate.of(year, month, day);
+        }
+    }
+}
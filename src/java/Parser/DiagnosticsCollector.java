@@ -0,0 +1,62 @@
+package Parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Destination qui conserve les rapports de parsing et totalise les anomalies par catégorie, par exemple pour produire
+ * un résumé à la fin d'un lot. Au plus maxReports rapports sont conservés ; les totaux portent sur tous les rapports.
+ */
+public class DiagnosticsCollector implements DiagnosticsSink {
+
+    private final int maxReports;
+    private final List<ParseDiagnostics> reports = new ArrayList<>();
+    private final EnumMap<ParseDiagnostics.Category, Long> counts = new EnumMap<>(ParseDiagnostics.Category.class);
+    private long reportCount;
+
+    public DiagnosticsCollector() {
+        this(1000);
+    }
+
+    public DiagnosticsCollector(int maxReports) {
+        this.maxReports = maxReports;
+    }
+
+    @Override
+    public synchronized void accept(ParseDiagnostics report) {
+        reportCount++;
+        if (reports.size() < maxReports) {
+            reports.add(report);
+        }
+        for (ParseDiagnostics.Category category : ParseDiagnostics.Category.values()) {
+            int count = report.getCount(category);
+            if (count > 0) {
+                counts.merge(category, (long) count, Long::sum);
+            }
+        }
+    }
+
+    /**
+     * @return Le nombre de fichiers ayant au moins une anomalie.
+     */
+    public synchronized long getReportCount() {
+        return reportCount;
+    }
+
+    /**
+     * @return Les rapports conservés, dans l'ordre de réception.
+     */
+    public synchronized List<ParseDiagnostics> getReports() {
+        return Collections.unmodifiableList(new ArrayList<>(reports));
+    }
+
+    /**
+     * @return Le nombre total d'anomalies par catégorie ; les catégories sans anomalie sont absentes.
+     */
+    public synchronized Map<ParseDiagnostics.Category, Long> getCounts() {
+        return Collections.unmodifiableMap(new EnumMap<>(counts));
+    }
+}
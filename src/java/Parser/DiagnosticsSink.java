@@ -0,0 +1,82 @@
+package Parser;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Destination des rapports de parsing. Un rapport est transmis une seule fois par fichier, après son parsing, et
+ * seulement s'il contient au moins une anomalie. Les implémentations doivent accepter des appels concurrents.
+ */
+public interface DiagnosticsSink {
+
+    /**
+     * Destination qui ignore tous les rapports.
+     */
+    DiagnosticsSink NONE = report -> {
+    };
+
+    /**
+     * Reçoit le rapport d'un fichier.
+     *
+     * @param report Le rapport, non vide.
+     */
+    void accept(ParseDiagnostics report);
+
+    /**
+     * Crée une destination qui affiche chaque rapport : un résumé par catégorie puis les exemples conservés.
+     * Chaque rapport est écrit d'un seul bloc, pour ne pas mélanger les rapports de plusieurs threads.
+     *
+     * @param out Le flux de sortie.
+     * @return La destination.
+     */
+    static DiagnosticsSink printing(PrintStream out) {
+        return report -> {
+            StringBuilder sb = new StringBuilder(report.toString());
+            for (ParseDiagnostics.Issue issue : report.getExamples()) {
+                sb.append(System.lineSeparator()).append("\t").append(issue);
+                if (issue.cause != null) {
+                    sb.append(" (").append(issue.cause).append(')');
+                }
+            }
+            int omitted = report.getTotalCount() - report.getExamples().size();
+            if (omitted > 0) {
+                sb.append(System.lineSeparator()).append("\t... ").append(omitted).append(" autre(s)");
+            }
+            out.println(sb);
+        };
+    }
+
+    /**
+     * Limite le nombre de rapports transmis à une destination. Au-delà de maxPerSecond rapports par seconde, les rapports
+     * sont ignorés ; leur nombre est indiqué sur la sortie d'erreur avec le prochain rapport transmis.
+     *
+     * @param sink         La destination à protéger.
+     * @param maxPerSecond Nombre maximal de rapports transmis par seconde.
+     * @return La destination limitée.
+     */
+    static DiagnosticsSink rateLimited(DiagnosticsSink sink, int maxPerSecond) {
+        if (maxPerSecond < 1) {
+            throw new IllegalArgumentException("Le nombre de rapports par seconde doit être au moins 1: " + maxPerSecond);
+        }
+        long interval = TimeUnit.SECONDS.toNanos(1) / maxPerSecond;
+        AtomicLong nextAllowed = new AtomicLong(System.nanoTime());
+        AtomicLong suppressed = new AtomicLong();
+        return report -> {
+            long now = System.nanoTime();
+            long allowed = nextAllowed.get();
+            // Permet une rafale d'une seconde, puis un rapport par intervalle
+            long floor = now - TimeUnit.SECONDS.toNanos(1);
+            long next = Math.max(allowed, floor) + interval;
+            if (next - interval > now || !nextAllowed.compareAndSet(allowed, next)) {
+                suppressed.incrementAndGet();
+                return;
+            }
+            long skipped = suppressed.getAndSet(0);
+            if (skipped > 0) {
+                System.err.println(skipped + " rapport(s) de parsing ignoré(s) (limite de " + maxPerSecond + " par seconde)");
+            }
+            sink.accept(report);
+        };
+    }
+}
@@ -0,0 +1,196 @@
+package Parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rapport des anomalies rencontrées pendant le parsing d'un fichier RSML.
+ * <p>
+ * Le rapport compte les anomalies par catégorie et ne conserve que les premiers exemples, avec leur localisation
+ * (fichier, ID de la racine et ligne si elle est connue). Il est rempli par un seul thread, celui qui parse le fichier,
+ * puis transmis à un {@link DiagnosticsSink} une fois le fichier traité. Rien n'est alloué tant qu'aucune anomalie
+ * n'est signalée.
+ */
+public class ParseDiagnostics {
+
+    /**
+     * Nombre d'exemples conservés par défaut.
+     */
+    public static final int DEFAULT_MAX_EXAMPLES = 10;
+
+    // Destination par défaut des rapports : stderr, limité à quelques rapports par seconde
+    private static volatile DiagnosticsSink defaultSink = DiagnosticsSink.rateLimited(DiagnosticsSink.printing(System.err), 10);
+
+    /**
+     * Catégories d'anomalies.
+     */
+    public enum Category {
+        INVALID_POINT("Coordonnées de point invalides"),
+        INVALID_PROPERTY("Valeur de propriété invalide"),
+        INVALID_SAMPLE("Valeur d'échantillon invalide"),
+        INVALID_METADATA("Valeur de métadonnée invalide"),
+        MISSING_GEOMETRY("Aucune géométrie trouvée pour la racine"),
+        MISSING_METADATA("Élément metadata introuvable"),
+        MISSING_DATE("Aucune date trouvée, utilisation de la date et l'heure actuelles"),
+        NO_SCENE("Aucune scène trouvée"),
+        NO_PLANT("Aucune plante trouvée dans la scène"),
+        NO_VALID_ROOT("Aucune racine valide avec une géométrie"),
+        PARSE_FAILURE("Erreur lors du parsing du fichier"),
+        CACHE_FAILURE("Erreur du cache de parsing, sans effet sur le résultat"),
+        INGESTION_FAILURE("Erreur du service d'ingestion");
+
+        public final String description;
+
+        Category(String description) {
+            this.description = description;
+        }
+    }
+
+    /**
+     * Exemple d'anomalie, avec sa localisation.
+     */
+    public static final class Issue {
+        public final Category category;
+        public final String rootId; // null si l'anomalie ne concerne pas une racine
+        public final int line; // -1 si inconnue
+        public final String detail; // null si aucun détail
+        public final Throwable cause; // null sauf pour PARSE_FAILURE, CACHE_FAILURE et INGESTION_FAILURE
+
+        Issue(Category category, String rootId, int line, String detail, Throwable cause) {
+            this.category = category;
+            this.rootId = rootId;
+            this.line = line;
+            this.detail = detail;
+            this.cause = cause;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(category.description);
+            if (rootId != null) {
+                sb.append(" (racine ID : ").append(rootId).append(')');
+            }
+            if (line >= 0) {
+                sb.append(" ligne ").append(line);
+            }
+            if (detail != null) {
+                sb.append(" : ").append(detail);
+            }
+            return sb.toString();
+        }
+    }
+
+    public final String filePath;
+    private final int maxExamples;
+    private int[] counts; // Par catégorie, alloué à la première anomalie
+    private List<Issue> examples;
+
+    public ParseDiagnostics(String filePath) {
+        this(filePath, DEFAULT_MAX_EXAMPLES);
+    }
+
+    public ParseDiagnostics(String filePath, int maxExamples) {
+        this.filePath = filePath;
+        this.maxExamples = maxExamples;
+    }
+
+    /**
+     * @return La destination utilisée par les parseurs qui n'en ont pas reçu d'autre.
+     */
+    public static DiagnosticsSink getDefaultSink() {
+        return defaultSink;
+    }
+
+    /**
+     * Remplace la destination par défaut des rapports.
+     *
+     * @param sink La nouvelle destination, ou {@link DiagnosticsSink#NONE} pour ignorer les rapports.
+     */
+    public static void setDefaultSink(DiagnosticsSink sink) {
+        defaultSink = Objects.requireNonNull(sink);
+    }
+
+    /**
+     * Signale une anomalie.
+     *
+     * @param category Catégorie de l'anomalie.
+     * @param rootId   ID de la racine concernée, ou null.
+     * @param detail   Détail de l'anomalie, ou null.
+     */
+    public void report(Category category, String rootId, String detail) {
+        report(category, rootId, -1, detail, null);
+    }
+
+    /**
+     * Signale une anomalie.
+     *
+     * @param category Catégorie de l'anomalie.
+     * @param rootId   ID de la racine concernée, ou null.
+     * @param line     Ligne de l'anomalie dans le fichier, ou -1.
+     * @param detail   Détail de l'anomalie, ou null.
+     * @param cause    Exception à l'origine de l'anomalie, ou null.
+     */
+    public void report(Category category, String rootId, int line, String detail, Throwable cause) {
+        if (counts == null) {
+            counts = new int[Category.values().length];
+            examples = new ArrayList<>(Math.min(maxExamples, DEFAULT_MAX_EXAMPLES));
+        }
+        counts[category.ordinal()]++;
+        if (examples.size() < maxExamples) {
+            examples.add(new Issue(category, rootId, line, detail, cause));
+        }
+    }
+
+    /**
+     * @return true si aucune anomalie n'a été signalée.
+     */
+    public boolean isEmpty() {
+        return counts == null;
+    }
+
+    /**
+     * @param category Une catégorie.
+     * @return Le nombre d'anomalies de cette catégorie.
+     */
+    public int getCount(Category category) {
+        return counts == null ? 0 : counts[category.ordinal()];
+    }
+
+    /**
+     * @return Le nombre total d'anomalies.
+     */
+    public int getTotalCount() {
+        int total = 0;
+        if (counts != null) {
+            for (int count : counts) {
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @return Les premiers exemples d'anomalies, dans l'ordre où elles ont été signalées.
+     */
+    public List<Issue> getExamples() {
+        return examples == null ? Collections.emptyList() : Collections.unmodifiableList(examples);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getTotalCount()).append(" anomalie(s) dans le fichier ").append(filePath);
+        if (counts != null) {
+            String separator = " : ";
+            for (Category category : Category.values()) {
+                if (counts[category.ordinal()] > 0) {
+                    sb.append(separator).append(category.name()).append('=').append(counts[category.ordinal()]);
+                    separator = ", ";
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,149 @@
+package Parser;
+
+import RootModels.Root.Geometry.Geometry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Résultat typé du parsing d'un fichier RSML.
+ * Les collections absentes du fichier sont représentées par des collections vides partagées, pour limiter les allocations.
+ *
+ * @param <G> Type de géométrie des racines.
+ */
+public class ParsedRsml<G extends Geometry> {
+    public final String filePath; // Chemin du fichier parsé
+    public final Metadata metadata; // Métadonnées du fichier
+    public final List<Scene<G>> scenes; // Scènes du fichier
+    public final List<Root<G>> flatRoots; // Toutes les racines valides, enfants avant parents
+    public ParseDiagnostics diagnostics; // Anomalies rencontrées, vide si le résultat provient du cache de parsing
+
+    public ParsedRsml(String filePath, Metadata metadata, List<Scene<G>> scenes, List<Root<G>> flatRoots) {
+        this.filePath = filePath;
+        this.metadata = metadata;
+        this.scenes = scenes;
+        this.flatRoots = flatRoots;
+    }
+
+    @Override
+    public String toString() {
+        return "ParsedRsml{" +
+                "filePath='" + filePath + '\'' +
+                ", metadata=" + metadata +
+                ", scenes=" + scenes +
+                ", flatRoots=" + flatRoots.size() +
+                ", diagnostics=" + (diagnostics == null ? 0 : diagnostics.getTotalCount()) +
+                '}';
+    }
+
+    /**
+     * Métadonnées parsées d'un fichier RSML.
+     */
+    public static class Metadata {
+        public String version = "-1";
+        public String unit = "";
+        public String resolution = "-1";
+        public LocalDateTime lastModified;
+        public String software = "";
+        public String user = "";
+        public String fileKey = "";
+        public List<Double> observationHours; // null si absent du fichier
+        public List<PropertyDefinition> propertyDefinitions = new ArrayList<>();
+        public LocalDateTime dateToUse; // Date de capture retenue pour le fichier
+
+        @Override
+        public String toString() {
+            return "Metadata{" +
+                    "version='" + version + '\'' +
+                    ", unit='" + unit + '\'' +
+                    ", resolution='" + resolution + '\'' +
+                    ", lastModified=" + lastModified +
+                    ", software='" + software + '\'' +
+                    ", user='" + user + '\'' +
+                    ", fileKey='" + fileKey + '\'' +
+                    ", observationHours=" + observationHours +
+                    ", propertyDefinitions=" + propertyDefinitions +
+                    ", dateToUse=" + dateToUse +
+                    '}';
+        }
+    }
+
+    /**
+     * Définition de propriété déclarée dans les métadonnées.
+     */
+    public static class PropertyDefinition {
+        public String label = "Unknown";
+        public String type = "Unknown";
+        public String unit = "Unknown";
+
+        @Override
+        public String toString() {
+            return "PropertyDefinition{label='" + label + "', type='" + type + "', unit='" + unit + "'}";
+        }
+    }
+
+    /**
+     * Scène parsée, contenant des plantes.
+     *
+     * @param <G> Type de géométrie des racines.
+     */
+    public static class Scene<G extends Geometry> {
+        public final List<Plant<G>> plants = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            return "Scene{plants=" + plants + '}';
+        }
+    }
+
+    /**
+     * Plante parsée, contenant ses racines de premier niveau.
+     *
+     * @param <G> Type de géométrie des racines.
+     */
+    public static class Plant<G extends Geometry> {
+        public final List<Root<G>> roots = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            return "Plant{roots=" + roots + '}';
+        }
+    }
+
+    /**
+     * Racine parsée avec sa géométrie et ses racines enfants.
+     *
+     * @param <G> Type de géométrie des racines.
+     */
+    public static class Root<G extends Geometry> {
+        public String id = "";
+        public String label = "";
+        public String poAccession = "";
+        public int order = 1;
+        public Map<String, Double> properties = Collections.emptyMap();
+        public G geometry; // Points de toutes les polylignes de la racine, null si la racine n'a pas de géométrie
+        public Map<String, List<Double>> functions = Collections.emptyMap();
+        public List<Map<String, String>> annotations = Collections.emptyList();
+        public List<Root<G>> childRoots = Collections.emptyList();
+        public LocalDateTime date; // Date de capture du fichier
+
+        @Override
+        public String toString() {
+            return "Root{" +
+                    "id='" + id + '\'' +
+                    ", label='" + label + '\'' +
+                    ", poAccession='" + poAccession + '\'' +
+                    ", order=" + order +
+                    ", properties=" + properties +
+                    ", geometry=" + geometry +
+                    ", functions=" + functions +
+                    ", annotations=" + annotations +
+                    ", childRoots=" + childRoots +
+                    ", date=" + date +
+                    '}';
+        }
+    }
+}
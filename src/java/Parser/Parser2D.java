@@ -1,19 +1,20 @@
 package Parser;
 
+import RootModels.Root.Geometry.Polyline2D;
 import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
-import java.awt.geom.Point2D;
+import javax.xml.stream.XMLStreamReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Classe pour le parsing des fichiers RSML 2D.
  */
-public class Parser2D extends RSMLParser<Point2D.Double> {
+public class Parser2D extends RSMLParser<Polyline2D> {
 
     public static void main(String[] args) {
         // Obtenir la liste des chemins de fichiers RSML de l'utilisateur
@@ -27,7 +28,7 @@ public class Parser2D extends RSMLParser<Point2D.Double> {
         try {
             Parser2D parser = new Parser2D();
             // Parser les fichiers RSML et récupérer les données
-            List<Map<String, Object>> parsedData = parser.parseRsmlFiles(rsmlFiles);
+            List<ParsedRsml<Polyline2D>> parsedData = parser.parseRsmlFiles(rsmlFiles);
 
             // Afficher les données parsées
             parsedData.forEach(System.out::println);
@@ -38,39 +39,62 @@ public class Parser2D extends RSMLParser<Point2D.Double> {
     }
 
     @Override
-    protected List<List<Point2D.Double>> parseGeometry(Element rootElement, LocalDateTime dateToUse) {
-        NodeList geometryNodes = rootElement.getElementsByTagName("geometry");
-        List<List<Point2D.Double>> geometry = new ArrayList<>();
+    protected Polyline2D parseGeometry(Element rootElement, LocalDateTime dateToUse, ParseDiagnostics diagnostics) {
+        Polyline2D geometry = createGeometry();
 
-        if (geometryNodes.getLength() == 0) {
-            return geometry; // Retourner une géométrie vide
-        }
-
-        for (int i = 0; i < geometryNodes.getLength(); i++) {
-            Element geometryElement = (Element) geometryNodes.item(i);
-            NodeList polylineNodes = geometryElement.getElementsByTagName("polyline");
-
-            for (int j = 0; j < polylineNodes.getLength(); j++) {
-                Element polylineElement = (Element) polylineNodes.item(j);
-                NodeList pointNodes = polylineElement.getElementsByTagName("point");
-
-                List<Point2D.Double> polyline = new ArrayList<>();
-
-                for (int k = 0; k < pointNodes.getLength(); k++) {
-                    Element pointElement = (Element) pointNodes.item(k);
+        // Seules les géométries propres à la racine sont lues, pas celles des racines enfants
+        for (Element geometryElement : getChildElements(rootElement, "geometry")) {
+            for (Element polylineElement : getChildElements(geometryElement, "polyline")) {
+                for (Element pointElement : getChildElements(polylineElement, "point")) {
                     try {
                         double x = Double.parseDouble(pointElement.getAttribute("x"));
                         double y = Double.parseDouble(pointElement.getAttribute("y"));
-                        polyline.add(new Point2D.Double(x, y));
+                        geometry.addPoint(x, y);
                     } catch (NumberFormatException e) {
-                        System.err.println("Coordonnées de point invalides dans la racine ID : " + rootElement.getAttribute("ID"));
+                        diagnostics.report(ParseDiagnostics.Category.INVALID_POINT, rootElement.getAttribute("ID"), e.getMessage());
                     }
                 }
-                if (!polyline.isEmpty()) {
-                    geometry.add(polyline);
-                }
             }
         }
         return geometry;
     }
+
+    @Override
+    protected Polyline2D createGeometry() {
+        return new Polyline2D((LocalDateTime) null);
+    }
+
+    @Override
+    protected boolean parsePoint(XMLStreamReader reader, Polyline2D geometry) {
+        try {
+            double x = Double.parseDouble(getAttribute(reader, "x"));
+            double y = Double.parseDouble(getAttribute(reader, "y"));
+            geometry.addPoint(x, y);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected void completeGeometry(Polyline2D geometry, LocalDateTime dateToUse) {
+        geometry.setDateOfCapture(dateToUse);
+        geometry.trimToSize();
+    }
+
+    @Override
+    protected void writeGeometry(DataOutputStream out, Polyline2D geometry) throws IOException {
+        int size = geometry.size();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) out.writeDouble(geometry.getX(i));
+        for (int i = 0; i < size; i++) out.writeDouble(geometry.getY(i));
+    }
+
+    @Override
+    protected Polyline2D readGeometry(ByteBuffer in) {
+        int size = in.getInt();
+        double[] xs = RSMLParseCache.readDoubles(in, size);
+        double[] ys = RSMLParseCache.readDoubles(in, size);
+        return new Polyline2D(xs, ys, null);
+    }
 }
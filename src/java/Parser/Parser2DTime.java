@@ -1,18 +1,20 @@
 package Parser;
 
+import RootModels.Root.Geometry.Polyline2DplusT;
 import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLStreamReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Classe pour le parsing des fichiers RSML 2D avec coordonnées temporelles.
  */
-public class Parser2DTime extends RSMLParser<Parser2DTime.PointData> {
+public class Parser2DTime extends RSMLParser<Polyline2DplusT> {
 
     public static void main(String[] args) {
         // Obtenir la liste des chemins de fichiers RSML de l'utilisateur
@@ -26,7 +28,7 @@ public class Parser2DTime extends RSMLParser<Parser2DTime.PointData> {
         try {
             Parser2DTime parser = new Parser2DTime();
             // Parser les fichiers RSML et récupérer les données
-            List<Map<String, Object>> parsedData = parser.parseRsmlFiles(rsmlFiles);
+            List<ParsedRsml<Polyline2DplusT>> parsedData = parser.parseRsmlFiles(rsmlFiles);
 
             // Afficher les données parsées
             parsedData.forEach(System.out::println);
@@ -37,26 +39,13 @@ public class Parser2DTime extends RSMLParser<Parser2DTime.PointData> {
     }
 
     @Override
-    protected List<List<PointData>> parseGeometry(Element rootElement, LocalDateTime dateToUse) {
-        NodeList geometryNodes = rootElement.getElementsByTagName("geometry");
-        List<List<PointData>> geometry = new ArrayList<>();
+    protected Polyline2DplusT parseGeometry(Element rootElement, LocalDateTime dateToUse, ParseDiagnostics diagnostics) {
+        Polyline2DplusT geometry = createGeometry();
 
-        if (geometryNodes.getLength() == 0) {
-            return geometry; // Retourner une géométrie vide
-        }
-
-        for (int i = 0; i < geometryNodes.getLength(); i++) {
-            Element geometryElement = (Element) geometryNodes.item(i);
-            NodeList polylineNodes = geometryElement.getElementsByTagName("polyline");
-
-            for (int j = 0; j < polylineNodes.getLength(); j++) {
-                Element polylineElement = (Element) polylineNodes.item(j);
-                NodeList pointNodes = polylineElement.getElementsByTagName("point");
-
-                List<PointData> polyline = new ArrayList<>();
-
-                for (int k = 0; k < pointNodes.getLength(); k++) {
-                    Element pointElement = (Element) pointNodes.item(k);
+        // Seules les géométries propres à la racine sont lues, pas celles des racines enfants
+        for (Element geometryElement : getChildElements(rootElement, "geometry")) {
+            for (Element polylineElement : getChildElements(geometryElement, "polyline")) {
+                for (Element pointElement : getChildElements(polylineElement, "point")) {
                     try {
                         double coord_t = Double.parseDouble(pointElement.getAttribute("coord_t"));
                         double coord_th = Double.parseDouble(pointElement.getAttribute("coord_th"));
@@ -66,47 +55,68 @@ public class Parser2DTime extends RSMLParser<Parser2DTime.PointData> {
                         double vx = Double.parseDouble(pointElement.getAttribute("vx"));
                         double vy = Double.parseDouble(pointElement.getAttribute("vy"));
 
-                        PointData pointData = new PointData(coord_t, coord_th, coord_x, coord_y, diameter, vx, vy);
-                        polyline.add(pointData);
+                        geometry.addPoint(coord_x, coord_y, coord_t, coord_th, diameter, vx, vy);
                     } catch (NumberFormatException e) {
-                        System.err.println("Coordonnées de point invalides dans la racine ID : " + rootElement.getAttribute("ID"));
+                        diagnostics.report(ParseDiagnostics.Category.INVALID_POINT, rootElement.getAttribute("ID"), e.getMessage());
                     }
                 }
-                if (!polyline.isEmpty()) {
-                    geometry.add(polyline);
-                }
             }
         }
         return geometry;
     }
 
-    /**
-     * Classe représentant un point avec des attributs supplémentaires.
-     */
-    public static class PointData {
-        public double coord_t;
-        public double coord_th;
-        public double coord_x;
-        public double coord_y;
-        public double diameter;
-        public double vx;
-        public double vy;
-
-        // Constructeur
-        public PointData(double coord_t, double coord_th, double coord_x, double coord_y, double diameter, double vx, double vy) {
-            this.coord_t = coord_t;
-            this.coord_th = coord_th;
-            this.coord_x = coord_x;
-            this.coord_y = coord_y;
-            this.diameter = diameter;
-            this.vx = vx;
-            this.vy = vy;
-        }
+    @Override
+    protected Polyline2DplusT createGeometry() {
+        return new Polyline2DplusT((LocalDateTime) null);
+    }
 
-        @Override
-        public String toString() {
-            return String.format("PointData(coord_t=%f, coord_th=%f, coord_x=%f, coord_y=%f, diameter=%f, vx=%f, vy=%f)",
-                    coord_t, coord_th, coord_x, coord_y, diameter, vx, vy);
+    @Override
+    protected boolean parsePoint(XMLStreamReader reader, Polyline2DplusT geometry) {
+        try {
+            double coord_t = Double.parseDouble(getAttribute(reader, "coord_t"));
+            double coord_th = Double.parseDouble(getAttribute(reader, "coord_th"));
+            double coord_x = Double.parseDouble(getAttribute(reader, "coord_x"));
+            double coord_y = Double.parseDouble(getAttribute(reader, "coord_y"));
+            double diameter = Double.parseDouble(getAttribute(reader, "diameter"));
+            double vx = Double.parseDouble(getAttribute(reader, "vx"));
+            double vy = Double.parseDouble(getAttribute(reader, "vy"));
+
+            geometry.addPoint(coord_x, coord_y, coord_t, coord_th, diameter, vx, vy);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
         }
     }
+
+    @Override
+    protected void completeGeometry(Polyline2DplusT geometry, LocalDateTime dateToUse) {
+        geometry.setDateOfCapture(dateToUse);
+        geometry.trimToSize();
+    }
+
+    @Override
+    protected void writeGeometry(DataOutputStream out, Polyline2DplusT geometry) throws IOException {
+        int size = geometry.size();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) out.writeDouble(geometry.getX(i));
+        for (int i = 0; i < size; i++) out.writeDouble(geometry.getY(i));
+        for (int i = 0; i < size; i++) out.writeDouble(geometry.getTime(i));
+        for (int i = 0; i < size; i++) out.writeDouble(geometry.getTimeHour(i));
+        for (int i = 0; i < size; i++) out.writeDouble(geometry.getDiameter(i));
+        for (int i = 0; i < size; i++) out.writeDouble(geometry.getVx(i));
+        for (int i = 0; i < size; i++) out.writeDouble(geometry.getVy(i));
+    }
+
+    @Override
+    protected Polyline2DplusT readGeometry(ByteBuffer in) {
+        int size = in.getInt();
+        double[] xs = RSMLParseCache.readDoubles(in, size);
+        double[] ys = RSMLParseCache.readDoubles(in, size);
+        double[] ts = RSMLParseCache.readDoubles(in, size);
+        double[] ths = RSMLParseCache.readDoubles(in, size);
+        double[] ds = RSMLParseCache.readDoubles(in, size);
+        double[] vxs = RSMLParseCache.readDoubles(in, size);
+        double[] vys = RSMLParseCache.readDoubles(in, size);
+        return new Polyline2DplusT(xs, ys, ts, ths, ds, vxs, vys, null);
+    }
 }
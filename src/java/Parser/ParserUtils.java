@@ -11,6 +11,20 @@ import java.util.regex.Pattern;
  */
 public class ParserUtils {
 
+    // Regex pour matcher les fichiers .rsml, .rsml01, .rsml02, etc.
+    private static final Pattern RSML_FILE_PATTERN = Pattern.compile(".*\\.(rsml|rsml\\d{2})$");
+
+    /**
+     * Indique si un chemin désigne un fichier RSML d'après son extension (.rsml ou .rsmlXX).
+     *
+     * @param path Chemin à tester.
+     * @return true si le nom du fichier a une extension RSML.
+     */
+    public static boolean isRsmlFile(Path path) {
+        Path fileName = path.getFileName();
+        return fileName != null && RSML_FILE_PATTERN.matcher(fileName.toString()).matches();
+    }
+
     /**
      * Fonction pour obtenir une liste de chemins de fichiers RSML de l'utilisateur.
      *
@@ -21,10 +35,6 @@ public class ParserUtils {
         HashSet<String> validPaths = new HashSet<>();
         String input;
 
-        // Regex pour matcher les fichiers .rsml, .rsml01, .rsml02, etc.
-        String pattern = ".*\\.(rsml|rsml\\d{2})$";
-        Pattern regex = Pattern.compile(pattern);
-
         System.out.println("Entrez un ou plusieurs chemins (tapez 'exit' pour terminer) :");
 
         while (true) {
@@ -43,7 +53,7 @@ public class ParserUtils {
                 Path path = Paths.get(input);
 
                 // Vérifier si l'entrée correspond au pattern et est un chemin valide
-                if (regex.matcher(path.toString()).matches()) {
+                if (isRsmlFile(path)) {
                     validPaths.add(path.toString());
                     System.out.println("Chemin valide enregistré.");
                 } else {
@@ -0,0 +1,492 @@
+package Parser;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Générateur de fichiers RSML synthétiques, pour les tests de montée en charge du parsing et du chargement.
+ * Produit une série de fichiers, un par date, dans le dialecte 2D (x, y) lu par {@link Parser2D}
+ * ou le dialecte 2D+t (coord_t, coord_th, coord_x, coord_y, diameter, vx, vy) lu par {@link Parser2DTime}.
+ * <p>
+ * La génération est déterministe pour une graine donnée : chaque racine tire ses points d'un générateur aléatoire
+ * propre, dérivé de la graine et de son ID, si bien qu'une racine a la même forme à toutes les dates et ne fait
+ * que s'allonger d'une date à l'autre. Les racines latérales apparaissent le long de leur parent une fois que
+ * celui-ci a atteint leur point d'insertion. Les fichiers sont écrits en flux et leur taille n'est pas limitée par la mémoire.
+ */
+public class RSMLGenerator {
+
+    private static final String PO_NAMESPACE = "http://www.plantontology.org/xml-dtd/po.dtd";
+    private static final String PRIMARY_ACCESSION = "PO:0009005";
+    private static final String LATERAL_ACCESSION = "PO:0020121";
+    private static final String[] PROPERTY_NAMES = {"diameter", "insertion-angle", "growth-rate"};
+    private static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd_MM_yyyy");
+    private static final DateTimeFormatter METADATA_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private final Options options;
+
+    /**
+     * Constructeur du générateur.
+     *
+     * @param options Paramètres de génération, copiés dans l'état où ils sont passés.
+     */
+    public RSMLGenerator(Options options) {
+        this.options = options.copy();
+        this.options.validate();
+    }
+
+    /**
+     * Point d'entrée en ligne de commande.
+     * Usage : RSMLGenerator &lt;dossier&gt; [--plants=N] [--roots=N,N,...] [--points=N] [--functions=N]
+     * [--properties=N] [--dates=N] [--time] [--seed=N] [--name=texte]
+     *
+     * @param args Arguments de la ligne de commande.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage : RSMLGenerator <dossier> [--plants=N] [--roots=N,N,...] [--points=N] [--functions=N] "
+                    + "[--properties=N] [--dates=N] [--time] [--seed=N] [--name=texte]");
+            return;
+        }
+
+        try {
+            Options options = Options.parse(args, 1);
+            Path directory = Paths.get(args[0]);
+            Files.createDirectories(directory);
+
+            long totalBytes = 0;
+            for (Path file : new RSMLGenerator(options).generate(directory)) {
+                long bytes = Files.size(file);
+                totalBytes += bytes;
+                System.out.println(file + " (" + bytes / 1024 + " Ko)");
+            }
+            System.out.println("Total : " + totalBytes / 1024 + " Ko");
+        } catch (Exception e) {
+            System.err.println("Une erreur est survenue lors de la génération des fichiers RSML : " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Génère la série complète, un fichier par date.
+     *
+     * @param directory Dossier de sortie, qui doit exister.
+     * @return Les chemins des fichiers écrits, dans l'ordre des dates.
+     * @throws IOException si un fichier ne peut pas être écrit.
+     */
+    public List<Path> generate(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>(options.dates);
+        for (int date = 0; date < options.dates; date++) {
+            Path file = directory.resolve(getFileName(date));
+            write(file, date);
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Obtient le nom du fichier d'une date, préfixé par la date comme les fichiers des acquisitions (ex. 13_05_2018_gen.rsml).
+     *
+     * @param date Indice de la date, à partir de 0.
+     * @return Le nom du fichier.
+     */
+    public String getFileName(int date) {
+        return options.firstDate.plusDays(date).format(FILE_DATE_FORMAT) + "_" + options.name + ".rsml";
+    }
+
+    /**
+     * Écrit le fichier RSML d'une date.
+     *
+     * @param file Chemin du fichier à écrire.
+     * @param date Indice de la date, à partir de 0.
+     * @throws IOException si le fichier ne peut pas être écrit.
+     */
+    public void write(Path file, int date) throws IOException {
+        if (date < 0 || date >= options.dates) {
+            throw new IllegalArgumentException("Indice de date hors limites : " + date);
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+            writeDocument(writer, date);
+            writer.close(); // Ne ferme pas le flux sous-jacent, fermé par le try-with-resources
+        } catch (XMLStreamException e) {
+            throw new IOException("Erreur d'écriture du fichier RSML " + file + " : " + e.getMessage(), e);
+        }
+    }
+
+    private void writeDocument(XMLStreamWriter writer, int date) throws XMLStreamException {
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeCharacters("\n");
+        writer.writeStartElement("rsml");
+        writer.writeNamespace("po", PO_NAMESPACE);
+        writer.writeCharacters("\n");
+        writeMetadata(writer, date);
+        writer.writeStartElement("scene");
+        writer.writeCharacters("\n");
+        for (int plant = 0; plant < options.plants; plant++) {
+            writePlant(writer, plant, date);
+        }
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    private void writeMetadata(XMLStreamWriter writer, int date) throws XMLStreamException {
+        writer.writeStartElement("metadata");
+        writeTextElement(writer, "version", "1");
+        writeTextElement(writer, "unit", "pixel");
+        writeTextElement(writer, "resolution", "1.0");
+        writeTextElement(writer, "last-modified", options.firstDate.plusDays(date).atStartOfDay().format(METADATA_DATE_FORMAT));
+        writeTextElement(writer, "software", "RSMLGenerator");
+        writeTextElement(writer, "user", "generator");
+        writeTextElement(writer, "file-key", options.name + "_" + (date + 1));
+
+        // Heures d'observation des dates suivant la première (0 est implicite)
+        if (date > 0) {
+            StringBuilder hours = new StringBuilder();
+            for (int d = 1; d <= date; d++) {
+                if (d > 1) {
+                    hours.append(',');
+                }
+                hours.append(format(d * options.hoursBetweenDates));
+            }
+            writeTextElement(writer, "observation-hours", hours.toString());
+        }
+
+        if (options.properties > 0) {
+            writer.writeStartElement("property-definitions");
+            for (int p = 0; p < options.properties; p++) {
+                writer.writeStartElement("property-definition");
+                writeTextElement(writer, "label", getPropertyName(p));
+                writeTextElement(writer, "type", "float");
+                writeTextElement(writer, "unit", "pixel");
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+    }
+
+    private void writePlant(XMLStreamWriter writer, int plant, int date) throws XMLStreamException {
+        writer.writeStartElement("plant");
+        writer.writeAttribute("ID", Integer.toString(plant + 1));
+        writer.writeAttribute("label", "plant" + (plant + 1));
+        writer.writeCharacters("\n");
+
+        int primaryRoots = options.rootsPerOrder[0];
+        double plantWidth = primaryRoots * options.stepLength * 20;
+        for (int r = 0; r < primaryRoots; r++) {
+            String id = (plant + 1) + "." + (r + 1);
+            double startX = plant * (plantWidth + options.stepLength * 100) + (r + 0.5) * options.stepLength * 20;
+            RootShape shape = new RootShape(id, startX, 0, Math.PI / 2, 0);
+            writeRoot(writer, shape, 1, date);
+        }
+
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+    }
+
+    /**
+     * Écrit une racine visible à la date donnée, avec ses racines enfants déjà apparues.
+     */
+    private void writeRoot(XMLStreamWriter writer, RootShape shape, int order, int date) throws XMLStreamException {
+        int visible = shape.visiblePoints(date);
+
+        writer.writeStartElement("root");
+        writer.writeAttribute("ID", shape.id);
+        writer.writeAttribute("label", order == 1 ? "primary" : "lateral");
+        writer.writeAttribute("po", PO_NAMESPACE, "accession", order == 1 ? PRIMARY_ACCESSION : LATERAL_ACCESSION);
+        writer.writeCharacters("\n");
+
+        if (options.properties > 0) {
+            writer.writeStartElement("properties");
+            for (int p = 0; p < options.properties; p++) {
+                writeTextElement(writer, getPropertyName(p), format(shape.properties[p]));
+            }
+            writer.writeEndElement();
+            writer.writeCharacters("\n");
+        }
+
+        writer.writeStartElement("geometry");
+        writer.writeStartElement("polyline");
+        writer.writeCharacters("\n");
+        for (int i = 0; i < visible; i++) {
+            writer.writeEmptyElement("point");
+            if (options.timeData) {
+                int pointDate = shape.pointDate(i);
+                double vx = i + 1 < shape.size ? shape.xs[i + 1] - shape.xs[i] : shape.xs[i] - shape.xs[i - 1];
+                double vy = i + 1 < shape.size ? shape.ys[i + 1] - shape.ys[i] : shape.ys[i] - shape.ys[i - 1];
+                writer.writeAttribute("coord_t", Integer.toString(pointDate + 1));
+                writer.writeAttribute("coord_th", format(pointDate * options.hoursBetweenDates));
+                writer.writeAttribute("coord_x", format(shape.xs[i]));
+                writer.writeAttribute("coord_y", format(shape.ys[i]));
+                writer.writeAttribute("diameter", format(shape.diameter(i)));
+                writer.writeAttribute("vx", format(vx));
+                writer.writeAttribute("vy", format(vy));
+            } else {
+                writer.writeAttribute("x", format(shape.xs[i]));
+                writer.writeAttribute("y", format(shape.ys[i]));
+            }
+            writer.writeCharacters("\n");
+        }
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+
+        if (options.functions > 0) {
+            writer.writeStartElement("functions");
+            for (int f = 0; f < options.functions; f++) {
+                writer.writeStartElement("function");
+                writer.writeAttribute("name", f == 0 ? "diameter" : "function" + (f + 1));
+                writer.writeAttribute("domain", "polyline");
+                for (int i = 0; i < visible; i++) {
+                    writeTextElement(writer, "sample", format(f == 0 ? shape.diameter(i) : shape.functionValue(f, i)));
+                }
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+            writer.writeCharacters("\n");
+        }
+
+        if (order < options.rootsPerOrder.length) {
+            int children = options.rootsPerOrder[order];
+            for (int c = 0; c < children; c++) {
+                // Points d'insertion répartis régulièrement le long du parent, côtés alternés
+                int insertion = (c + 1) * (shape.size - 1) / (children + 1);
+                if (insertion >= visible) {
+                    break; // Le parent n'a pas encore atteint ce point d'insertion, ni les suivants
+                }
+                double side = c % 2 == 0 ? 1 : -1;
+                RootShape child = new RootShape(shape.id + "." + (c + 1), shape.xs[insertion], shape.ys[insertion],
+                        shape.angle + side * Math.PI / 3, shape.pointDate(insertion));
+                writeRoot(writer, child, order + 1, date);
+            }
+        }
+
+        writer.writeEndElement();
+        writer.writeCharacters("\n");
+    }
+
+    private static void writeTextElement(XMLStreamWriter writer, String name, String text) throws XMLStreamException {
+        writer.writeStartElement(name);
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+    }
+
+    private static String getPropertyName(int index) {
+        return index < PROPERTY_NAMES.length ? PROPERTY_NAMES[index] : "property" + (index + 1);
+    }
+
+    /**
+     * Formate une valeur avec trois décimales au plus, sans dépendre de la locale.
+     */
+    private static String format(double value) {
+        return Double.toString(Math.round(value * 1000) / 1000.0);
+    }
+
+    /**
+     * Forme complète d'une racine (à la dernière date) et calendrier d'apparition de ses points.
+     */
+    private final class RootShape {
+        final String id;
+        final double angle; // Direction initiale de croissance
+        final int emergenceDate; // Indice de la première date où la racine est visible
+        final int size;
+        final double[] xs;
+        final double[] ys;
+        final double[] properties;
+        final long functionSeed;
+
+        RootShape(String id, double startX, double startY, double angle, int emergenceDate) {
+            this.id = id;
+            this.angle = angle;
+            this.emergenceDate = emergenceDate;
+            this.size = options.pointsPerPolyline;
+            this.xs = new double[size];
+            this.ys = new double[size];
+
+            Random random = new Random(options.seed ^ (id.hashCode() * 0x9E3779B97F4A7C15L));
+            double direction = angle;
+            xs[0] = startX;
+            ys[0] = startY;
+            for (int i = 1; i < size; i++) {
+                // Marche aléatoire rappelée vers la verticale (gravitropisme)
+                direction += random.nextGaussian() * 0.15 + (Math.PI / 2 - direction) * 0.05;
+                double step = options.stepLength * (0.75 + random.nextDouble() * 0.5);
+                xs[i] = xs[i - 1] + step * Math.cos(direction);
+                ys[i] = ys[i - 1] + step * Math.sin(direction);
+            }
+
+            this.properties = new double[options.properties];
+            for (int p = 0; p < properties.length; p++) {
+                properties[p] = random.nextDouble() * 10;
+            }
+            this.functionSeed = random.nextLong();
+        }
+
+        /**
+         * Nombre de points visibles à une date : la racine s'allonge régulièrement de son apparition à la dernière date.
+         */
+        int visiblePoints(int date) {
+            if (date < emergenceDate) {
+                return 0;
+            }
+            int span = options.dates - emergenceDate;
+            int visible = (int) Math.ceil((double) size * (date - emergenceDate + 1) / span);
+            return Math.max(2, Math.min(size, visible));
+        }
+
+        /**
+         * Indice de la première date à laquelle un point est visible.
+         */
+        int pointDate(int index) {
+            int date = emergenceDate;
+            while (visiblePoints(date) <= index) {
+                date++;
+            }
+            return date;
+        }
+
+        double diameter(int index) {
+            return 2.0 * (1 - 0.7 * index / size);
+        }
+
+        double functionValue(int function, int index) {
+            long mixed = functionSeed + function * 0x9E3779B97F4A7C15L + index * 0xC2B2AE3D27D4EB4FL;
+            mixed ^= mixed >>> 33;
+            mixed *= 0xFF51AFD7ED558CCDL;
+            mixed ^= mixed >>> 33;
+            return (mixed >>> 11) * 0x1.0p-53;
+        }
+    }
+
+    /**
+     * Paramètres de génération.
+     */
+    public static class Options {
+        public long seed = 42L; // Graine du générateur aléatoire
+        public int plants = 1; // Nombre de plantes
+        // Nombre de racines par ordre : [0] racines primaires par plante, [k] racines d'ordre k + 1 par racine d'ordre k.
+        // La longueur du tableau donne la profondeur de la hiérarchie.
+        public int[] rootsPerOrder = {5, 3};
+        public int pointsPerPolyline = 50; // Nombre de points de chaque racine à la dernière date
+        public int functions = 1; // Nombre de fonctions par racine, la première étant le diamètre
+        public int properties = 1; // Nombre de propriétés par racine
+        public int dates = 1; // Nombre de dates, donc de fichiers
+        public boolean timeData = false; // true pour le dialecte 2D+t, false pour le dialecte 2D
+        public LocalDate firstDate = LocalDate.of(2018, 5, 13); // Date du premier fichier
+        public double hoursBetweenDates = 24; // Intervalle entre deux dates, en heures
+        public double stepLength = 2.0; // Longueur moyenne d'un segment, en pixels
+        public String name = "gen"; // Suffixe des noms de fichiers
+
+        /**
+         * Lit les options de la forme --nom=valeur (ou --time) à partir d'un indice donné.
+         *
+         * @param args  Arguments de la ligne de commande.
+         * @param start Indice du premier argument à lire.
+         * @return Les options lues, les autres gardant leur valeur par défaut.
+         */
+        public static Options parse(String[] args, int start) {
+            Options options = new Options();
+            for (int i = start; i < args.length; i++) {
+                String arg = args[i];
+                int equals = arg.indexOf('=');
+                String key = equals < 0 ? arg : arg.substring(0, equals);
+                String value = equals < 0 ? "" : arg.substring(equals + 1);
+                try {
+                    switch (key) {
+                        case "--plants":
+                            options.plants = Integer.parseInt(value);
+                            break;
+                        case "--roots":
+                            String[] counts = value.split(",");
+                            options.rootsPerOrder = new int[counts.length];
+                            for (int k = 0; k < counts.length; k++) {
+                                options.rootsPerOrder[k] = Integer.parseInt(counts[k].trim());
+                            }
+                            break;
+                        case "--points":
+                            options.pointsPerPolyline = Integer.parseInt(value);
+                            break;
+                        case "--functions":
+                            options.functions = Integer.parseInt(value);
+                            break;
+                        case "--properties":
+                            options.properties = Integer.parseInt(value);
+                            break;
+                        case "--dates":
+                            options.dates = Integer.parseInt(value);
+                            break;
+                        case "--time":
+                            options.timeData = true;
+                            break;
+                        case "--seed":
+                            options.seed = Long.parseLong(value);
+                            break;
+                        case "--name":
+                            options.name = value;
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Option inconnue : " + arg);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Valeur numérique invalide pour " + key + " : " + value);
+                }
+            }
+            return options;
+        }
+
+        Options copy() {
+            Options copy = new Options();
+            copy.seed = seed;
+            copy.plants = plants;
+            copy.rootsPerOrder = rootsPerOrder.clone();
+            copy.pointsPerPolyline = pointsPerPolyline;
+            copy.functions = functions;
+            copy.properties = properties;
+            copy.dates = dates;
+            copy.timeData = timeData;
+            copy.firstDate = firstDate;
+            copy.hoursBetweenDates = hoursBetweenDates;
+            copy.stepLength = stepLength;
+            copy.name = name;
+            return copy;
+        }
+
+        void validate() {
+            if (plants < 0 || functions < 0 || properties < 0) {
+                throw new IllegalArgumentException("Les nombres de plantes, de fonctions et de propriétés doivent être positifs");
+            }
+            if (rootsPerOrder.length == 0) {
+                throw new IllegalArgumentException("Au moins un ordre de racines est requis");
+            }
+            for (int count : rootsPerOrder) {
+                if (count < 0) {
+                    throw new IllegalArgumentException("Le nombre de racines par ordre doit être positif");
+                }
+            }
+            if (pointsPerPolyline < 2) {
+                throw new IllegalArgumentException("Une polyligne doit compter au moins deux points");
+            }
+            if (dates < 1) {
+                throw new IllegalArgumentException("Au moins une date est requise");
+            }
+        }
+    }
+}
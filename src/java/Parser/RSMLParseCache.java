@@ -0,0 +1,745 @@
+package Parser;
+
+import RootModels.Root.Geometry.Geometry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Cache disque des résultats de parsing RSML.
+ * <p>
+ * Chaque entrée est identifiée par le parseur et le chemin du fichier, et mémorise la taille, la date de modification
+ * et l'empreinte SHA-256 du contenu au moment du parsing. Une entrée est valide si la taille et la date de modification
+ * n'ont pas changé ; si seule la date a changé (fichier copié ou touché), l'empreinte du contenu est recalculée et
+ * comparée, ce qui reste bien moins coûteux que le parsing XML. Le résultat est stocké sous une forme binaire
+ * (coordonnées en colonnes de doubles) relue sans aucun parsing XML.
+ * <p>
+ * La taille totale du cache est bornée : au-delà, les entrées les moins récemment utilisées sont supprimées.
+ * L'ordre d'utilisation est conservé entre deux exécutions via la date de modification des fichiers d'entrée.
+ * Le cache peut être partagé entre plusieurs parseurs et threads.
+ */
+public class RSMLParseCache {
+
+    /**
+     * Version du format des entrées ; les entrées d'une autre version sont ignorées puis remplacées.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Taille maximale par défaut du cache, en octets.
+     */
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final int MAGIC = 0x52504331; // "RPC1"
+    private static final String ENTRY_SUFFIX = ".rpc";
+    private static final int HASH_LENGTH = 32;
+
+    private final Path directory;
+    private final long maxBytes;
+    private volatile boolean verifyContent;
+
+    // Index des entrées, du moins récemment utilisé au plus récemment utilisé
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Ouvre un cache avec la taille maximale par défaut.
+     *
+     * @param directory Dossier du cache, créé si nécessaire.
+     * @throws IOException si le dossier ne peut pas être créé ou lu.
+     */
+    public RSMLParseCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Ouvre un cache. Les entrées déjà présentes dans le dossier sont indexées, puis le cache est réduit à sa taille maximale.
+     *
+     * @param directory Dossier du cache, créé si nécessaire.
+     * @param maxBytes  Taille maximale du cache, en octets.
+     * @throws IOException si le dossier ne peut pas être créé ou lu.
+     */
+    public RSMLParseCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("La taille maximale du cache doit être positive: " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        loadIndex();
+        synchronized (this) {
+            evict(ParseDiagnostics.getDefaultSink());
+        }
+    }
+
+    /**
+     * Indique si l'empreinte du contenu est vérifiée à chaque accès, même quand la taille et la date n'ont pas changé.
+     *
+     * @return true si le contenu est toujours vérifié.
+     */
+    public boolean isVerifyContent() {
+        return verifyContent;
+    }
+
+    /**
+     * Choisit de vérifier l'empreinte du contenu à chaque accès (désactivé par défaut).
+     *
+     * @param verifyContent true pour toujours vérifier le contenu.
+     */
+    public void setVerifyContent(boolean verifyContent) {
+        this.verifyContent = verifyContent;
+    }
+
+    /**
+     * @return Le nombre de fichiers servis depuis le cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return Le nombre de fichiers qui ont dû être parsés.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return Le nombre d'entrées supprimées pour respecter la taille maximale.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return Le nombre d'entrées du cache.
+     */
+    public synchronized int getEntryCount() {
+        return index.size();
+    }
+
+    /**
+     * @return La taille totale des entrées du cache, en octets.
+     */
+    public synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Supprime toutes les entrées du cache. Les compteurs ne sont pas remis à zéro.
+     *
+     * @throws IOException si une entrée ne peut pas être supprimée.
+     */
+    public synchronized void clear() throws IOException {
+        for (Entry entry : index.values()) {
+            Files.deleteIfExists(directory.resolve(entry.fileName));
+        }
+        index.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Parse un fichier RSML en passant par le cache : le résultat en cache est renvoyé s'il est valide, sinon le fichier
+     * est parsé puis le résultat est mis en cache. Un fichier dont le parsing n'aboutit pas n'est pas mis en cache.
+     *
+     * @param filePath Chemin du fichier RSML.
+     * @param parser   Parseur utilisé en cas d'absence dans le cache.
+     * @return Données parsées du fichier RSML, ou null si le parsing échoue.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
+    <G extends Geometry> ParsedRsml<G> parse(String filePath, RSMLParser<G> parser) throws Exception {
+        Path file = Paths.get(filePath);
+        if (!Files.isRegularFile(file)) {
+            misses.incrementAndGet();
+            return parser.parseRsmlFileUncached(filePath);
+        }
+
+        String parserName = parser.getClass().getName();
+        String key = entryName(parserName, file.toAbsolutePath().normalize().toString());
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        byte[] contentHash = null;
+        Entry entry;
+        synchronized (this) {
+            entry = index.get(key);
+        }
+        if (entry != null && entry.size == size) {
+            if (entry.modified != modified || verifyContent) {
+                contentHash = hash(file);
+            }
+            if (contentHash == null || Arrays.equals(contentHash, entry.contentHash)) {
+                ParsedRsml<G> cached = readEntry(entry, filePath, parser);
+                if (cached != null) {
+                    entry.modified = modified;
+                    hits.incrementAndGet();
+                    return cached;
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+        if (contentHash == null) {
+            contentHash = hash(file);
+        }
+        ParsedRsml<G> parsedData = parser.parseRsmlFileUncached(filePath);
+
+        // Ne pas mettre en cache un fichier modifié pendant le parsing
+        if (parsedData != null && Files.size(file) == size && Files.getLastModifiedTime(file).toMillis() == modified) {
+            try {
+                writeEntry(key, parserName, file.toAbsolutePath().normalize().toString(), size, modified, contentHash, parsedData, parser);
+            } catch (IOException e) {
+                reportFailure(parser.getDiagnosticsSink(), filePath, "Impossible d'écrire l'entrée de cache", e);
+            }
+        }
+        return parsedData;
+    }
+
+    /**
+     * Nom du fichier d'une entrée, dérivé du parseur et du chemin absolu du fichier RSML.
+     */
+    private static String entryName(String parserName, String absolutePath) {
+        MessageDigest digest = sha256();
+        digest.update(parserName.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(absolutePath.getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder(HASH_LENGTH * 2 + ENTRY_SUFFIX.length());
+        for (byte b : digest.digest()) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return name.append(ENTRY_SUFFIX).toString();
+    }
+
+    private static byte[] hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Toujours disponible dans le JDK
+        }
+    }
+
+    /**
+     * Indexe les entrées présentes dans le dossier, de la moins récemment utilisée à la plus récemment utilisée.
+     * Les fichiers illisibles ou d'une autre version sont supprimés.
+     */
+    private void loadIndex() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(ENTRY_SUFFIX)) {
+                    continue;
+                }
+                Entry entry = readHeader(file);
+                if (entry == null) {
+                    Files.deleteIfExists(file);
+                } else {
+                    entries.add(entry);
+                }
+            }
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+        synchronized (this) {
+            for (Entry entry : entries) {
+                index.put(entry.fileName, entry);
+                totalBytes += entry.bytes;
+            }
+        }
+    }
+
+    private static Entry readHeader(Path file) {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            Entry entry = new Entry();
+            entry.fileName = file.getFileName().toString();
+            entry.parserName = readString(in);
+            entry.path = readString(in);
+            entry.size = in.readLong();
+            entry.modified = in.readLong();
+            entry.contentHash = new byte[HASH_LENGTH];
+            in.readFully(entry.contentHash);
+            entry.bytes = Files.size(file);
+            entry.lastUsed = Files.getLastModifiedTime(file).toMillis();
+            return entry;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Supprime les entrées les moins récemment utilisées jusqu'à respecter la taille maximale.
+     */
+    private void evict(DiagnosticsSink sink) {
+        Iterator<Entry> iterator = index.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            totalBytes -= entry.bytes;
+            evictions.incrementAndGet();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.fileName));
+            } catch (IOException e) {
+                reportFailure(sink, entry.path, "Impossible de supprimer l'entrée de cache " + entry.fileName, e);
+            }
+        }
+    }
+
+    private synchronized void remove(Entry entry, DiagnosticsSink sink) {
+        if (index.get(entry.fileName) == entry) {
+            index.remove(entry.fileName);
+            totalBytes -= entry.bytes;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(entry.fileName));
+        } catch (IOException e) {
+            reportFailure(sink, entry.path, "Impossible de supprimer l'entrée de cache " + entry.fileName, e);
+        }
+    }
+
+    /**
+     * Transmet une erreur du cache, qui n'empêche pas le parsing, comme anomalie CACHE_FAILURE du fichier RSML concerné.
+     */
+    private static void reportFailure(DiagnosticsSink sink, String filePath, String detail, Exception e) {
+        ParseDiagnostics diagnostics = new ParseDiagnostics(filePath);
+        diagnostics.report(ParseDiagnostics.Category.CACHE_FAILURE, null, -1, detail + " : " + e.getMessage(), e);
+        sink.accept(diagnostics);
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Écriture des entrées
+    // ---------------------------------------------------------------------------------------------------------------
+
+    private <G extends Geometry> void writeEntry(String key, String parserName, String absolutePath, long size, long modified,
+                                                 byte[] contentHash, ParsedRsml<G> parsedData, RSMLParser<G> parser) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64 * 1024);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        writeParsedRsml(payload, parsedData, parser);
+        payload.flush();
+        byte[] body = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        ByteArrayOutputStream entryBytes = new ByteArrayOutputStream(body.length + 256);
+        DataOutputStream out = new DataOutputStream(entryBytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, parserName);
+        writeString(out, absolutePath);
+        out.writeLong(size);
+        out.writeLong(modified);
+        out.write(contentHash);
+        out.writeInt(body.length);
+        out.writeInt((int) crc.getValue());
+        out.write(body);
+        out.flush();
+
+        // Écriture dans un fichier temporaire puis remplacement atomique, pour ne jamais exposer une entrée partielle
+        Path target = directory.resolve(key);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(temp, entryBytes.toByteArray());
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        Entry entry = new Entry();
+        entry.fileName = key;
+        entry.parserName = parserName;
+        entry.path = absolutePath;
+        entry.size = size;
+        entry.modified = modified;
+        entry.contentHash = contentHash;
+        entry.bytes = entryBytes.size();
+        synchronized (this) {
+            Entry previous = index.put(key, entry);
+            if (previous != null) {
+                totalBytes -= previous.bytes;
+            }
+            totalBytes += entry.bytes;
+            evict(parser.getDiagnosticsSink());
+        }
+    }
+
+    private static <G extends Geometry> void writeParsedRsml(DataOutputStream out, ParsedRsml<G> parsedData,
+                                                             RSMLParser<G> parser) throws IOException {
+        writeMetadata(out, parsedData.metadata);
+
+        // Les racines sont numérotées en pré-ordre ; la liste à plat est stockée sous forme d'indices
+        IdentityHashMap<ParsedRsml.Root<G>, Integer> indices = new IdentityHashMap<>();
+        out.writeInt(parsedData.scenes.size());
+        for (ParsedRsml.Scene<G> scene : parsedData.scenes) {
+            out.writeInt(scene.plants.size());
+            for (ParsedRsml.Plant<G> plant : scene.plants) {
+                out.writeInt(plant.roots.size());
+                for (ParsedRsml.Root<G> root : plant.roots) {
+                    writeRoot(out, root, parser, indices);
+                }
+            }
+        }
+
+        out.writeInt(parsedData.flatRoots.size());
+        for (ParsedRsml.Root<G> root : parsedData.flatRoots) {
+            Integer index = indices.get(root);
+            if (index == null) {
+                throw new IOException("Racine absente de la hiérarchie: " + root.id);
+            }
+            out.writeInt(index);
+        }
+    }
+
+    private static void writeMetadata(DataOutputStream out, ParsedRsml.Metadata metadata) throws IOException {
+        writeString(out, metadata.version);
+        writeString(out, metadata.unit);
+        writeString(out, metadata.resolution);
+        writeDate(out, metadata.lastModified);
+        writeString(out, metadata.software);
+        writeString(out, metadata.user);
+        writeString(out, metadata.fileKey);
+        writeDoubles(out, metadata.observationHours);
+        out.writeInt(metadata.propertyDefinitions.size());
+        for (ParsedRsml.PropertyDefinition definition : metadata.propertyDefinitions) {
+            writeString(out, definition.label);
+            writeString(out, definition.type);
+            writeString(out, definition.unit);
+        }
+        writeDate(out, metadata.dateToUse);
+    }
+
+    private static <G extends Geometry> void writeRoot(DataOutputStream out, ParsedRsml.Root<G> root, RSMLParser<G> parser,
+                                                       IdentityHashMap<ParsedRsml.Root<G>, Integer> indices) throws IOException {
+        indices.put(root, indices.size());
+        writeString(out, root.id);
+        writeString(out, root.label);
+        writeString(out, root.poAccession);
+        out.writeInt(root.order);
+        writeDate(out, root.date);
+
+        out.writeInt(root.properties.size());
+        for (Map.Entry<String, Double> property : root.properties.entrySet()) {
+            writeString(out, property.getKey());
+            out.writeDouble(property.getValue());
+        }
+
+        out.writeBoolean(root.geometry != null);
+        if (root.geometry != null) {
+            parser.writeGeometry(out, root.geometry);
+        }
+
+        out.writeInt(root.functions.size());
+        for (Map.Entry<String, List<Double>> function : root.functions.entrySet()) {
+            writeString(out, function.getKey());
+            writeDoubles(out, function.getValue());
+        }
+
+        out.writeInt(root.annotations.size());
+        for (Map<String, String> annotation : root.annotations) {
+            out.writeInt(annotation.size());
+            for (Map.Entry<String, String> attribute : annotation.entrySet()) {
+                writeString(out, attribute.getKey());
+                writeString(out, attribute.getValue());
+            }
+        }
+
+        out.writeInt(root.childRoots.size());
+        for (ParsedRsml.Root<G> child : root.childRoots) {
+            writeRoot(out, child, parser, indices);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDateTime date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(date.getNano());
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, List<Double> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (Double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Lecture des entrées
+    // ---------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Relit une entrée. Une entrée illisible ou corrompue est supprimée et traitée comme absente.
+     *
+     * @return Les données parsées, ou null si l'entrée est inutilisable.
+     */
+    private <G extends Geometry> ParsedRsml<G> readEntry(Entry entry, String filePath, RSMLParser<G> parser) {
+        Path file = directory.resolve(entry.fileName);
+        try {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+                throw new IOException("en-tête invalide");
+            }
+            String parserName = readString(in);
+            String absolutePath = readString(in);
+            in.position(in.position() + 2 * Long.BYTES + HASH_LENGTH);
+            if (!parserName.equals(entry.parserName) || !absolutePath.equals(entry.path)) {
+                throw new IOException("entrée d'un autre fichier");
+            }
+            int length = in.getInt();
+            int expectedCrc = in.getInt();
+            if (length != in.remaining()) {
+                throw new IOException("taille invalide");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("somme de contrôle invalide");
+            }
+            ParsedRsml<G> parsedData = readParsedRsml(in, filePath, parser);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return parsedData;
+        } catch (IOException | RuntimeException e) {
+            reportFailure(parser.getDiagnosticsSink(), filePath, "Entrée de cache inutilisable", e);
+            remove(entry, parser.getDiagnosticsSink());
+            return null;
+        }
+    }
+
+    private static <G extends Geometry> ParsedRsml<G> readParsedRsml(ByteBuffer in, String filePath, RSMLParser<G> parser) throws IOException {
+        ParsedRsml.Metadata metadata = readMetadata(in);
+
+        List<ParsedRsml.Root<G>> roots = new ArrayList<>();
+        int sceneCount = in.getInt();
+        List<ParsedRsml.Scene<G>> scenes = new ArrayList<>(sceneCount);
+        for (int s = 0; s < sceneCount; s++) {
+            ParsedRsml.Scene<G> scene = new ParsedRsml.Scene<>();
+            int plantCount = in.getInt();
+            for (int p = 0; p < plantCount; p++) {
+                ParsedRsml.Plant<G> plant = new ParsedRsml.Plant<>();
+                int rootCount = in.getInt();
+                for (int r = 0; r < rootCount; r++) {
+                    plant.roots.add(readRoot(in, parser, roots));
+                }
+                scene.plants.add(plant);
+            }
+            scenes.add(scene);
+        }
+
+        int flatCount = in.getInt();
+        List<ParsedRsml.Root<G>> flatRoots = new ArrayList<>(flatCount);
+        for (int i = 0; i < flatCount; i++) {
+            flatRoots.add(roots.get(in.getInt()));
+        }
+        if (in.hasRemaining()) {
+            throw new IOException("données en trop");
+        }
+        ParsedRsml<G> parsedData = new ParsedRsml<>(filePath, metadata, scenes, flatRoots);
+        parsedData.diagnostics = new ParseDiagnostics(filePath); // Les anomalies ont été signalées lors du parsing initial
+        return parsedData;
+    }
+
+    private static ParsedRsml.Metadata readMetadata(ByteBuffer in) throws IOException {
+        ParsedRsml.Metadata metadata = new ParsedRsml.Metadata();
+        metadata.version = readString(in);
+        metadata.unit = readString(in);
+        metadata.resolution = readString(in);
+        metadata.lastModified = readDate(in);
+        metadata.software = readString(in);
+        metadata.user = readString(in);
+        metadata.fileKey = readString(in);
+        metadata.observationHours = readDoubleList(in);
+        int definitionCount = in.getInt();
+        for (int i = 0; i < definitionCount; i++) {
+            ParsedRsml.PropertyDefinition definition = new ParsedRsml.PropertyDefinition();
+            definition.label = readString(in);
+            definition.type = readString(in);
+            definition.unit = readString(in);
+            metadata.propertyDefinitions.add(definition);
+        }
+        metadata.dateToUse = readDate(in);
+        return metadata;
+    }
+
+    private static <G extends Geometry> ParsedRsml.Root<G> readRoot(ByteBuffer in, RSMLParser<G> parser,
+                                                                    List<ParsedRsml.Root<G>> roots) throws IOException {
+        ParsedRsml.Root<G> root = new ParsedRsml.Root<>();
+        roots.add(root);
+        root.id = readString(in);
+        root.label = readString(in);
+        root.poAccession = readString(in);
+        root.order = in.getInt();
+        root.date = readDate(in);
+
+        int propertyCount = in.getInt();
+        if (propertyCount > 0) {
+            Map<String, Double> properties = new HashMap<>();
+            for (int i = 0; i < propertyCount; i++) {
+                properties.put(readString(in), in.getDouble());
+            }
+            root.properties = properties;
+        }
+
+        if (in.get() != 0) {
+            root.geometry = parser.readGeometry(in);
+            parser.completeGeometry(root.geometry, root.date);
+        }
+
+        int functionCount = in.getInt();
+        if (functionCount > 0) {
+            Map<String, List<Double>> functions = new HashMap<>();
+            for (int i = 0; i < functionCount; i++) {
+                functions.put(readString(in), readDoubleList(in));
+            }
+            root.functions = functions;
+        }
+
+        int annotationCount = in.getInt();
+        if (annotationCount > 0) {
+            List<Map<String, String>> annotations = new ArrayList<>(annotationCount);
+            for (int i = 0; i < annotationCount; i++) {
+                int attributeCount = in.getInt();
+                Map<String, String> annotation = new HashMap<>();
+                for (int j = 0; j < attributeCount; j++) {
+                    annotation.put(readString(in), readString(in));
+                }
+                annotations.add(annotation);
+            }
+            root.annotations = annotations;
+        }
+
+        int childCount = in.getInt();
+        if (childCount > 0) {
+            List<ParsedRsml.Root<G>> childRoots = new ArrayList<>(childCount);
+            for (int i = 0; i < childCount; i++) {
+                childRoots.add(readRoot(in, parser, roots));
+            }
+            root.childRoots = childRoots;
+        }
+        return root;
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IOException("chaîne tronquée");
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > 64 * 1024) {
+            throw new IOException("chaîne invalide");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime readDate(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static List<Double> readDoubleList(ByteBuffer in) {
+        int size = in.getInt();
+        if (size < 0) {
+            return null;
+        }
+        List<Double> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(in.getDouble());
+        }
+        return values;
+    }
+
+    /**
+     * Lit une colonne de doubles écrits avec {@link DataOutputStream#writeDouble(double)}, par copie en bloc.
+     *
+     * @param in   Tampon de lecture, positionné sur la colonne.
+     * @param size Nombre de valeurs de la colonne.
+     * @return Les valeurs de la colonne.
+     */
+    static double[] readDoubles(ByteBuffer in, int size) {
+        if (size < 0 || (long) size * Double.BYTES > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        double[] values = new double[size];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + size * Double.BYTES);
+        return values;
+    }
+
+    /**
+     * Description d'une entrée du cache, lue depuis son en-tête.
+     */
+    private static final class Entry {
+        String fileName;
+        String parserName;
+        String path;
+        long size;
+        volatile long modified;
+        byte[] contentHash;
+        long bytes;
+        long lastUsed;
+    }
+}
@@ -1,25 +1,41 @@
 package Parser;
 
+import RootModels.Root.Geometry.Geometry;
 import org.w3c.dom.*;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoField;
 import java.time.temporal.TemporalAccessor;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 /**
  * Classe abstraite pour le parsing des fichiers RSML.
  *
- * @param <T> Type générique pour représenter les données de points.
+ * @param <G> Type de géométrie construite pour chaque racine, remplie directement pendant le parsing.
  */
-public abstract class RSMLParser<T> {
+public abstract class RSMLParser<G extends Geometry> {
 
     // Liste des formats de date potentiels
     protected static final List<DateTimeFormatter> DATE_FORMATS = Arrays.asList(
@@ -35,17 +51,92 @@ public abstract class RSMLParser<T> {
             DateTimeFormatter.ISO_LOCAL_DATE_TIME
     );
 
+    // Fabrique StAX partagée (la création de lecteurs est thread-safe une fois configurée)
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    // Parsing en flux (StAX) par défaut, le DOM reste disponible en repli
+    private boolean streaming = true;
+
+    // Cache disque des résultats de parsing, null si désactivé
+    private volatile RSMLParseCache cache;
+
+    // Destination des rapports d'anomalies, null pour la destination par défaut
+    private volatile DiagnosticsSink diagnosticsSink;
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Indique si le parsing se fait en flux (StAX) ou via un Document DOM complet.
+     *
+     * @return true si le parsing en flux est utilisé.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Choisit le mode de parsing : en flux (StAX, par défaut) ou DOM (repli).
+     *
+     * @param streaming true pour le parsing en flux, false pour le parsing DOM.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Retourne le cache de parsing utilisé par ce parseur.
+     *
+     * @return Le cache, ou null si aucun cache n'est utilisé.
+     */
+    public RSMLParseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Choisit le cache de parsing utilisé par ce parseur. Un même cache peut être partagé entre plusieurs parseurs.
+     *
+     * @param cache Le cache, ou null pour parser systématiquement les fichiers.
+     */
+    public void setCache(RSMLParseCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Retourne la destination des rapports d'anomalies de ce parseur.
+     *
+     * @return La destination choisie, ou {@link ParseDiagnostics#getDefaultSink()} si aucune n'a été choisie.
+     */
+    public DiagnosticsSink getDiagnosticsSink() {
+        DiagnosticsSink sink = diagnosticsSink;
+        return sink != null ? sink : ParseDiagnostics.getDefaultSink();
+    }
+
+    /**
+     * Choisit la destination des rapports d'anomalies de ce parseur.
+     *
+     * @param diagnosticsSink La destination, ou null pour utiliser la destination par défaut.
+     */
+    public void setDiagnosticsSink(DiagnosticsSink diagnosticsSink) {
+        this.diagnosticsSink = diagnosticsSink;
+    }
+
     /**
      * Parse plusieurs fichiers RSML.
      *
      * @param filePaths Ensemble des chemins des fichiers RSML.
-     * @return Liste de maps contenant les données parsées de chaque fichier RSML.
+     * @return Liste des données parsées de chaque fichier RSML.
      * @throws Exception si une erreur survient durant le parsing.
      */
-    public List<Map<String, Object>> parseRsmlFiles(Set<String> filePaths) throws Exception {
-        List<Map<String, Object>> parsedFiles = new ArrayList<>();
+    public List<ParsedRsml<G>> parseRsmlFiles(Set<String> filePaths) throws Exception {
+        List<ParsedRsml<G>> parsedFiles = new ArrayList<>();
         for (String filePath : filePaths) {
-            Map<String, Object> parsedData = safeParseRsmlFile(filePath);
+            ParsedRsml<G> parsedData = safeParseRsmlFile(filePath);
             if (parsedData != null) {
                 parsedFiles.add(parsedData);
             }
@@ -53,90 +144,208 @@ public abstract class RSMLParser<T> {
         return parsedFiles;
     }
 
+    /**
+     * Parse plusieurs fichiers RSML en parallèle sur un ForkJoinPool dédié.
+     *
+     * @param filePaths   Ensemble des chemins des fichiers RSML.
+     * @param parallelism Nombre maximal de fichiers parsés simultanément.
+     * @return Liste des données parsées, dans l'ordre d'itération de filePaths.
+     * @throws Exception si une erreur non récupérable survient durant le parsing.
+     */
+    public List<ParsedRsml<G>> parseRsmlFiles(Set<String> filePaths, int parallelism) throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return parseRsmlFiles(filePaths, pool, parallelism);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parse plusieurs fichiers RSML en parallèle sur un exécuteur fourni par l'appelant
+     * (ForkJoinPool, pool fixe ou exécuteur de threads virtuels).
+     * Au plus maxConcurrency fichiers sont en cours de parsing à un instant donné, ce qui borne la mémoire
+     * utilisée même avec un exécuteur non borné. Les échecs sont isolés par fichier comme dans {@link #safeParseRsmlFile(String)}.
+     *
+     * @param filePaths      Ensemble des chemins des fichiers RSML.
+     * @param executor       Exécuteur sur lequel soumettre le parsing de chaque fichier.
+     * @param maxConcurrency Nombre maximal de fichiers parsés simultanément.
+     * @return Liste des données parsées, dans l'ordre d'itération de filePaths.
+     * @throws Exception si une erreur non récupérable survient durant le parsing.
+     */
+    public List<ParsedRsml<G>> parseRsmlFiles(Set<String> filePaths, ExecutorService executor, int maxConcurrency) throws Exception {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Le nombre de parsings simultanés doit être au moins 1: " + maxConcurrency);
+        }
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<Future<ParsedRsml<G>>> futures = new ArrayList<>(filePaths.size());
+        try {
+            for (String filePath : filePaths) {
+                permits.acquire();
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            return safeParseRsmlFile(filePath);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+
+            // Récupérer les résultats dans l'ordre de soumission pour un résultat déterministe
+            List<ParsedRsml<G>> parsedFiles = new ArrayList<>(futures.size());
+            for (Future<ParsedRsml<G>> future : futures) {
+                ParsedRsml<G> parsedData = future.get();
+                if (parsedData != null) {
+                    parsedFiles.add(parsedData);
+                }
+            }
+            return parsedFiles;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        } finally {
+            for (Future<ParsedRsml<G>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
     /**
      * Méthode auxiliaire pour gérer les exceptions lors du parsing d'un fichier RSML.
+     * L'erreur a déjà été transmise à la destination des rapports par {@link #parseRsmlFileUncached(String)}.
      *
      * @param filePath Chemin du fichier RSML.
-     * @return Map contenant les données parsées ou null en cas d'erreur.
+     * @return Données parsées ou null en cas d'erreur.
      */
-    private Map<String, Object> safeParseRsmlFile(String filePath) {
+    private ParsedRsml<G> safeParseRsmlFile(String filePath) {
         try {
             return parseRsmlFile(filePath);
         } catch (Exception e) {
-            System.err.println("Erreur lors du parsing du fichier: " + filePath);
-            e.printStackTrace();
             return null;
         }
     }
 
     /**
-     * Parse un seul fichier RSML.
+     * Parse un seul fichier RSML, en passant par le cache s'il y en a un.
      *
      * @param filePath Chemin vers le fichier RSML.
-     * @return Map contenant les données parsées du fichier RSML, ou null si le parsing échoue.
+     * @return Données parsées du fichier RSML, ou null si le parsing échoue.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
+    public ParsedRsml<G> parseRsmlFile(String filePath) throws Exception {
+        RSMLParseCache cache = this.cache;
+        return cache != null ? cache.parse(filePath, this) : parseRsmlFileUncached(filePath);
+    }
+
+    /**
+     * Parse un seul fichier RSML sans passer par le cache.
+     * Les anomalies rencontrées sont collectées dans un rapport, transmis à la destination des rapports à la fin du
+     * parsing s'il n'est pas vide ; une exception est transmise comme anomalie PARSE_FAILURE puis relancée.
+     *
+     * @param filePath Chemin vers le fichier RSML.
+     * @return Données parsées du fichier RSML, ou null si le parsing échoue.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
+    ParsedRsml<G> parseRsmlFileUncached(String filePath) throws Exception {
+        ParseDiagnostics diagnostics = new ParseDiagnostics(filePath);
+        try {
+            ParsedRsml<G> parsedData = streaming ? parseRsmlFileStreaming(filePath, diagnostics) : parseRsmlFileDom(filePath, diagnostics);
+            if (parsedData != null) {
+                parsedData.diagnostics = diagnostics;
+            }
+            return parsedData;
+        } catch (Exception e) {
+            diagnostics.report(ParseDiagnostics.Category.PARSE_FAILURE, null, -1, e.getMessage(), e);
+            throw e;
+        } finally {
+            if (!diagnostics.isEmpty()) {
+                getDiagnosticsSink().accept(diagnostics);
+            }
+        }
+    }
+
+    /**
+     * Parse un seul fichier RSML en construisant un Document DOM complet.
+     *
+     * @param filePath    Chemin vers le fichier RSML.
+     * @param diagnostics Rapport des anomalies du fichier.
+     * @return Données parsées du fichier RSML, ou null si le parsing échoue.
      * @throws Exception si une erreur survient durant le parsing.
      */
-    public Map<String, Object> parseRsmlFile(String filePath) throws Exception {
+    private ParsedRsml<G> parseRsmlFileDom(String filePath, ParseDiagnostics diagnostics) throws Exception {
         Document doc = parseXmlFile(filePath);
 
         // Extraire la date la plus ancienne à utiliser
-        LocalDateTime dateToUse = extractEarliestDate(doc, filePath);
+        LocalDateTime dateToUse = extractEarliestDate(doc, filePath, diagnostics);
 
         // Parser les métadonnées et inclure dateToUse
-        Map<String, Object> metadata = parseMetadata(doc);
-        metadata.put("dateToUse", dateToUse);
+        ParsedRsml.Metadata metadata = parseMetadata(doc, diagnostics);
+        metadata.dateToUse = dateToUse;
 
         // Vérifier s'il y a au moins une scène
         NodeList sceneNodes = doc.getElementsByTagName("scene");
         if (sceneNodes.getLength() == 0) {
-            System.err.println("Aucune scène trouvée dans le fichier RSML: " + filePath);
+            diagnostics.report(ParseDiagnostics.Category.NO_SCENE, null, null);
             return null;
         }
 
         // Liste pour collecter toutes les racines
-        List<Map<String, Object>> flatRoots = new ArrayList<>();
+        List<ParsedRsml.Root<G>> flatRoots = new ArrayList<>();
 
         // Parser les scènes et collecter les racines
-        List<Map<String, Object>> scenes = parseScenes(doc, flatRoots, dateToUse);
+        List<ParsedRsml.Scene<G>> scenes = parseScenes(doc, flatRoots, dateToUse, diagnostics);
+
+        return buildResult(metadata, scenes, flatRoots, dateToUse, diagnostics);
+    }
+
+    /**
+     * Vérifie les données parsées et construit le résultat commun aux modes DOM et flux.
+     *
+     * @param metadata  Métadonnées parsées.
+     * @param scenes    Scènes parsées.
+     * @param flatRoots Liste à plat de toutes les racines.
+     * @param dateToUse Date de capture retenue pour le fichier.
+     * @param diagnostics Rapport des anomalies du fichier.
+     * @return Données parsées, ou null si aucune racine valide n'a été trouvée.
+     */
+    private ParsedRsml<G> buildResult(ParsedRsml.Metadata metadata, List<ParsedRsml.Scene<G>> scenes,
+                                      List<ParsedRsml.Root<G>> flatRoots, LocalDateTime dateToUse, ParseDiagnostics diagnostics) {
+        String filePath = diagnostics.filePath;
 
         // Vérifier s'il y a au moins une plante et une racine avec une géométrie
         if (scenes.isEmpty() || flatRoots.isEmpty()) {
-            System.err.println("Aucune plante ou racine valide trouvée dans le fichier RSML: " + filePath);
+            diagnostics.report(ParseDiagnostics.Category.NO_VALID_ROOT, null, null);
             return null;
         }
 
         boolean hasValidRoot = false;
-        for (Map<String, Object> root : flatRoots) {
-            List<List<T>> geometry = (List<List<T>>) root.get("geometry");
-            if (geometry != null && !geometry.isEmpty()) {
-                for (List<T> polyline : geometry) {
-                    if (!polyline.isEmpty()) {
-                        hasValidRoot = true;
-                        break;
-                    }
-                }
-            }
-            if (hasValidRoot) {
+        for (ParsedRsml.Root<G> root : flatRoots) {
+            if (root.geometry != null && root.geometry.size() > 0) {
+                hasValidRoot = true;
                 break;
             }
         }
 
         if (!hasValidRoot) {
-            System.err.println("Aucune racine valide avec une géométrie trouvée dans le fichier RSML: " + filePath);
+            diagnostics.report(ParseDiagnostics.Category.NO_VALID_ROOT, null, null);
             return null;
         }
 
-        for (Map<String, Object> root : flatRoots) {
-            root.put("date", dateToUse);
+        for (ParsedRsml.Root<G> root : flatRoots) {
+            root.date = dateToUse;
+            completeGeometry(root.geometry, dateToUse);
         }
 
         // Construire le résultat final
-        Map<String, Object> result = new HashMap<>();
-        result.put("metadata", metadata);
-        result.put("scenes", scenes);
-        result.put("flatRoots", flatRoots);
-
-        return result;
+        return new ParsedRsml<>(filePath, metadata, scenes, flatRoots);
     }
 
     /**
@@ -157,92 +366,647 @@ public abstract class RSMLParser<T> {
         return doc;
     }
 
+    /**
+     * Parse un seul fichier RSML en un seul passage avec un lecteur StAX.
+     * La mémoire utilisée par le lecteur ne dépend pas de la taille du document.
+     *
+     * @param filePath    Chemin vers le fichier RSML.
+     * @param diagnostics Rapport des anomalies du fichier.
+     * @return Données parsées du fichier RSML, ou null si le parsing échoue.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
+    private ParsedRsml<G> parseRsmlFileStreaming(String filePath, ParseDiagnostics diagnostics) throws Exception {
+        File inputFile = new File(filePath);
+        if (!inputFile.exists()) {
+            throw new FileNotFoundException("Fichier RSML introuvable: " + filePath);
+        }
+
+        StreamContext ctx = new StreamContext(diagnostics);
+        ctx.dates.scan(inputFile.getName());
+        ParsedRsml.Metadata metadata = null;
+        List<ParsedRsml.Scene<G>> scenes = new ArrayList<>();
+        List<ParsedRsml.Root<G>> flatRoots = new ArrayList<>();
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(inputFile.toPath()))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            ctx.reader = reader;
+            try {
+                while (reader.hasNext()) {
+                    if (nextEvent(ctx) != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    String name = reader.getLocalName();
+                    if ("metadata".equals(name) && metadata == null) {
+                        metadata = parseMetadataStreaming(ctx);
+                    } else if ("scene".equals(name)) {
+                        scenes.add(parseSceneStreaming(ctx, flatRoots));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        if (metadata == null) {
+            diagnostics.report(ParseDiagnostics.Category.MISSING_METADATA, null, null);
+            metadata = new ParsedRsml.Metadata();
+        }
+
+        LocalDateTime dateToUse = earliestDateOrNow(ctx.dates, diagnostics);
+        metadata.dateToUse = dateToUse;
+
+        if (scenes.isEmpty()) {
+            diagnostics.report(ParseDiagnostics.Category.NO_SCENE, null, null);
+            return null;
+        }
+
+        return buildResult(metadata, scenes, flatRoots, dateToUse, diagnostics);
+    }
+
+    /**
+     * Détermine si un fichier RSML contient des données temporelles (2D+t) ou seulement des coordonnées 2D.
+     * Seul le début du fichier est lu, jusqu'au premier élément point : ses attributs coord_x ou coord_t désignent
+     * le format 2D+t, x et y le format 2D. Un fichier sans point est considéré comme 2D.
+     *
+     * @param filePath Chemin vers le fichier RSML.
+     * @return true si le fichier est au format 2D+t, false sinon.
+     * @throws Exception si le fichier est introuvable ou illisible.
+     */
+    public static boolean containsTimeData(String filePath) throws Exception {
+        File inputFile = new File(filePath);
+        if (!inputFile.exists()) {
+            throw new FileNotFoundException("Fichier RSML introuvable: " + filePath);
+        }
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(inputFile.toPath()))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "point".equals(reader.getLocalName())) {
+                        return reader.getAttributeValue(null, "coord_x") != null
+                                || reader.getAttributeValue(null, "coord_t") != null;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse l'élément metadata courant du flux.
+     *
+     * @param ctx Contexte du flux, positionné sur la balise ouvrante metadata.
+     * @return Les métadonnées parsées.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private ParsedRsml.Metadata parseMetadataStreaming(StreamContext ctx) throws XMLStreamException {
+        Map<String, String> childTexts = new HashMap<>();
+        List<ParsedRsml.PropertyDefinition> propertyDefinitions = new ArrayList<>();
+        boolean propertyDefinitionsSeen = false;
+
+        while (nextChildElement(ctx)) {
+            String name = ctx.reader.getLocalName();
+            if ("property-definitions".equals(name) && !propertyDefinitionsSeen) {
+                propertyDefinitionsSeen = true;
+                while (nextChildElement(ctx)) {
+                    if ("property-definition".equals(ctx.reader.getLocalName())) {
+                        propertyDefinitions.add(parsePropertyDefinitionStreaming(ctx));
+                    } else {
+                        skipElement(ctx);
+                    }
+                }
+            } else {
+                String text = readTextContent(ctx);
+                ctx.dates.scan(text);
+                childTexts.putIfAbsent(name, text);
+            }
+        }
+
+        ParsedRsml.Metadata metadata = new ParsedRsml.Metadata();
+        metadata.version = childTexts.getOrDefault("version", "-1");
+        metadata.unit = childTexts.getOrDefault("unit", "");
+        metadata.resolution = childTexts.getOrDefault("resolution", "-1");
+        metadata.lastModified = parseDate(childTexts.getOrDefault("last-modified", "today"));
+        metadata.software = childTexts.getOrDefault("software", "");
+        metadata.user = childTexts.getOrDefault("user", "");
+        metadata.fileKey = childTexts.getOrDefault("file-key", "");
+
+        String obsHours = childTexts.get("observation-hours");
+        if (obsHours != null) {
+            metadata.observationHours = parseObservationHours(obsHours, ctx.diagnostics);
+        }
+
+        metadata.propertyDefinitions = propertyDefinitions;
+        return metadata;
+    }
+
+    /**
+     * Parse une définition de propriété depuis le flux.
+     *
+     * @param ctx Contexte du flux, positionné sur la balise ouvrante property-definition.
+     * @return La définition de la propriété.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private ParsedRsml.PropertyDefinition parsePropertyDefinitionStreaming(StreamContext ctx) throws XMLStreamException {
+        ParsedRsml.PropertyDefinition propDef = new ParsedRsml.PropertyDefinition();
+        Set<String> seen = new HashSet<>();
+        while (nextChildElement(ctx)) {
+            String name = ctx.reader.getLocalName();
+            String text = readTextContent(ctx);
+            if (!seen.add(name)) {
+                continue;
+            }
+            switch (name) {
+                case "label":
+                    propDef.label = text;
+                    break;
+                case "type":
+                    propDef.type = text;
+                    break;
+                case "unit":
+                    propDef.unit = text;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return propDef;
+    }
+
+    /**
+     * Parse une scène depuis le flux.
+     *
+     * @param ctx       Contexte du flux, positionné sur la balise ouvrante scene.
+     * @param flatRoots Liste pour collecter toutes les racines.
+     * @return Les données de la scène.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private ParsedRsml.Scene<G> parseSceneStreaming(StreamContext ctx, List<ParsedRsml.Root<G>> flatRoots) throws XMLStreamException {
+        ParsedRsml.Scene<G> scene = new ParsedRsml.Scene<>();
+        while (nextChildElement(ctx)) {
+            if ("plant".equals(ctx.reader.getLocalName())) {
+                scene.plants.add(parsePlantStreaming(ctx, flatRoots));
+            } else {
+                skipElement(ctx);
+            }
+        }
+        return scene;
+    }
+
+    /**
+     * Parse une plante depuis le flux.
+     *
+     * @param ctx       Contexte du flux, positionné sur la balise ouvrante plant.
+     * @param flatRoots Liste pour collecter toutes les racines.
+     * @return Les données de la plante.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private ParsedRsml.Plant<G> parsePlantStreaming(StreamContext ctx, List<ParsedRsml.Root<G>> flatRoots) throws XMLStreamException {
+        ParsedRsml.Plant<G> plant = new ParsedRsml.Plant<>();
+        while (nextChildElement(ctx)) {
+            if ("root".equals(ctx.reader.getLocalName())) {
+                plant.roots.add(parseRootStreaming(ctx, flatRoots, 1));
+            } else {
+                skipElement(ctx);
+            }
+        }
+        return plant;
+    }
+
+    /**
+     * Parse une racine et ses racines enfants depuis le flux.
+     * Comme en mode DOM, une racine sans géométrie est conservée sans enfants et n'est pas ajoutée à flatRoots.
+     *
+     * @param ctx       Contexte du flux, positionné sur la balise ouvrante root.
+     * @param flatRoots Liste pour collecter toutes les racines.
+     * @param order     Ordre de la racine (1 pour une racine primaire).
+     * @return Les données de la racine.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private ParsedRsml.Root<G> parseRootStreaming(StreamContext ctx, List<ParsedRsml.Root<G>> flatRoots, int order) throws XMLStreamException {
+        XMLStreamReader reader = ctx.reader;
+        String id = getAttribute(reader, "ID");
+
+        ParsedRsml.Root<G> root = new ParsedRsml.Root<>();
+        root.id = id;
+        root.label = getAttribute(reader, "label");
+        root.poAccession = getAttribute(reader, "po:accession");
+
+        Map<String, Double> properties = null;
+        G geometry = null;
+        Map<String, List<Double>> functions = new HashMap<>();
+        List<Map<String, String>> annotations = new ArrayList<>();
+        List<ParsedRsml.Root<G>> childRoots = new ArrayList<>();
+        // Les racines descendantes ne sont retenues que si cette racine possède une géométrie
+        List<ParsedRsml.Root<G>> subtreeRoots = new ArrayList<>();
+
+        while (nextChildElement(ctx)) {
+            switch (reader.getLocalName()) {
+                case "properties":
+                    if (properties == null) {
+                        properties = parsePropertiesStreaming(ctx, id);
+                    } else {
+                        skipElement(ctx);
+                    }
+                    break;
+                case "geometry":
+                    if (geometry == null) {
+                        geometry = createGeometry();
+                    }
+                    parseGeometryStreaming(ctx, id, geometry);
+                    break;
+                case "functions":
+                    while (nextChildElement(ctx)) {
+                        if ("function".equals(reader.getLocalName())) {
+                            parseFunctionStreaming(ctx, id, functions);
+                        } else {
+                            skipElement(ctx);
+                        }
+                    }
+                    break;
+                case "function":
+                    parseFunctionStreaming(ctx, id, functions);
+                    break;
+                case "annotations":
+                    while (nextChildElement(ctx)) {
+                        if ("annotation".equals(reader.getLocalName())) {
+                            annotations.add(parseAnnotationStreaming(ctx));
+                        } else {
+                            skipElement(ctx);
+                        }
+                    }
+                    break;
+                case "annotation":
+                    annotations.add(parseAnnotationStreaming(ctx));
+                    break;
+                case "root":
+                    childRoots.add(parseRootStreaming(ctx, subtreeRoots, order + 1));
+                    break;
+                default:
+                    skipElement(ctx);
+                    break;
+            }
+        }
+
+        if (properties != null && !properties.isEmpty()) {
+            root.properties = properties;
+        }
+
+        if (geometry == null || geometry.size() == 0) {
+            ctx.diagnostics.report(ParseDiagnostics.Category.MISSING_GEOMETRY, id, reader.getLocation().getLineNumber(), null, null);
+            return root; // Ignorer les racines sans géométrie
+        }
+        root.geometry = geometry;
+
+        if (!functions.isEmpty()) {
+            root.functions = functions;
+        }
+        if (!annotations.isEmpty()) {
+            root.annotations = annotations;
+        }
+        if (!childRoots.isEmpty()) {
+            root.childRoots = childRoots;
+        }
+        root.order = order;
+
+        flatRoots.addAll(subtreeRoots);
+        flatRoots.add(root);
+        return root;
+    }
+
+    /**
+     * Parse les propriétés d'une racine depuis le flux.
+     *
+     * @param ctx    Contexte du flux, positionné sur la balise ouvrante properties.
+     * @param rootId ID de la racine, pour les messages d'erreur.
+     * @return Map des propriétés.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private Map<String, Double> parsePropertiesStreaming(StreamContext ctx, String rootId) throws XMLStreamException {
+        Map<String, Double> properties = new HashMap<>();
+        while (nextChildElement(ctx)) {
+            String name = ctx.reader.getLocalName();
+            String text = readTextContent(ctx);
+            Optional<Double> valueOpt = parseDouble(text);
+            if (valueOpt.isPresent()) {
+                properties.put(name, valueOpt.get());
+            } else {
+                ctx.diagnostics.report(ParseDiagnostics.Category.INVALID_PROPERTY, rootId, ctx.reader.getLocation().getLineNumber(),
+                        name + " = '" + text + "'", null);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Parse un élément geometry depuis le flux et ajoute les points de ses polylignes à la géométrie de la racine.
+     *
+     * @param ctx      Contexte du flux, positionné sur la balise ouvrante geometry.
+     * @param rootId   ID de la racine, pour les messages d'erreur.
+     * @param geometry Géométrie à compléter.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private void parseGeometryStreaming(StreamContext ctx, String rootId, G geometry) throws XMLStreamException {
+        while (nextChildElement(ctx)) {
+            if (!"polyline".equals(ctx.reader.getLocalName())) {
+                skipElement(ctx);
+                continue;
+            }
+            while (nextChildElement(ctx)) {
+                if ("point".equals(ctx.reader.getLocalName()) && !parsePoint(ctx.reader, geometry)) {
+                    ctx.diagnostics.report(ParseDiagnostics.Category.INVALID_POINT, rootId, ctx.reader.getLocation().getLineNumber(), null, null);
+                }
+                skipElement(ctx);
+            }
+        }
+    }
+
+    /**
+     * Parse une fonction depuis le flux et l'ajoute à la map des fonctions si elle contient des échantillons.
+     *
+     * @param ctx       Contexte du flux, positionné sur la balise ouvrante function.
+     * @param rootId    ID de la racine, pour les messages d'erreur.
+     * @param functions Map des fonctions à compléter.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private void parseFunctionStreaming(StreamContext ctx, String rootId, Map<String, List<Double>> functions) throws XMLStreamException {
+        String functionName = getAttribute(ctx.reader, "name");
+        List<Double> samples = new ArrayList<>();
+        while (nextChildElement(ctx)) {
+            if (!"sample".equals(ctx.reader.getLocalName())) {
+                skipElement(ctx);
+                continue;
+            }
+            String text = readTextContent(ctx);
+            Optional<Double> sampleValueOpt = parseDouble(text);
+            if (sampleValueOpt.isPresent()) {
+                samples.add(sampleValueOpt.get());
+            } else {
+                ctx.diagnostics.report(ParseDiagnostics.Category.INVALID_SAMPLE, rootId, ctx.reader.getLocation().getLineNumber(),
+                        functionName + " = '" + text + "'", null);
+            }
+        }
+        if (!samples.isEmpty()) {
+            functions.put(functionName, samples);
+        }
+    }
+
+    /**
+     * Parse une annotation depuis le flux.
+     *
+     * @param ctx Contexte du flux, positionné sur la balise ouvrante annotation.
+     * @return Map représentant l'annotation.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private Map<String, String> parseAnnotationStreaming(StreamContext ctx) throws XMLStreamException {
+        Map<String, String> annotation = new HashMap<>();
+        annotation.put("name", getAttribute(ctx.reader, "name"));
+        while (nextChildElement(ctx)) {
+            String name = ctx.reader.getLocalName();
+            annotation.put(name, readTextContent(ctx));
+        }
+        return annotation;
+    }
+
+    /**
+     * Méthode abstraite pour créer une géométrie vide, remplie ensuite point par point.
+     *
+     * @return Une nouvelle géométrie vide.
+     */
+    protected abstract G createGeometry();
+
+    /**
+     * Méthode abstraite pour parser un point depuis le flux et l'ajouter à la géométrie.
+     * Le lecteur est positionné sur la balise ouvrante point et ne doit pas être avancé.
+     *
+     * @param reader   Lecteur StAX positionné sur un élément point.
+     * @param geometry Géométrie à laquelle ajouter le point s'il est valide.
+     * @return false si le point est invalide ; l'anomalie est alors signalée par l'appelant.
+     */
+    protected abstract boolean parsePoint(XMLStreamReader reader, G geometry);
+
+    /**
+     * Méthode abstraite pour finaliser la géométrie d'une racine une fois la date de capture du fichier connue.
+     *
+     * @param geometry  Géométrie de la racine.
+     * @param dateToUse Date de capture retenue pour le fichier.
+     */
+    protected abstract void completeGeometry(G geometry, LocalDateTime dateToUse);
+
+    /**
+     * Écrit une géométrie dans une entrée du cache de parsing.
+     *
+     * @param out      Flux de sortie.
+     * @param geometry Géométrie à écrire.
+     * @throws IOException si l'écriture échoue.
+     */
+    protected abstract void writeGeometry(DataOutputStream out, G geometry) throws IOException;
+
+    /**
+     * Relit une géométrie écrite par {@link #writeGeometry(DataOutputStream, Geometry)}.
+     * La géométrie est ensuite complétée par {@link #completeGeometry(Geometry, LocalDateTime)}.
+     *
+     * @param in Tampon de lecture, positionné sur la géométrie.
+     * @return La géométrie.
+     */
+    protected abstract G readGeometry(ByteBuffer in);
+
+    /**
+     * Obtient la valeur d'un attribut de l'élément courant, avec la même sémantique que {@link Element#getAttribute(String)}.
+     * Le nom peut être préfixé (ex. "po:accession").
+     *
+     * @param reader Lecteur StAX positionné sur une balise ouvrante.
+     * @param name   Nom qualifié de l'attribut.
+     * @return La valeur de l'attribut, ou une chaîne vide s'il est absent.
+     */
+    protected static String getAttribute(XMLStreamReader reader, String name) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String prefix = reader.getAttributePrefix(i);
+            String localName = reader.getAttributeLocalName(i);
+            String qualifiedName = prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+            if (name.equals(qualifiedName)) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Avance le flux d'un événement, en transmettant les attributs de chaque balise ouvrante au détecteur de dates.
+     *
+     * @param ctx Contexte du flux.
+     * @return Le type de l'événement courant.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private int nextEvent(StreamContext ctx) throws XMLStreamException {
+        int event = ctx.reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+            XMLStreamReader reader = ctx.reader;
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                ctx.dates.scanAttribute(reader.getAttributeValue(i));
+            }
+        }
+        return event;
+    }
+
+    /**
+     * Avance jusqu'au prochain élément enfant direct de l'élément courant.
+     *
+     * @param ctx Contexte du flux, positionné sur la balise ouvrante du parent ou sur la fin d'un enfant.
+     * @return true si le lecteur est sur la balise ouvrante d'un enfant, false s'il est sur la balise fermante du parent.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private boolean nextChildElement(StreamContext ctx) throws XMLStreamException {
+        while (ctx.reader.hasNext()) {
+            int event = nextEvent(ctx);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Consomme l'élément courant et tous ses descendants.
+     *
+     * @param ctx Contexte du flux, positionné sur une balise ouvrante.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private void skipElement(StreamContext ctx) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && ctx.reader.hasNext()) {
+            int event = nextEvent(ctx);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Lit le contenu textuel de l'élément courant et de ses descendants, comme {@link Node#getTextContent()}.
+     *
+     * @param ctx Contexte du flux, positionné sur une balise ouvrante.
+     * @return Le contenu textuel concaténé.
+     * @throws XMLStreamException si le flux est invalide.
+     */
+    private String readTextContent(StreamContext ctx) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0 && ctx.reader.hasNext()) {
+            int event = nextEvent(ctx);
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                text.append(ctx.reader.getText());
+            }
+        }
+        return text.toString();
+    }
+
     /**
      * Parse les métadonnées du fichier RSML.
      *
-     * @param doc Objet Document du fichier RSML.
-     * @return Map contenant les métadonnées.
+     * @param doc         Objet Document du fichier RSML.
+     * @param diagnostics Rapport des anomalies du fichier.
+     * @return Les métadonnées parsées.
      */
-    private Map<String, Object> parseMetadata(Document doc) {
+    private ParsedRsml.Metadata parseMetadata(Document doc, ParseDiagnostics diagnostics) {
+        ParsedRsml.Metadata metadata = new ParsedRsml.Metadata();
         Node metadataNode = doc.getElementsByTagName("metadata").item(0);
         if (metadataNode == null) {
-            System.err.println("Élément metadata introuvable dans le fichier RSML.");
-            return Collections.emptyMap();
+            diagnostics.report(ParseDiagnostics.Category.MISSING_METADATA, null, null);
+            return metadata;
         }
 
         Element metadataElement = (Element) metadataNode;
-        Map<String, Object> metadata = new HashMap<>();
 
-        metadata.put("version", getTextContent(metadataElement, "version").orElse("-1"));
-        metadata.put("unit", getTextContent(metadataElement, "unit").orElse(""));
-        metadata.put("resolution", getTextContent(metadataElement, "resolution").orElse("-1"));
-        metadata.put("lastModified", parseDate(getTextContent(metadataElement, "last-modified").orElse("today")));
-        metadata.put("software", getTextContent(metadataElement, "software").orElse(""));
-        metadata.put("user", getTextContent(metadataElement, "user").orElse(""));
-        metadata.put("fileKey", getTextContent(metadataElement, "file-key").orElse(""));
+        metadata.version = getTextContent(metadataElement, "version").orElse("-1");
+        metadata.unit = getTextContent(metadataElement, "unit").orElse("");
+        metadata.resolution = getTextContent(metadataElement, "resolution").orElse("-1");
+        metadata.lastModified = parseDate(getTextContent(metadataElement, "last-modified").orElse("today"));
+        metadata.software = getTextContent(metadataElement, "software").orElse("");
+        metadata.user = getTextContent(metadataElement, "user").orElse("");
+        metadata.fileKey = getTextContent(metadataElement, "file-key").orElse("");
 
         Optional<String> obsHoursOptional = getTextContent(metadataElement, "observation-hours");
-        if (obsHoursOptional.isPresent()) {
-            String obsHours = obsHoursOptional.get();
-            List<Double> observationHours = new ArrayList<>();
-            observationHours.add(0d);
-            String[] hoursArray = obsHours.split(",");
-            for (String hourStr : hoursArray) {
-                Optional<Double> hourOpt = parseDouble(hourStr.trim());
-                hourOpt.ifPresent(observationHours::add);
-            }
-            Collections.sort(observationHours);
-            metadata.put("observationHours", observationHours);
-        }
+        obsHoursOptional.ifPresent(obsHours -> metadata.observationHours = parseObservationHours(obsHours, diagnostics));
 
         // Extraire les définitions de propriétés
         NodeList propDefsNodes = metadataElement.getElementsByTagName("property-definitions");
-        List<Map<String, String>> propertyDefinitions = new ArrayList<>();
 
         if (propDefsNodes.getLength() > 0) {
             Element propDefsElement = (Element) propDefsNodes.item(0);
             NodeList propertyDefs = propDefsElement.getElementsByTagName("property-definition");
             for (int i = 0; i < propertyDefs.getLength(); i++) {
                 Element propDefElement = (Element) propertyDefs.item(i);
-                Map<String, String> propDef = parsePropertyDefinition(propDefElement);
-                propertyDefinitions.add(propDef);
+                metadata.propertyDefinitions.add(parsePropertyDefinition(propDefElement));
             }
         }
 
-        metadata.put("propertyDefinitions", propertyDefinitions);
-
         return metadata;
     }
 
+    /**
+     * Parse la liste des heures d'observation, en ajoutant l'heure 0 et en la triant.
+     *
+     * @param obsHours    Heures d'observation séparées par des virgules.
+     * @param diagnostics Rapport des anomalies du fichier.
+     * @return Liste triée des heures d'observation.
+     */
+    private List<Double> parseObservationHours(String obsHours, ParseDiagnostics diagnostics) {
+        List<Double> observationHours = new ArrayList<>();
+        observationHours.add(0d);
+        for (String hourStr : obsHours.split(",")) {
+            Optional<Double> hourOpt = parseDouble(hourStr.trim());
+            if (hourOpt.isPresent()) {
+                observationHours.add(hourOpt.get());
+            } else {
+                diagnostics.report(ParseDiagnostics.Category.INVALID_METADATA, null, "observation-hours = '" + hourStr.trim() + "'");
+            }
+        }
+        Collections.sort(observationHours);
+        return observationHours;
+    }
+
     /**
      * Parse une définition de propriété.
      *
      * @param propDefElement Élément représentant une définition de propriété.
-     * @return Map contenant la définition de la propriété.
+     * @return La définition de la propriété.
      */
-    private Map<String, String> parsePropertyDefinition(Element propDefElement) {
-        Map<String, String> propDef = new HashMap<>();
-        propDef.put("label", getTextContent(propDefElement, "label").orElse("Unknown"));
-        propDef.put("type", getTextContent(propDefElement, "type").orElse("Unknown"));
-        propDef.put("unit", getTextContent(propDefElement, "unit").orElse("Unknown"));
+    private ParsedRsml.PropertyDefinition parsePropertyDefinition(Element propDefElement) {
+        ParsedRsml.PropertyDefinition propDef = new ParsedRsml.PropertyDefinition();
+        propDef.label = getTextContent(propDefElement, "label").orElse("Unknown");
+        propDef.type = getTextContent(propDefElement, "type").orElse("Unknown");
+        propDef.unit = getTextContent(propDefElement, "unit").orElse("Unknown");
         return propDef;
     }
 
     /**
      * Parse les scènes du fichier RSML.
      *
-     * @param doc       Objet Document du fichier RSML.
-     * @param flatRoots Liste pour collecter toutes les racines.
-     * @param dateToUse Date à utiliser pour la capture (dans le cas 2D).
-     * @return Liste de maps représentant les scènes.
+     * @param doc         Objet Document du fichier RSML.
+     * @param flatRoots   Liste pour collecter toutes les racines.
+     * @param dateToUse   Date à utiliser pour la capture (dans le cas 2D).
+     * @param diagnostics Rapport des anomalies du fichier.
+     * @return Liste des scènes.
      */
-    private List<Map<String, Object>> parseScenes(Document doc, List<Map<String, Object>> flatRoots, LocalDateTime dateToUse) {
+    private List<ParsedRsml.Scene<G>> parseScenes(Document doc, List<ParsedRsml.Root<G>> flatRoots, LocalDateTime dateToUse,
+                                                  ParseDiagnostics diagnostics) {
         NodeList sceneNodes = doc.getElementsByTagName("scene");
-        List<Map<String, Object>> scenes = new ArrayList<>();
+        List<ParsedRsml.Scene<G>> scenes = new ArrayList<>();
         for (int i = 0; i < sceneNodes.getLength(); i++) {
             Element sceneElement = (Element) sceneNodes.item(i);
-            Map<String, Object> scene = parseScene(sceneElement, flatRoots, dateToUse);
-            scenes.add(scene);
+            scenes.add(parseScene(sceneElement, flatRoots, dateToUse, diagnostics));
         }
         return scenes;
     }
@@ -253,11 +1017,13 @@ public abstract class RSMLParser<T> {
      * @param sceneElement Élément représentant une scène.
      * @param flatRoots    Liste pour collecter toutes les racines.
      * @param dateToUse    Date à utiliser pour la capture (dans le cas 2D).
-     * @return Map contenant les données de la scène.
+     * @param diagnostics  Rapport des anomalies du fichier.
+     * @return Les données de la scène.
      */
-    private Map<String, Object> parseScene(Element sceneElement, List<Map<String, Object>> flatRoots, LocalDateTime dateToUse) {
-        Map<String, Object> scene = new HashMap<>();
-        scene.put("plants", parsePlants(sceneElement, flatRoots, dateToUse));
+    private ParsedRsml.Scene<G> parseScene(Element sceneElement, List<ParsedRsml.Root<G>> flatRoots, LocalDateTime dateToUse,
+                                           ParseDiagnostics diagnostics) {
+        ParsedRsml.Scene<G> scene = new ParsedRsml.Scene<>();
+        scene.plants.addAll(parsePlants(sceneElement, flatRoots, dateToUse, diagnostics));
         return scene;
     }
 
@@ -267,15 +1033,14 @@ public abstract class RSMLParser<T> {
      * @param sceneElement Élément représentant une scène.
      * @param flatRoots    Liste pour collecter toutes les racines.
      * @param dateToUse    Date à utiliser pour la capture (dans le cas 2D).
-     * @return Liste de maps des données des plantes.
+     * @param diagnostics  Rapport des anomalies du fichier.
+     * @return Liste des données des plantes.
      */
-    private List<Map<String, Object>> parsePlants(Element sceneElement, List<Map<String, Object>> flatRoots, LocalDateTime dateToUse) {
-        NodeList plantNodes = sceneElement.getElementsByTagName("plant");
-        List<Map<String, Object>> plants = new ArrayList<>();
-        for (int i = 0; i < plantNodes.getLength(); i++) {
-            Element plantElement = (Element) plantNodes.item(i);
-            Map<String, Object> plant = parsePlant(plantElement, flatRoots, dateToUse);
-            plants.add(plant);
+    private List<ParsedRsml.Plant<G>> parsePlants(Element sceneElement, List<ParsedRsml.Root<G>> flatRoots, LocalDateTime dateToUse,
+                                                  ParseDiagnostics diagnostics) {
+        List<ParsedRsml.Plant<G>> plants = new ArrayList<>();
+        for (Element plantElement : getChildElements(sceneElement, "plant")) {
+            plants.add(parsePlant(plantElement, flatRoots, dateToUse, diagnostics));
         }
         return plants;
     }
@@ -286,31 +1051,33 @@ public abstract class RSMLParser<T> {
      * @param plantElement Élément représentant une plante.
      * @param flatRoots    Liste pour collecter toutes les racines.
      * @param dateToUse    Date à utiliser pour la capture (dans le cas 2D).
-     * @return Map contenant les données de la plante.
+     * @param diagnostics  Rapport des anomalies du fichier.
+     * @return Les données de la plante.
      */
-    private Map<String, Object> parsePlant(Element plantElement, List<Map<String, Object>> flatRoots, LocalDateTime dateToUse) {
-        Map<String, Object> plant = new HashMap<>();
-        plant.put("roots", parseRoots(plantElement, flatRoots, dateToUse));
+    private ParsedRsml.Plant<G> parsePlant(Element plantElement, List<ParsedRsml.Root<G>> flatRoots, LocalDateTime dateToUse,
+                                           ParseDiagnostics diagnostics) {
+        ParsedRsml.Plant<G> plant = new ParsedRsml.Plant<>();
+        plant.roots.addAll(parseRoots(plantElement, flatRoots, dateToUse, 1, diagnostics));
         return plant;
     }
 
     /**
-     * Parse les racines d'un élément parent.
+     * Parse les racines enfants directes d'un élément parent.
+     * Seuls les enfants directs sont parcourus et l'ordre est transmis pendant la descente,
+     * de sorte que le coût reste linéaire en nombre de racines quelle que soit la profondeur de la hiérarchie.
      *
      * @param parentElement Élément contenant des éléments racine (plante ou racine).
      * @param flatRoots     Liste pour collecter toutes les racines.
      * @param dateToUse     Date à utiliser pour la capture (dans le cas 2D).
-     * @return Liste de maps représentant les racines.
+     * @param order         Ordre des racines enfants (1 pour les racines primaires d'une plante).
+     * @param diagnostics   Rapport des anomalies du fichier.
+     * @return Liste des racines.
      */
-    private List<Map<String, Object>> parseRoots(Element parentElement, List<Map<String, Object>> flatRoots, LocalDateTime dateToUse) {
-        NodeList rootNodes = parentElement.getElementsByTagName("root");
-        List<Map<String, Object>> roots = new ArrayList<>();
-        for (int i = 0; i < rootNodes.getLength(); i++) {
-            Element rootElement = (Element) rootNodes.item(i);
-            if (rootElement.getParentNode().equals(parentElement)) {
-                Map<String, Object> root = parseRoot(rootElement, flatRoots, dateToUse);
-                roots.add(root);
-            }
+    private List<ParsedRsml.Root<G>> parseRoots(Element parentElement, List<ParsedRsml.Root<G>> flatRoots, LocalDateTime dateToUse, int order,
+                                                ParseDiagnostics diagnostics) {
+        List<ParsedRsml.Root<G>> roots = new ArrayList<>();
+        for (Element rootElement : getChildElements(parentElement, "root")) {
+            roots.add(parseRoot(rootElement, flatRoots, dateToUse, order, diagnostics));
         }
         return roots;
     }
@@ -321,48 +1088,42 @@ public abstract class RSMLParser<T> {
      * @param rootElement Élément représentant une racine.
      * @param flatRoots   Liste pour collecter toutes les racines.
      * @param dateToUse   Date à utiliser pour la capture (dans le cas 2D).
-     * @return Map contenant les données de la racine.
+     * @param order       Ordre de la racine (1 pour une racine primaire).
+     * @param diagnostics Rapport des anomalies du fichier.
+     * @return Les données de la racine.
      */
-    private Map<String, Object> parseRoot(Element rootElement, List<Map<String, Object>> flatRoots, LocalDateTime dateToUse) {
-        Map<String, Object> root = new HashMap<>();
-        root.put("ID", rootElement.getAttribute("ID"));
-        root.put("label", rootElement.getAttribute("label"));
-        root.put("po:accession", rootElement.getAttribute("po:accession"));
+    private ParsedRsml.Root<G> parseRoot(Element rootElement, List<ParsedRsml.Root<G>> flatRoots, LocalDateTime dateToUse, int order,
+                                         ParseDiagnostics diagnostics) {
+        ParsedRsml.Root<G> root = new ParsedRsml.Root<>();
+        root.id = rootElement.getAttribute("ID");
+        root.label = rootElement.getAttribute("label");
+        root.poAccession = rootElement.getAttribute("po:accession");
 
         // Parser les propriétés
-        Optional<Map<String, Double>> propertiesOpt = parseProperties(rootElement);
-        if (propertiesOpt.isPresent()) {
-            root.put("properties", propertiesOpt.get());
-        }
+        parseProperties(rootElement, diagnostics).ifPresent(properties -> root.properties = properties);
 
         // Parser la géométrie
-        List<List<T>> geometry = parseGeometry(rootElement, dateToUse);
-        if (geometry.isEmpty()) {
-            System.err.println("Aucune géométrie trouvée pour la racine ID: " + rootElement.getAttribute("ID"));
+        G geometry = parseGeometry(rootElement, dateToUse, diagnostics);
+        if (geometry.size() == 0) {
+            diagnostics.report(ParseDiagnostics.Category.MISSING_GEOMETRY, root.id, null);
             return root; // Ignorer les racines sans géométrie
         }
-        root.put("geometry", geometry);
+        root.geometry = geometry;
 
         // Parser les fonctions
-        Optional<Map<String, List<Double>>> functionsOpt = parseFunctions(rootElement);
-        if (functionsOpt.isPresent()) {
-            root.put("functions", functionsOpt.get());
-        }
+        parseFunctions(rootElement, diagnostics).ifPresent(functions -> root.functions = functions);
 
         // Parser les annotations
-        Optional<List<Map<String, String>>> annotationsOpt = parseAnnotations(rootElement);
-        if (annotationsOpt.isPresent()) {
-            root.put("annotations", annotationsOpt.get());
-        }
+        parseAnnotations(rootElement).ifPresent(annotations -> root.annotations = annotations);
 
         // Parser les racines enfants
-        List<Map<String, Object>> childRoots = parseRoots(rootElement, flatRoots, dateToUse);
+        List<ParsedRsml.Root<G>> childRoots = parseRoots(rootElement, flatRoots, dateToUse, order + 1, diagnostics);
         if (!childRoots.isEmpty()) {
-            root.put("childRoots", childRoots);
+            root.childRoots = childRoots;
         }
 
         // Assigner l'ordre de la racine (e.g., primaire, secondaire)
-        root.put("order", getRootOrder(rootElement));
+        root.order = order;
 
         // Ajouter la racine à la liste flatRoots
         flatRoots.add(root);
@@ -374,26 +1135,29 @@ public abstract class RSMLParser<T> {
      * Parse les propriétés d'un élément racine.
      *
      * @param rootElement Élément représentant une racine.
+     * @param diagnostics Rapport des anomalies du fichier.
      * @return Optional contenant une Map des propriétés.
      */
-    private Optional<Map<String, Double>> parseProperties(Element rootElement) {
-        NodeList propertiesList = rootElement.getElementsByTagName("properties");
-        if (propertiesList.getLength() == 0) {
+    private Optional<Map<String, Double>> parseProperties(Element rootElement, ParseDiagnostics diagnostics) {
+        List<Element> propertiesList = getChildElements(rootElement, "properties");
+        if (propertiesList.isEmpty()) {
             return Optional.empty();
         }
 
-        Element propertiesElement = (Element) propertiesList.item(0);
+        Element propertiesElement = propertiesList.get(0);
         NodeList propertyNodes = propertiesElement.getChildNodes();
 
         Map<String, Double> properties = new HashMap<>();
         for (int i = 0; i < propertyNodes.getLength(); i++) {
             Node node = propertyNodes.item(i);
             if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Optional<Double> valueOpt = parseDouble(node.getTextContent());
+                String text = node.getTextContent();
+                Optional<Double> valueOpt = parseDouble(text);
                 if (valueOpt.isPresent()) {
                     properties.put(node.getNodeName(), valueOpt.get());
                 } else {
-                    System.err.println("Valeur de propriété invalide pour " + node.getNodeName() + " dans la racine ID: " + rootElement.getAttribute("ID"));
+                    diagnostics.report(ParseDiagnostics.Category.INVALID_PROPERTY, rootElement.getAttribute("ID"),
+                            node.getNodeName() + " = '" + text + "'");
                 }
             }
         }
@@ -405,36 +1169,38 @@ public abstract class RSMLParser<T> {
      *
      * @param rootElement Élément représentant une racine.
      * @param dateToUse   Date à utiliser pour la capture (dans le cas 2D).
-     * @return Liste de polylignes, où chaque polyligne est une liste d'objets de type T.
+     * @param diagnostics Rapport des anomalies du fichier, pour signaler les points invalides.
+     * @return La géométrie de la racine, vide si aucun point valide n'a été trouvé.
      */
-    protected abstract List<List<T>> parseGeometry(Element rootElement, LocalDateTime dateToUse);
+    protected abstract G parseGeometry(Element rootElement, LocalDateTime dateToUse, ParseDiagnostics diagnostics);
 
     /**
-     * Parse les fonctions d'un élément racine.
+     * Parse les fonctions d'un élément racine, placées directement sous la racine ou dans un élément functions.
      *
      * @param rootElement Élément représentant une racine.
+     * @param diagnostics Rapport des anomalies du fichier.
      * @return Optional contenant une Map des fonctions.
      */
-    private Optional<Map<String, List<Double>>> parseFunctions(Element rootElement) {
-        NodeList functionNodes = rootElement.getElementsByTagName("function");
-        if (functionNodes.getLength() == 0) {
+    private Optional<Map<String, List<Double>>> parseFunctions(Element rootElement, ParseDiagnostics diagnostics) {
+        List<Element> functionElements = getChildElements(rootElement, "functions", "function");
+        if (functionElements.isEmpty()) {
             return Optional.empty();
         }
 
         Map<String, List<Double>> functions = new HashMap<>();
-        for (int i = 0; i < functionNodes.getLength(); i++) {
-            Element functionElement = (Element) functionNodes.item(i);
+        for (Element functionElement : functionElements) {
             String functionName = functionElement.getAttribute("name");
-            NodeList sampleNodes = functionElement.getElementsByTagName("sample");
+            List<Element> sampleElements = getChildElements(functionElement, "sample");
 
             List<Double> samples = new ArrayList<>();
-            for (int j = 0; j < sampleNodes.getLength(); j++) {
-                String sampleText = sampleNodes.item(j).getTextContent();
+            for (Element sampleElement : sampleElements) {
+                String sampleText = sampleElement.getTextContent();
                 Optional<Double> sampleValueOpt = parseDouble(sampleText);
                 if (sampleValueOpt.isPresent()) {
                     samples.add(sampleValueOpt.get());
                 } else {
-                    System.err.println("Valeur d'échantillon invalide dans la fonction " + functionName + " de la racine ID: " + rootElement.getAttribute("ID"));
+                    diagnostics.report(ParseDiagnostics.Category.INVALID_SAMPLE, rootElement.getAttribute("ID"),
+                            functionName + " = '" + sampleText + "'");
                 }
             }
             if (!samples.isEmpty()) {
@@ -445,20 +1211,19 @@ public abstract class RSMLParser<T> {
     }
 
     /**
-     * Parse les annotations d'un élément racine.
+     * Parse les annotations d'un élément racine, placées directement sous la racine ou dans un élément annotations.
      *
      * @param rootElement Élément représentant une racine.
      * @return Optional contenant une liste de maps représentant les annotations.
      */
     private Optional<List<Map<String, String>>> parseAnnotations(Element rootElement) {
-        NodeList annotationNodes = rootElement.getElementsByTagName("annotation");
-        if (annotationNodes.getLength() == 0) {
+        List<Element> annotationElements = getChildElements(rootElement, "annotations", "annotation");
+        if (annotationElements.isEmpty()) {
             return Optional.empty();
         }
 
         List<Map<String, String>> annotations = new ArrayList<>();
-        for (int i = 0; i < annotationNodes.getLength(); i++) {
-            Element annotationElement = (Element) annotationNodes.item(i);
+        for (Element annotationElement : annotationElements) {
             Map<String, String> annotation = new HashMap<>();
             annotation.put("name", annotationElement.getAttribute("name"));
 
@@ -476,6 +1241,47 @@ public abstract class RSMLParser<T> {
         return annotations.isEmpty() ? Optional.empty() : Optional.of(annotations);
     }
 
+    /**
+     * Obtient les éléments enfants directs d'un élément portant un nom donné, sans parcourir les descendants.
+     *
+     * @param parent  Élément parent.
+     * @param tagName Nom de la balise enfant.
+     * @return Liste des éléments enfants, dans l'ordre du document.
+     */
+    protected static List<Element> getChildElements(Element parent, String tagName) {
+        List<Element> children = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && tagName.equals(node.getNodeName())) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Obtient les éléments d'un nom donné placés directement sous un élément, ou regroupés dans un élément conteneur enfant
+     * (par exemple les function d'une racine, directement ou dans functions).
+     *
+     * @param parent        Élément parent.
+     * @param containerName Nom de la balise conteneur.
+     * @param tagName       Nom de la balise recherchée.
+     * @return Liste des éléments, dans l'ordre du document.
+     */
+    private static List<Element> getChildElements(Element parent, String containerName, String tagName) {
+        List<Element> elements = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            if (tagName.equals(node.getNodeName())) {
+                elements.add((Element) node);
+            } else if (containerName.equals(node.getNodeName())) {
+                elements.addAll(getChildElements((Element) node, tagName));
+            }
+        }
+        return elements;
+    }
+
     /**
      * Obtient le contenu textuel d'un élément enfant d'un élément parent.
      *
@@ -526,20 +1332,17 @@ public abstract class RSMLParser<T> {
     }
 
     /**
-     * Extrait la date la plus ancienne trouvée dans le document et le nom du fichier.
+     * Extrait la date la plus ancienne trouvée dans le nom du fichier, les métadonnées et les valeurs d'attributs.
      *
      * @param doc      Le Document XML à analyser.
      * @param filePath Le chemin vers le fichier.
-     * @return La première LocalDateTime trouvée, ou la date et l'heure actuelles si aucune n'est trouvée.
+     * @return La date la plus ancienne trouvée, ou la date et l'heure actuelles si aucune n'est trouvée.
      */
-    private LocalDateTime extractEarliestDate(Document doc, String filePath) {
-        String fileName = new File(filePath).getName();
-
-        // Collecter toutes les chaînes potentielles de date
-        Set<String> dateStrings = new HashSet<>();
-        dateStrings.add(fileName);
+    private LocalDateTime extractEarliestDate(Document doc, String filePath, ParseDiagnostics diagnostics) {
+        DateDetector dates = new DateDetector();
+        dates.scan(new File(filePath).getName());
 
-        // Ajouter les éléments de métadonnées
+        // Analyser le contenu des éléments de métadonnées
         NodeList metadataNodes = doc.getElementsByTagName("metadata");
         if (metadataNodes.getLength() > 0) {
             Element metadataElement = (Element) metadataNodes.item(0);
@@ -547,108 +1350,44 @@ public abstract class RSMLParser<T> {
             for (int i = 0; i < childNodes.getLength(); i++) {
                 Node node = childNodes.item(i);
                 if (node.getNodeType() == Node.ELEMENT_NODE) {
-                    dateStrings.add(node.getTextContent());
+                    dates.scan(node.getTextContent());
                 }
             }
         }
 
-        // Scanner tout le document pour les chaînes ressemblant à des dates
+        // Analyser les valeurs d'attributs de tout le document
         NodeList allNodes = doc.getElementsByTagName("*");
         for (int i = 0; i < allNodes.getLength(); i++) {
-            Node node = allNodes.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element element = (Element) node;
-                // Ajouter le contenu textuel
-                dateStrings.add(element.getTextContent());
-                // Ajouter les attributs
-                NamedNodeMap attributes = element.getAttributes();
-                for (int j = 0; j < attributes.getLength(); j++) {
-                    Node attr = attributes.item(j);
-                    dateStrings.add(attr.getNodeValue());
-                }
-            }
-        }
-
-        // Extraire et parser les chaînes de date
-        List<LocalDateTime> dates = new ArrayList<>();
-        for (String text : dateStrings) {
-            List<String> extractedDates = extractDateStrings(text);
-            for (String dateStr : extractedDates) {
-                LocalDateTime date = parseDate(dateStr);
-                if (date != null) {
-                    dates.add(date);
-                }
-            }
-        }
-
-        if (dates.isEmpty()) {
-            System.err.println("Aucune date trouvée dans le document. Utilisation de la date et l'heure actuelles.");
-            return LocalDateTime.now();
-        }
-
-        // Trouver la date la plus ancienne
-        LocalDateTime earliestDate = dates.get(0);
-        for (LocalDateTime date : dates) {
-            if (date.isBefore(earliestDate)) {
-                earliestDate = date;
+            NamedNodeMap attributes = allNodes.item(i).getAttributes();
+            for (int j = 0; j < attributes.getLength(); j++) {
+                dates.scanAttribute(attributes.item(j).getNodeValue());
             }
         }
-        return earliestDate;
-    }
 
-    /**
-     * Extrait les sous-chaînes ressemblant à des dates d'un texte donné en utilisant des motifs regex.
-     *
-     * @param text Le texte à analyser pour les chaînes de date.
-     * @return Liste des sous-chaînes ressemblant à des dates.
-     */
-    private List<String> extractDateStrings(String text) {
-        if (text == null || text.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        String[] datePatterns = new String[]{
-                "\\d{2}_\\d{2}_\\d{4}",          // ex: 24_05_2018
-                "\\b\\d{4}-\\d{2}-\\d{2}\\b",    // ex: 2018-05-24
-                "\\b\\d{4}/\\d{2}/\\d{2}\\b",    // ex: 2018/05/24
-                "\\b\\d{2}/\\d{2}/\\d{4}\\b",    // ex: 24/05/2018
-                "\\b\\d{8}\\b",                  // ex: 20180524
-                "\\b\\d{4}_\\d{2}_\\d{2}\\b",    // ex: 2018_05_24
-                // Ajouter d'autres motifs si nécessaire
-        };
-
-        List<String> dateStrings = new ArrayList<>();
-        for (String patternStr : datePatterns) {
-            Pattern pattern = Pattern.compile(patternStr);
-            java.util.regex.Matcher matcher = pattern.matcher(text);
-            while (matcher.find()) {
-                dateStrings.add(matcher.group());
-            }
-        }
-        return dateStrings;
+        return earliestDateOrNow(dates, diagnostics);
     }
 
     /**
-     * Détermine l'ordre d'une racine en fonction de sa position dans la hiérarchie.
+     * Obtient la date la plus ancienne détectée, ou la date et l'heure actuelles si aucune n'a été trouvée.
      *
-     * @param rootElement Élément représentant une racine.
-     * @return Entier représentant l'ordre de la racine (e.g., 1 pour racine primaire).
+     * @param dates       Le détecteur de dates du fichier.
+     * @param diagnostics Rapport des anomalies du fichier.
+     * @return La date de capture à utiliser.
      */
-    private int getRootOrder(Element rootElement) {
-        int order = 1;
-        Node parent = rootElement.getParentNode();
-        while (parent instanceof Element) {
-            if ("root".equals(((Element) parent).getTagName())) {
-                order++;
-            }
-            parent = parent.getParentNode();
+    private LocalDateTime earliestDateOrNow(DateDetector dates, ParseDiagnostics diagnostics) {
+        LocalDateTime earliestDate = dates.getEarliestDate();
+        if (earliestDate == null) {
+            diagnostics.report(ParseDiagnostics.Category.MISSING_DATE, null, null);
+            return LocalDateTime.now();
         }
-        return order;
+        return earliestDate;
     }
 
     /**
      * Parse une chaîne en Double de manière sécurisée.
      *
+     * Une valeur invalide est signalée par l'appelant, qui connaît son contexte.
+     *
      * @param str Chaîne à parser.
      * @return Optional contenant le Double si le parsing réussit.
      */
@@ -656,8 +1395,20 @@ public abstract class RSMLParser<T> {
         try {
             return Optional.of(Double.parseDouble(str));
         } catch (NumberFormatException e) {
-            System.err.println("Valeur numérique invalide: " + str);
             return Optional.empty();
         }
     }
+
+    /**
+     * État du parsing en flux d'un fichier : le lecteur, le détecteur des dates rencontrées et le rapport d'anomalies.
+     */
+    private static final class StreamContext {
+        XMLStreamReader reader;
+        final DateDetector dates = new DateDetector();
+        final ParseDiagnostics diagnostics;
+
+        StreamContext(ParseDiagnostics diagnostics) {
+            this.diagnostics = diagnostics;
+        }
+    }
 }
@@ -0,0 +1,328 @@
+package RootModels;
+
+import Parser.DiagnosticsCollector;
+import Parser.DiagnosticsSink;
+import Parser.ParseDiagnostics;
+import Parser.ParsedRsml;
+import Parser.ParserUtils;
+import RootModels.Root.Geometry.Polyline2DplusT;
+import RootModels.Root.Root;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Chargement non interactif de lots de fichiers RSML, utilisable dans des scripts.
+ * <p>
+ * Les arguments sont des fichiers, des dossiers (parcourus récursivement) ou des motifs glob
+ * (par exemple {@code "data/**}{@code /box_*}{@code /*.rsml"}). Les fichiers trouvés sont regroupés par dossier parent,
+ * chaque dossier correspondant à une boîte d'une expérience, et chaque groupe est chargé dans son propre RootModel.
+ * Le format (2D ou 2D+t) est détecté pour chaque fichier et tous les fichiers sont parsés en parallèle.
+ * Le résumé du chargement, avec les durées et les débits, est écrit au format JSON.
+ * <p>
+ * Usage : {@code BatchLoader [--threads N] [--output fichier.json] chemin|dossier|glob...}
+ */
+public class BatchLoader {
+
+    private static final String USAGE = "Usage : BatchLoader [--threads N] [--output fichier.json] chemin|dossier|glob...";
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path output = null;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(requireValue(args, ++i));
+                    break;
+                case "--output":
+                    output = Paths.get(requireValue(args, ++i));
+                    break;
+                case "--help":
+                    System.out.println(USAGE);
+                    return;
+                default:
+                    inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty() || threads < 1) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        Writer writer = output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+        try (PrintWriter out = new PrintWriter(writer)) {
+            run(inputs, threads, out);
+        }
+    }
+
+    private static String requireValue(String[] args, int index) {
+        if (index >= args.length) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        return args[index];
+    }
+
+    /**
+     * Charge les fichiers désignés par les entrées et écrit le résumé JSON.
+     *
+     * @param inputs  Fichiers, dossiers ou motifs glob.
+     * @param threads Nombre de fichiers parsés simultanément.
+     * @param out     Sortie du résumé JSON.
+     * @return Les RootModel chargés, par dossier.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
+    public static Map<Path, RootModel> run(List<String> inputs, int threads, PrintWriter out) throws Exception {
+        long start = System.nanoTime();
+        TreeMap<Path, TreeSet<String>> groups = new TreeMap<>();
+        long totalBytes = 0;
+        for (Path file : resolveInputs(inputs)) {
+            groups.computeIfAbsent(file.getParent(), dir -> new TreeSet<>()).add(file.toString());
+            totalBytes += Files.size(file);
+        }
+        long scanned = System.nanoTime();
+
+        // Collecter les rapports d'anomalies pour le résumé, sans les retirer de la destination habituelle
+        DiagnosticsCollector diagnostics = new DiagnosticsCollector();
+        DiagnosticsSink defaultSink = ParseDiagnostics.getDefaultSink();
+        DiagnosticsSink sink = report -> {
+            diagnostics.accept(report);
+            defaultSink.accept(report);
+        };
+
+        // Parser tous les fichiers en une fois, pour occuper tous les threads même avec de petits groupes
+        Set<String> allFiles = new LinkedHashSet<>();
+        groups.values().forEach(allFiles::addAll);
+        List<ParsedRsml<?>> parsedDataList;
+        Map<Path, List<ParsedRsml<?>>> parsedByDirectory = new HashMap<>();
+        Map<Path, RootModel> models = new LinkedHashMap<>();
+        long parsed;
+        ExecutorService executor = new ForkJoinPool(threads);
+        try {
+            parsedDataList = RootModelLoader.parseRsmlFiles(allFiles, executor, threads, sink);
+            parsed = System.nanoTime();
+
+            for (ParsedRsml<?> parsedData : parsedDataList) {
+                parsedByDirectory.computeIfAbsent(Paths.get(parsedData.filePath).getParent(), dir -> new ArrayList<>()).add(parsedData);
+            }
+            for (Path dir : groups.keySet()) {
+                List<ParsedRsml<?>> groupData = parsedByDirectory.getOrDefault(dir, Collections.emptyList());
+                models.put(dir, new RootModel(RootModelLoader.buildEntries(groupData, sink)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long built = System.nanoTime();
+
+        // Résumé JSON
+        long totalFiles = allFiles.size();
+        long loadedFiles = parsedDataList.size();
+        long timeFiles = 0;
+        long totalRoots = 0;
+        long totalPoints = 0;
+        out.println("{");
+        out.println("  \"threads\": " + threads + ",");
+        out.println("  \"groups\": [");
+        int groupIndex = 0;
+        for (Map.Entry<Path, RootModel> group : models.entrySet()) {
+            List<ParsedRsml<?>> groupData = parsedByDirectory.getOrDefault(group.getKey(), Collections.emptyList());
+            int groupTimeFiles = 0;
+            for (ParsedRsml<?> parsedData : groupData) {
+                if (!parsedData.flatRoots.isEmpty() && parsedData.flatRoots.get(0).geometry instanceof Polyline2DplusT) {
+                    groupTimeFiles++;
+                }
+            }
+            long roots = 0;
+            long points = 0;
+            for (RootModel.RootModelEntry entry : group.getValue().dataByDate.values()) {
+                roots += entry.flatRootList.size();
+                for (Root root : entry.flatRootList) {
+                    points += root.geometry == null ? 0 : root.geometry.size();
+                }
+            }
+            int files = groups.get(group.getKey()).size();
+            TreeMap<LocalDateTime, RootModel.RootModelEntry> dataByDate = group.getValue().dataByDate;
+            timeFiles += groupTimeFiles;
+            totalRoots += roots;
+            totalPoints += points;
+
+            out.println("    {");
+            out.println("      \"directory\": " + jsonString(group.getKey().toString()) + ",");
+            out.println("      \"files\": " + files + ",");
+            out.println("      \"loaded\": " + groupData.size() + ",");
+            out.println("      \"failed\": " + (files - groupData.size()) + ",");
+            out.println("      \"files2D\": " + (groupData.size() - groupTimeFiles) + ",");
+            out.println("      \"files2DTime\": " + groupTimeFiles + ",");
+            out.println("      \"dates\": " + dataByDate.size() + ",");
+            out.println("      \"firstDate\": " + (dataByDate.isEmpty() ? "null" : jsonString(dataByDate.firstKey().toString())) + ",");
+            out.println("      \"lastDate\": " + (dataByDate.isEmpty() ? "null" : jsonString(dataByDate.lastKey().toString())) + ",");
+            out.println("      \"roots\": " + roots + ",");
+            out.println("      \"points\": " + points);
+            out.println("    }" + (++groupIndex < models.size() ? "," : ""));
+        }
+        out.println("  ],");
+
+        double scanSeconds = (scanned - start) / 1e9;
+        double parseSeconds = (parsed - scanned) / 1e9;
+        double buildSeconds = (built - parsed) / 1e9;
+        double totalSeconds = (built - start) / 1e9;
+        out.println("  \"totals\": {");
+        out.println("    \"groups\": " + models.size() + ",");
+        out.println("    \"files\": " + totalFiles + ",");
+        out.println("    \"loaded\": " + loadedFiles + ",");
+        out.println("    \"failed\": " + (totalFiles - loadedFiles) + ",");
+        out.println("    \"files2D\": " + (loadedFiles - timeFiles) + ",");
+        out.println("    \"files2DTime\": " + timeFiles + ",");
+        out.println("    \"bytes\": " + totalBytes + ",");
+        out.println("    \"roots\": " + totalRoots + ",");
+        out.println("    \"points\": " + totalPoints);
+        out.println("  },");
+        out.println("  \"diagnostics\": {");
+        out.print("    \"filesWithIssues\": " + diagnostics.getReportCount());
+        for (Map.Entry<ParseDiagnostics.Category, Long> count : diagnostics.getCounts().entrySet()) {
+            out.println(",");
+            out.print("    " + jsonString(count.getKey().name()) + ": " + count.getValue());
+        }
+        out.println();
+        out.println("  },");
+        out.println("  \"timings\": {");
+        out.println("    \"scanSeconds\": " + jsonNumber(scanSeconds) + ",");
+        out.println("    \"parseSeconds\": " + jsonNumber(parseSeconds) + ",");
+        out.println("    \"buildSeconds\": " + jsonNumber(buildSeconds) + ",");
+        out.println("    \"totalSeconds\": " + jsonNumber(totalSeconds));
+        out.println("  },");
+        out.println("  \"throughput\": {");
+        out.println("    \"filesPerSecond\": " + jsonNumber(rate(loadedFiles, totalSeconds)) + ",");
+        out.println("    \"megabytesPerSecond\": " + jsonNumber(rate(totalBytes / 1e6, totalSeconds)) + ",");
+        out.println("    \"pointsPerSecond\": " + jsonNumber(rate(totalPoints, totalSeconds)));
+        out.println("  }");
+        out.println("}");
+        out.flush();
+        return models;
+    }
+
+    /**
+     * Résout les entrées en une liste triée et sans doublon de fichiers RSML.
+     * Un dossier est parcouru récursivement ; une entrée qui n'est ni un fichier ni un dossier est traitée comme un motif glob,
+     * appliqué à partir du plus long préfixe sans caractère spécial.
+     *
+     * @param inputs Fichiers, dossiers ou motifs glob.
+     * @return Les fichiers RSML trouvés, en chemins absolus normalisés.
+     * @throws IOException si un dossier ne peut pas être parcouru.
+     */
+    public static List<Path> resolveInputs(List<String> inputs) throws IOException {
+        TreeSet<Path> files = new TreeSet<>();
+        for (String input : inputs) {
+            Path path = Paths.get(input);
+            if (Files.isRegularFile(path)) {
+                files.add(path.toAbsolutePath().normalize());
+            } else if (Files.isDirectory(path)) {
+                walk(path, null, files);
+            } else {
+                int special = indexOfGlobCharacter(input);
+                if (special < 0) {
+                    System.err.println("Chemin introuvable : " + input);
+                    continue;
+                }
+                int separator = Math.max(input.lastIndexOf('/', special), input.lastIndexOf(File.separatorChar, special));
+                Path base = separator < 0 ? Paths.get(".") : Paths.get(input.substring(0, separator + 1));
+                PathMatcher matcher = globMatcher(input.substring(separator + 1));
+                if (Files.isDirectory(base)) {
+                    walk(base, matcher, files);
+                }
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Crée le filtre d'un motif glob. Un {@code **}{@code /} en tête du motif accepte aussi zéro dossier, comme dans les shells :
+     * {@code **}{@code /box_*}{@code /*.rsml} accepte {@code box_1/a.rsml} en plus de {@code exp/box_1/a.rsml}.
+     */
+    private static PathMatcher globMatcher(String pattern) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        if (!pattern.startsWith("**/")) {
+            return matcher;
+        }
+        PathMatcher withoutPrefix = globMatcher(pattern.substring(3));
+        return path -> matcher.matches(path) || withoutPrefix.matches(path);
+    }
+
+    private static int indexOfGlobCharacter(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Ajoute les fichiers RSML d'une arborescence.
+     *
+     * @param base    Dossier à parcourir.
+     * @param matcher Filtre appliqué au chemin relatif à base, ou null pour tout accepter.
+     * @param files   Ensemble complété par les fichiers trouvés.
+     */
+    private static void walk(Path base, PathMatcher matcher, Set<Path> files) throws IOException {
+        try (Stream<Path> stream = Files.walk(base, FileVisitOption.FOLLOW_LINKS)) {
+            stream.filter(Files::isRegularFile)
+                    .filter(ParserUtils::isRsmlFile)
+                    .filter(file -> matcher == null || matcher.matches(base.relativize(file)))
+                    .forEach(file -> files.add(file.toAbsolutePath().normalize()));
+        }
+    }
+
+    private static double rate(double amount, double seconds) {
+        return seconds > 0 ? amount / seconds : 0;
+    }
+
+    private static String jsonNumber(double value) {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.6f", value) : "null";
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -33,6 +33,78 @@ public class Metadata {
         this.imageInfo = new HashMap<>();
     }
 
+    /**
+     * Gets the version of the metadata.
+     *
+     * @return The version of the metadata.
+     */
+    public float getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the unit of measurement.
+     *
+     * @return The unit of measurement.
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * Gets the resolution of the metadata.
+     *
+     * @return The resolution of the metadata.
+     */
+    public float getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Gets the modification date of the metadata.
+     *
+     * @return The modification date of the metadata.
+     */
+    public LocalDateTime getModifyDate() {
+        return modifyDate;
+    }
+
+    /**
+     * Gets the software information.
+     *
+     * @return The software information.
+     */
+    public String getSoftware() {
+        return software;
+    }
+
+    /**
+     * Gets the user information.
+     *
+     * @return The user information.
+     */
+    public String getUser() {
+        return user;
+    }
+
+    /**
+     * Gets the file key.
+     *
+     * @return The file key.
+     */
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    /**
+     * Gets the property definitions.
+     *
+     * @return The property definitions.
+     */
+    public List<PropertyDefinition> getPropertyDefinitions() {
+        return propertyDefinitions;
+    }
+
     /**
      * Sets the unit of measurement.
      *
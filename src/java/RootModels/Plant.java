@@ -1,10 +1,15 @@
 package RootModels;
 
+import RootModels.Root.Geometry.Bounds;
 import RootModels.Root.Root;
 
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The Plant class represents a plant with a collection of roots.
@@ -12,6 +17,8 @@ import java.util.List;
 public class Plant {
     final List<Root> roots; // List of root parsers
     final HashSet<Root> flatSetOfRoots; // Set of root parsers for quick access
+    final Map<String, Root> rootsById; // Index of the flat set of roots by ID
+    final List<String> listID; // IDs of the flat set of roots, in insertion order
     public String id; // ID of the plant
     public String label; // Label of the plant
     public Scene parentScene;
@@ -22,6 +29,8 @@ public class Plant {
     public Plant() {
         this.roots = new ArrayList<>();
         this.flatSetOfRoots = new HashSet<>();
+        this.rootsById = new HashMap<>();
+        this.listID = new ArrayList<>();
         id = "";
         label = "";
     }
@@ -33,7 +42,7 @@ public class Plant {
      */
     public void addRoot(Root root) {
         this.roots.add(root);
-        this.flatSetOfRoots.add(root);
+        add2FlatSet(root);
     }
 
     /**
@@ -42,35 +51,44 @@ public class Plant {
      * @param root The root to add.
      */
     public void add2FlatSet(Root root) {
-        this.flatSetOfRoots.add(root);
+        if (this.flatSetOfRoots.add(root)) {
+            this.rootsById.putIfAbsent(root.getId(), root);
+            this.listID.add(root.getId());
+        }
     }
 
     /**
-     * Gets a list of root IDs.
+     * Gets the bounding box of all the roots of the plant, from the cached boxes of their geometries,
+     * in time proportional to the number of roots.
      *
-     * @return A list of root IDs.
+     * @return The bounding box, or null if no root has a point.
      */
-    public List<String> getListID() {
-        List<String> listID = new ArrayList<>();
+    public Rectangle2D getBounds() {
+        Rectangle2D bounds = null;
         for (Root root : flatSetOfRoots) {
-            listID.add(root.getId());
+            bounds = Bounds.union(bounds, root.getBounds());
         }
-        return listID;
+        return bounds;
     }
 
     /**
-     * Gets a root by its ID.
+     * Gets a list of root IDs.
+     *
+     * @return A read-only view of the root IDs, kept up to date as roots are added.
+     */
+    public List<String> getListID() {
+        return Collections.unmodifiableList(listID);
+    }
+
+    /**
+     * Gets a root by its ID, in constant time.
+     * If several roots share the same ID, the first one added to the plant is returned.
      *
      * @param id The ID of the root.
      * @return The root with the specified ID, or null if not found.
      */
     public Root getRootByID(String id) {
-        for (Root root : flatSetOfRoots) {
-            if (root.getId().equals(id)) {
-                return root;
-            }
-        }
-        return null;
+        return rootsById.get(id);
     }
 
     /**
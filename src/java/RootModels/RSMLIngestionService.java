@@ -0,0 +1,453 @@
+package RootModels;
+
+import Parser.DiagnosticsSink;
+import Parser.ParseDiagnostics;
+import Parser.ParserUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Service d'ingestion continue des fichiers RSML déposés dans des dossiers surveillés.
+ * <p>
+ * Chaque dossier surveillé correspond à un RootModel. Les nouveaux fichiers .rsml ou .rsmlXX sont détectés par un
+ * {@link WatchService}, puis attendus jusqu'à ce que leur taille et leur date de modification soient restées stables
+ * pendant le délai de stabilisation, afin de ne pas lire un fichier en cours d'écriture. Ils sont ensuite parsés par un
+ * pool de threads borné, et un nouveau RootModel est publié pour le dossier.
+ * <p>
+ * Les RootModel publiés ne sont jamais modifiés : chaque ingestion publie une copie de dataByDate complétée par les
+ * nouvelles dates, qui partage les entrées des dates déjà chargées. Un lecteur peut donc utiliser le RootModel obtenu par
+ * {@link #getRootModel(Path)} sans synchronisation, pendant que de nouvelles captures sont ingérées.
+ */
+public class RSMLIngestionService implements Closeable {
+
+    /**
+     * Délai de stabilisation par défaut, en millisecondes.
+     */
+    public static final long DEFAULT_SETTLE_MILLIS = 1000;
+
+    /**
+     * Écouteur notifié à chaque publication d'un RootModel.
+     */
+    public interface Listener {
+        /**
+         * Appelé depuis un thread du pool après la publication d'un nouveau RootModel.
+         *
+         * @param directory Le dossier surveillé.
+         * @param rootModel Le RootModel publié.
+         * @param dates     Les dates ajoutées ou remplacées.
+         */
+        void onUpdate(Path directory, RootModel rootModel, Set<LocalDateTime> dates);
+    }
+
+    private final long settleMillis;
+    private final int queueCapacity;
+    private final WatchService watchService;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService scheduler;
+    private final Thread watcherThread;
+
+    private final Map<WatchKey, Path> directoriesByKey = new ConcurrentHashMap<>();
+    private final Map<Path, AtomicReference<RootModel>> modelsByDirectory = new ConcurrentHashMap<>();
+    private final Map<Path, PendingFile> pendingFiles = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Destination des rapports de parsing et des erreurs du service, null pour la destination par défaut
+    private volatile DiagnosticsSink diagnosticsSink;
+
+    // Métriques
+    private final AtomicLong ingestedFiles = new AtomicLong();
+    private final AtomicLong failedFiles = new AtomicLong();
+    private final AtomicLong totalParseNanos = new AtomicLong();
+    private final AtomicLong maxParseNanos = new AtomicLong();
+    private final AtomicLong lastIngestNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Crée un service avec le délai de stabilisation par défaut.
+     *
+     * @param workerCount Nombre de fichiers parsés simultanément.
+     * @throws IOException si le WatchService ne peut pas être créé.
+     */
+    public RSMLIngestionService(int workerCount) throws IOException {
+        this(workerCount, workerCount * 4, DEFAULT_SETTLE_MILLIS);
+    }
+
+    /**
+     * Crée un service. La surveillance commence dès l'appel à {@link #watch(Path)}.
+     *
+     * @param workerCount   Nombre de fichiers parsés simultanément.
+     * @param queueCapacity Nombre maximal de fichiers stables en attente d'un thread ; au-delà, ils restent en attente
+     *                      de stabilisation et sont soumis plus tard.
+     * @param settleMillis  Durée pendant laquelle la taille et la date d'un fichier doivent rester stables.
+     * @throws IOException si le WatchService ne peut pas être créé.
+     */
+    public RSMLIngestionService(int workerCount, int queueCapacity, long settleMillis) throws IOException {
+        if (workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Le nombre de threads et la capacité de la file doivent être au moins 1");
+        }
+        this.settleMillis = settleMillis;
+        this.queueCapacity = queueCapacity;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("rsml-ingest"), new ThreadPoolExecutor.AbortPolicy());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("rsml-settle"));
+        long period = Math.max(10, settleMillis / 4);
+        this.scheduler.scheduleWithFixedDelay(this::submitSettledFiles, period, period, TimeUnit.MILLISECONDS);
+        this.watcherThread = daemonThreads("rsml-watch").newThread(this::watchLoop);
+        this.watcherThread.start();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicLong count = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Surveille un dossier. Les fichiers RSML déjà présents sont ingérés comme de nouveaux fichiers.
+     *
+     * @param directory Le dossier à surveiller.
+     * @throws IOException si le dossier ne peut pas être surveillé ou listé.
+     */
+    public void watch(Path directory) throws IOException {
+        Path dir = directory.toAbsolutePath().normalize();
+        AtomicReference<RootModel> model = new AtomicReference<>(new RootModel(new TreeMap<>()));
+        if (modelsByDirectory.putIfAbsent(dir, model) != null) {
+            return;
+        }
+        WatchKey key = null;
+        try {
+            key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            directoriesByKey.put(key, dir);
+            scanDirectory(dir);
+        } catch (IOException | RuntimeException e) {
+            // Oublier le dossier, pour qu'un nouvel appel puisse réessayer
+            if (key != null) {
+                key.cancel();
+                directoriesByKey.remove(key);
+            }
+            modelsByDirectory.remove(dir, model);
+            throw e;
+        }
+    }
+
+    /**
+     * Retourne le dernier RootModel publié pour un dossier surveillé.
+     *
+     * @param directory Le dossier surveillé.
+     * @return Le RootModel, vide tant qu'aucun fichier n'a été ingéré, ou null si le dossier n'est pas surveillé.
+     */
+    public RootModel getRootModel(Path directory) {
+        AtomicReference<RootModel> model = modelsByDirectory.get(directory.toAbsolutePath().normalize());
+        return model == null ? null : model.get();
+    }
+
+    /**
+     * @return Les dossiers surveillés.
+     */
+    public Set<Path> getDirectories() {
+        return Collections.unmodifiableSet(modelsByDirectory.keySet());
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Retourne la destination des rapports de parsing des fichiers ingérés et des erreurs du service.
+     *
+     * @return La destination choisie, ou {@link ParseDiagnostics#getDefaultSink()} si aucune n'a été choisie.
+     */
+    public DiagnosticsSink getDiagnosticsSink() {
+        DiagnosticsSink sink = diagnosticsSink;
+        return sink != null ? sink : ParseDiagnostics.getDefaultSink();
+    }
+
+    /**
+     * Choisit la destination des rapports de parsing des fichiers ingérés et des erreurs du service.
+     *
+     * @param diagnosticsSink La destination, ou null pour utiliser la destination par défaut.
+     */
+    public void setDiagnosticsSink(DiagnosticsSink diagnosticsSink) {
+        this.diagnosticsSink = diagnosticsSink;
+    }
+
+    /**
+     * Transmet une erreur du service comme anomalie INGESTION_FAILURE du ou des dossiers concernés.
+     */
+    private void report(Object directories, String detail, Exception e) {
+        ParseDiagnostics diagnostics = new ParseDiagnostics(String.valueOf(directories));
+        diagnostics.report(ParseDiagnostics.Category.INGESTION_FAILURE, null, -1,
+                e == null ? detail : detail + " : " + e.getMessage(), e);
+        getDiagnosticsSink().accept(diagnostics);
+    }
+
+    /**
+     * @return Le nombre de fichiers ingérés avec succès.
+     */
+    public long getIngestedCount() {
+        return ingestedFiles.get();
+    }
+
+    /**
+     * @return Le nombre de fichiers dont l'ingestion a échoué.
+     */
+    public long getFailureCount() {
+        return failedFiles.get();
+    }
+
+    /**
+     * @return Le nombre de fichiers en attente : en cours de stabilisation ou en file pour le pool de threads.
+     */
+    public int getQueueDepth() {
+        return pendingFiles.size() + workers.getQueue().size();
+    }
+
+    /**
+     * @return Le nombre de fichiers en cours de parsing.
+     */
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    /**
+     * @return La durée moyenne de parsing d'un fichier, en millisecondes.
+     */
+    public double getMeanParseLatencyMillis() {
+        long count = ingestedFiles.get() + failedFiles.get();
+        return count == 0 ? 0 : totalParseNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * @return La durée maximale de parsing d'un fichier, en millisecondes.
+     */
+    public double getMaxParseLatencyMillis() {
+        return maxParseNanos.get() / 1e6;
+    }
+
+    /**
+     * @return Le délai entre la détection du dernier fichier ingéré et la publication de son RootModel, en millisecondes.
+     */
+    public double getLastIngestLatencyMillis() {
+        return lastIngestNanos.get() / 1e6;
+    }
+
+    /**
+     * Arrête la surveillance et attend la fin des parsings en cours.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        scheduler.shutdownNow();
+        watcherThread.interrupt();
+        watchService.close();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Détection et stabilisation
+    // ---------------------------------------------------------------------------------------------------------------
+
+    private void watchLoop() {
+        while (!closed) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = directoriesByKey.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Des événements ont été perdus : relister le dossier
+                        try {
+                            scanDirectory(dir);
+                        } catch (IOException e) {
+                            report(dir, "Impossible de lister le dossier", e);
+                        }
+                    } else {
+                        onFileChanged(dir.resolve((Path) event.context()));
+                    }
+                }
+            }
+            if (!key.reset()) {
+                directoriesByKey.remove(key);
+                report(dir, "Le dossier n'est plus surveillé", null);
+            }
+        }
+    }
+
+    private void scanDirectory(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(this::onFileChanged);
+        }
+    }
+
+    private void onFileChanged(Path file) {
+        if (ParserUtils.isRsmlFile(file)) {
+            pendingFiles.computeIfAbsent(file, PendingFile::new).lastEvent = System.nanoTime();
+        }
+    }
+
+    /**
+     * Soumet au pool les fichiers dont la taille et la date n'ont pas changé depuis le délai de stabilisation.
+     */
+    private void submitSettledFiles() {
+        long now = System.nanoTime();
+        for (PendingFile pending : pendingFiles.values()) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(pending.file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                pendingFiles.remove(pending.file); // Fichier supprimé ou renommé avant d'être stable
+                continue;
+            }
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            if (size != pending.size || modified != pending.modified) {
+                pending.size = size;
+                pending.modified = modified;
+                pending.lastChange = now;
+                continue;
+            }
+            long lastActivity = Math.max(pending.lastChange, pending.lastEvent);
+            if (now - lastActivity < TimeUnit.MILLISECONDS.toNanos(settleMillis)) {
+                continue;
+            }
+            if (size == 0) {
+                // Fichier resté vide : abandonné, il sera remis en attente par l'événement de sa prochaine écriture
+                pendingFiles.remove(pending.file, pending);
+                continue;
+            }
+            if (workers.getQueue().size() >= queueCapacity) {
+                return; // File pleine : les fichiers restants seront soumis au prochain passage
+            }
+            // Retirer le fichier avant de le soumettre, pour qu'une nouvelle modification le remette en attente
+            pendingFiles.remove(pending.file, pending);
+            try {
+                workers.execute(() -> ingest(pending));
+            } catch (RejectedExecutionException e) {
+                pendingFiles.putIfAbsent(pending.file, pending);
+                return;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------------------------
+    // Ingestion
+    // ---------------------------------------------------------------------------------------------------------------
+
+    private void ingest(PendingFile pending) {
+        Path dir = pending.file.getParent();
+        AtomicReference<RootModel> model = modelsByDirectory.get(dir);
+        if (model == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        TreeMap<LocalDateTime, RootModel.RootModelEntry> newEntries;
+        try {
+            newEntries = RootModelLoader.loadEntries(Collections.singleton(pending.file.toString()), diagnosticsSink);
+        } catch (Exception e) {
+            newEntries = new TreeMap<>();
+            ParseDiagnostics diagnostics = new ParseDiagnostics(pending.file.toString());
+            diagnostics.report(ParseDiagnostics.Category.PARSE_FAILURE, null, -1, e.getMessage(), e);
+            getDiagnosticsSink().accept(diagnostics);
+        }
+        long parseNanos = System.nanoTime() - start;
+        totalParseNanos.addAndGet(parseNanos);
+        maxParseNanos.accumulateAndGet(parseNanos, Math::max);
+
+        if (newEntries.isEmpty()) {
+            failedFiles.incrementAndGet();
+            return;
+        }
+
+        // Publication par copie : les lecteurs du RootModel précédent ne voient aucune modification
+        RootModel previous;
+        RootModel updated;
+        do {
+            previous = model.get();
+            updated = RootModelLoader.merge(previous, newEntries).rootModel;
+        } while (!model.compareAndSet(previous, updated));
+
+        ingestedFiles.incrementAndGet();
+        lastIngestNanos.set(System.nanoTime() - pending.firstEvent);
+
+        Set<LocalDateTime> dates = Collections.unmodifiableSet(newEntries.keySet());
+        for (Listener listener : listeners) {
+            try {
+                listener.onUpdate(dir, updated, dates);
+            } catch (RuntimeException e) {
+                report(dir, "Erreur dans un écouteur d'ingestion", e);
+            }
+        }
+    }
+
+    /**
+     * Fichier détecté, en attente de stabilisation.
+     */
+    private static final class PendingFile {
+        final Path file;
+        final long firstEvent = System.nanoTime();
+        volatile long lastEvent = firstEvent;
+        long lastChange = firstEvent;
+        long size = -1;
+        long modified = -1;
+
+        PendingFile(Path file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * Surveille les dossiers passés en arguments (le dossier courant par défaut) et affiche chaque mise à jour,
+     * jusqu'à l'arrêt du programme.
+     *
+     * @param args Dossiers à surveiller.
+     * @throws Exception si un dossier ne peut pas être surveillé.
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> directories = args.length == 0 ? Collections.singletonList(".") : Arrays.asList(args);
+        RSMLIngestionService service = new RSMLIngestionService(Runtime.getRuntime().availableProcessors());
+        service.addListener((directory, rootModel, dates) -> System.out.println(
+                directory + " : " + dates + " ingérée(s), " + rootModel.dataByDate.size() + " date(s) au total"
+                        + " (parsing moyen " + String.format("%.1f", service.getMeanParseLatencyMillis()) + " ms"
+                        + ", file " + service.getQueueDepth() + ", échecs " + service.getFailureCount() + ")"));
+        for (String directory : directories) {
+            service.watch(Paths.get(directory));
+            System.out.println("Surveillance du dossier " + Paths.get(directory).toAbsolutePath().normalize());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                service.close();
+            } catch (IOException e) {
+                service.report(service.getDirectories(), "Erreur lors de l'arrêt du service", e);
+            }
+        }));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,133 @@
+package RootModels.Root.Geometry;
+
+import io.github.rocsg.fijiyama.registration.ItkTransform;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Applies a transformation to many geometries at once, for example every root of a model during registration.
+ * Points are read from and written back to the column arrays of the polylines, through a single scratch array per worker
+ * instead of one array per point. With a parallelism greater than 1, the geometries are split into chunks of about the same
+ * number of points, transformed on a dedicated ForkJoinPool; the transformation must then support concurrent calls
+ * to {@link ItkTransform#transformPoint(double[])}.
+ */
+public final class BatchTransform {
+
+    // Number of chunks per worker, so that a slow chunk does not leave the other workers idle
+    private static final int CHUNKS_PER_WORKER = 4;
+    // Below this number of points, the work is not split
+    private static final long MIN_PARALLEL_POINTS = 10_000;
+
+    private BatchTransform() {
+    }
+
+    /**
+     * Applies a transformation to every point of the given geometries.
+     * Each distinct geometry is transformed once, even if it appears several times.
+     *
+     * @param geometries  The geometries to transform; null elements are ignored.
+     * @param transform   The transformation to apply.
+     * @param parallelism The number of threads to use, 1 to transform in the calling thread.
+     */
+    public static void transform(Collection<? extends Geometry> geometries, ItkTransform transform, int parallelism) {
+        transformBeforeTime(geometries, transform, Double.POSITIVE_INFINITY, parallelism);
+    }
+
+    /**
+     * Applies a transformation to the points of the given geometries whose time is not after a given time,
+     * as {@link Geometry#transformBeforeTime(ItkTransform, double)} does. Geometries without time are fully transformed.
+     * Each distinct geometry is transformed once, even if it appears several times.
+     *
+     * @param geometries  The geometries to transform; null elements are ignored.
+     * @param transform   The transformation to apply.
+     * @param time        The time before which the transformation should be applied.
+     * @param parallelism The number of threads to use, 1 to transform in the calling thread.
+     */
+    public static void transformBeforeTime(Collection<? extends Geometry> geometries, ItkTransform transform, double time, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        List<Geometry> distinct = distinct(geometries);
+        long totalPoints = 0;
+        for (Geometry geometry : distinct) {
+            totalPoints += geometry.size();
+        }
+        if (parallelism == 1 || distinct.size() < 2 || totalPoints < MIN_PARALLEL_POINTS) {
+            transformRange(distinct, 0, distinct.size(), transform, time);
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long pointsPerChunk = Math.max(1, totalPoints / ((long) parallelism * CHUNKS_PER_WORKER));
+            int start = 0;
+            long points = 0;
+            for (int i = 0; i < distinct.size(); i++) {
+                points += distinct.get(i).size();
+                if (points >= pointsPerChunk || i == distinct.size() - 1) {
+                    int from = start;
+                    int to = i + 1;
+                    futures.add(pool.submit(() -> transformRange(distinct, from, to, transform, time)));
+                    start = to;
+                    points = 0;
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while transforming geometries", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Transforms a range of geometries in the calling thread, with a single scratch array.
+     */
+    private static void transformRange(List<Geometry> geometries, int from, int to, ItkTransform transform, double time) {
+        double[] point = new double[3];
+        for (int i = from; i < to; i++) {
+            Geometry geometry = geometries.get(i);
+            if (geometry instanceof Polyline2DplusT) {
+                ((Polyline2DplusT) geometry).transformBeforeTime(transform, time, point);
+            } else if (geometry instanceof Polyline2D) {
+                ((Polyline2D) geometry).transform(transform, point);
+            } else if (time == Double.POSITIVE_INFINITY) {
+                geometry.transform(transform);
+            } else {
+                geometry.transformBeforeTime(transform, time);
+            }
+        }
+    }
+
+    private static List<Geometry> distinct(Collection<? extends Geometry> geometries) {
+        Set<Geometry> seen = Collections.newSetFromMap(new IdentityHashMap<>(geometries.size() * 4 / 3 + 1));
+        List<Geometry> distinct = new ArrayList<>(geometries.size());
+        for (Geometry geometry : geometries) {
+            if (geometry != null && seen.add(geometry)) {
+                distinct.add(geometry);
+            }
+        }
+        return distinct;
+    }
+}
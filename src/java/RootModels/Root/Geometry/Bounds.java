@@ -0,0 +1,71 @@
+package RootModels.Root.Geometry;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Bounding box helpers: computation over coordinate columns, shared by the polylines, and union of the boxes of several
+ * geometries, used by the aggregates of roots, plants and scenes.
+ */
+public final class Bounds {
+
+    private Bounds() {
+    }
+
+    /**
+     * Computes the axis-aligned bounding box of points, ignoring those with a NaN coordinate.
+     *
+     * @param xs   The x-coordinates of the points.
+     * @param ys   The y-coordinates of the points.
+     * @param size The number of points.
+     * @return The bounding box, or null if there is no point with valid coordinates.
+     */
+    static Rectangle2D.Double compute(double[] xs, double[] ys, int size) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                continue;
+            }
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+        if (minX > maxX) {
+            return null;
+        }
+        return new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    /**
+     * Copies a bounding box, so that callers cannot change a cached one.
+     *
+     * @param bounds The bounding box, or null.
+     * @return A copy of the bounding box, or null.
+     */
+    static Rectangle2D.Double copy(Rectangle2D bounds) {
+        return bounds == null ? null : new Rectangle2D.Double(bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight());
+    }
+
+    /**
+     * Merges two bounding boxes, either of which may be null.
+     *
+     * @param bounds A bounding box, modified and returned if not null.
+     * @param other  Another bounding box, left unchanged.
+     * @return The union of both boxes, or null if both are null.
+     */
+    public static Rectangle2D union(Rectangle2D bounds, Rectangle2D other) {
+        if (other == null) {
+            return bounds;
+        }
+        if (bounds == null) {
+            return (Rectangle2D) other.clone();
+        }
+        bounds.add(other);
+        return bounds;
+    }
+}
@@ -0,0 +1,18 @@
+package RootModels.Root.Geometry;
+
+/**
+ * Source of the coordinate columns of a geometry whose points are loaded on first access, for example from a memory-mapped
+ * snapshot file.
+ */
+public interface ColumnSource {
+
+    /**
+     * Reads the coordinate columns, in the order of the geometry: x and y, then time and hour for a 2D+t geometry,
+     * optionally followed by diameter, vx and vy.
+     * Called at most once per geometry.
+     *
+     * @return The columns, all with the number of points announced to the geometry.
+     * @throws java.io.UncheckedIOException If the columns cannot be read.
+     */
+    double[][] readColumns();
+}
@@ -24,6 +24,15 @@ public class Function {
         return name;
     }
 
+    /**
+     * Gets the samples of the function.
+     *
+     * @return The list of samples.
+     */
+    public List<Double> getSamples() {
+        return samples;
+    }
+
     /**
      * Returns a string representation of the function.
      *
@@ -2,6 +2,8 @@ package RootModels.Root.Geometry;
 
 import io.github.rocsg.fijiyama.registration.ItkTransform;
 
+import java.awt.geom.Rectangle2D;
+
 public interface Geometry {
     void scale(double scaleFactor);
 
@@ -15,6 +17,37 @@ public interface Geometry {
 
     void add(Object o);
 
+    /**
+     * Gets the number of points of the geometry.
+     *
+     * @return The number of points.
+     */
+    int size();
+
+    /**
+     * Gets the x-coordinate of a point.
+     *
+     * @param index The index of the point, between 0 and size() - 1.
+     * @return The x-coordinate.
+     */
+    double getX(int index);
+
+    /**
+     * Gets the y-coordinate of a point.
+     *
+     * @param index The index of the point, between 0 and size() - 1.
+     * @return The y-coordinate.
+     */
+    double getY(int index);
+
+    /**
+     * Gets the axis-aligned bounding box of the points of the geometry, points with a NaN coordinate excluded.
+     * The box is computed on the first call and cached until the points change, so that later calls take constant time.
+     *
+     * @return A copy of the bounding box, or null if the geometry has no point.
+     */
+    Rectangle2D getBounds();
+
     @Override
     boolean equals(Object o);
 }
@@ -3,19 +3,91 @@ package RootModels.Root.Geometry;
 import io.github.rocsg.fijiyama.registration.ItkTransform;
 
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Représente une polyligne 2D, définie comme une liste de points dans un plan 2D.
+ * Représente une polyligne 2D, définie comme une suite de points dans un plan 2D.
+ * Les coordonnées sont stockées dans des tableaux de doubles contigus (une colonne par coordonnée)
+ * qui s'agrandissent au fil des ajouts, sans objet par point.
  * Cette classe fournit des méthodes pour effectuer des opérations géométriques sur la polyligne.
  */
 public class Polyline2D implements Geometry {
-    // Liste des points représentant la polyligne
-    public final List<Point2D> polyline;
-    public final LocalDateTime dateOfCapture;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Pattern BRACKETED_POINT = Pattern.compile("[\\[(](-?\\d+(\\.\\d+)?),\\s*(-?\\d+(\\.\\d+)?)[])]");
+
+    // Coordonnées des points de la polyligne
+    private double[] xs;
+    private double[] ys;
+    private int size;
+    public LocalDateTime dateOfCapture;
+    // Source des coordonnées tant qu'elles n'ont pas été chargées, null ensuite
+    private volatile ColumnSource source;
+    // Boîte englobante, calculée à la première demande et effacée à chaque modification des points ; jamais modifiée
+    // une fois publiée, et volatile pour qu'un autre thread ne la voie pas à moitié construite
+    private volatile Rectangle2D.Double bounds;
+
+    /**
+     * Constructeur pour une Polyline2D vide.
+     *
+     * @param dateOfCapture Date de capture associée à la polyligne.
+     */
+    public Polyline2D(LocalDateTime dateOfCapture) {
+        this.xs = new double[INITIAL_CAPACITY];
+        this.ys = new double[INITIAL_CAPACITY];
+        this.size = 0;
+        this.dateOfCapture = dateOfCapture;
+    }
+
+    /**
+     * Constructeur pour une Polyline2D à partir de tableaux de coordonnées, utilisés tels quels sans copie.
+     *
+     * @param xs            Coordonnées x des points.
+     * @param ys            Coordonnées y des points, de même longueur que xs.
+     * @param dateOfCapture Date de capture associée à la polyligne.
+     */
+    public Polyline2D(double[] xs, double[] ys, LocalDateTime dateOfCapture) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Les tableaux de coordonnées doivent avoir la même longueur");
+        }
+        this.xs = xs;
+        this.ys = ys;
+        this.size = xs.length;
+        this.dateOfCapture = dateOfCapture;
+    }
+
+    /**
+     * Constructeur pour une Polyline2D dont les coordonnées sont chargées au premier accès.
+     * Seul le nombre de points est connu avant le chargement.
+     *
+     * @param size          Nombre de points.
+     * @param source        Source des colonnes x et y.
+     * @param dateOfCapture Date de capture associée à la polyligne.
+     */
+    public Polyline2D(int size, ColumnSource source, LocalDateTime dateOfCapture) {
+        this(size, source, null, dateOfCapture);
+    }
+
+    /**
+     * Constructeur pour une Polyline2D dont les coordonnées sont chargées au premier accès, et dont la boîte englobante
+     * est déjà connue : {@link #getBounds()} la renvoie sans charger les coordonnées.
+     *
+     * @param size          Nombre de points.
+     * @param source        Source des colonnes x et y.
+     * @param bounds        Boîte englobante des points, ou null si elle est inconnue.
+     * @param dateOfCapture Date de capture associée à la polyligne.
+     */
+    public Polyline2D(int size, ColumnSource source, Rectangle2D bounds, LocalDateTime dateOfCapture) {
+        this.size = size;
+        this.source = source;
+        this.bounds = Bounds.copy(bounds);
+        this.dateOfCapture = dateOfCapture;
+    }
 
     /**
      * Constructeur pour Polyline2D.
@@ -24,8 +96,101 @@ public class Polyline2D implements Geometry {
      * @param dateOfCapture Date de capture associée à la polyligne.
      */
     public Polyline2D(List<Point2D> polyline, LocalDateTime dateOfCapture) {
-        this.polyline = polyline;
-        this.dateOfCapture = dateOfCapture;
+        this(dateOfCapture);
+        ensureCapacity(polyline.size());
+        for (Point2D point : polyline) {
+            addPoint(point.getX(), point.getY());
+        }
+    }
+
+    /**
+     * Ajoute un point à la fin de la polyligne.
+     *
+     * @param x Coordonnée x du point.
+     * @param y Coordonnée y du point.
+     */
+    public void addPoint(double x, double y) {
+        materialize();
+        ensureCapacity(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+        bounds = null;
+    }
+
+    /**
+     * Réduit les tableaux internes au nombre de points, une fois la polyligne complète.
+     */
+    public void trimToSize() {
+        materialize();
+        if (xs.length != size) {
+            xs = Arrays.copyOf(xs, size);
+            ys = Arrays.copyOf(ys, size);
+        }
+    }
+
+    /**
+     * Indique si les coordonnées sont en mémoire.
+     *
+     * @return false si les coordonnées n'ont pas encore été lues depuis leur source.
+     */
+    public boolean isMaterialized() {
+        return source == null;
+    }
+
+    /**
+     * Charge les coordonnées depuis leur source si ce n'est pas déjà fait.
+     */
+    private void materialize() {
+        if (source == null) {
+            return;
+        }
+        synchronized (this) {
+            ColumnSource pending = source;
+            if (pending == null) {
+                return;
+            }
+            double[][] columns = pending.readColumns();
+            if (columns.length != 2 || columns[0].length != size || columns[1].length != size) {
+                throw new IllegalStateException("Colonnes de coordonnées incohérentes avec le nombre de points: " + size);
+            }
+            xs = columns[0];
+            ys = columns[1];
+            source = null;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int newCapacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, xs.length + (xs.length >> 1)));
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double getX(int index) {
+        materialize();
+        checkIndex(index);
+        return xs[index];
+    }
+
+    @Override
+    public double getY(int index) {
+        materialize();
+        checkIndex(index);
+        return ys[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", taille: " + size);
+        }
     }
 
     /**
@@ -35,11 +200,29 @@ public class Polyline2D implements Geometry {
      */
     @Override
     public void scale(double scaleFactor) {
-        polyline.forEach(point -> {
-            double newX = point.getX() * scaleFactor;
-            double newY = point.getY() * scaleFactor;
-            point.setLocation(newX, newY);
-        });
+        materialize();
+        for (int i = 0; i < size; i++) {
+            xs[i] *= scaleFactor;
+            ys[i] *= scaleFactor;
+        }
+        bounds = null;
+    }
+
+    /**
+     * Donne la boîte englobante des points de la polyligne, calculée une seule fois tant que les points ne changent pas.
+     * Une boîte fournie à la construction est renvoyée sans charger les coordonnées.
+     *
+     * @return Une copie de la boîte englobante, ou null si la polyligne n'a aucun point.
+     */
+    @Override
+    public Rectangle2D getBounds() {
+        Rectangle2D.Double box = bounds;
+        if (box == null) {
+            materialize();
+            box = Bounds.compute(xs, ys, size);
+            bounds = box;
+        }
+        return Bounds.copy(box);
     }
 
     /**
@@ -60,11 +243,12 @@ public class Polyline2D implements Geometry {
      */
     @Override
     public double getTotalLength() {
+        materialize();
         double totalLength = 0.0;
-        for (int i = 1; i < polyline.size(); i++) {
-            Point2D p1 = polyline.get(i - 1);
-            Point2D p2 = polyline.get(i);
-            totalLength += p1.distance(p2);
+        for (int i = 1; i < size; i++) {
+            double dx = xs[i] - xs[i - 1];
+            double dy = ys[i] - ys[i - 1];
+            totalLength += Math.sqrt(dx * dx + dy * dy);
         }
         return totalLength;
     }
@@ -76,10 +260,26 @@ public class Polyline2D implements Geometry {
      */
     @Override
     public void transform(ItkTransform transform) {
-        polyline.forEach(point -> {
-            double[] transformedPoint = transform.transformPoint(new double[]{point.getX(), point.getY(), 0});
-            point.setLocation(transformedPoint[0], transformedPoint[1]);
-        });
+        transform(transform, new double[3]);
+    }
+
+    /**
+     * Applique une transformation à la polyligne en réutilisant un tableau pour passer les points à la transformation.
+     *
+     * @param transform La transformation à appliquer.
+     * @param point     Tableau de travail d'au moins 3 éléments, écrasé à chaque point.
+     */
+    void transform(ItkTransform transform, double[] point) {
+        materialize();
+        for (int i = 0; i < size; i++) {
+            point[0] = xs[i];
+            point[1] = ys[i];
+            point[2] = 0;
+            double[] transformedPoint = transform.transformPoint(point);
+            xs[i] = transformedPoint[0];
+            ys[i] = transformedPoint[1];
+        }
+        bounds = null;
     }
 
     /**
@@ -101,23 +301,32 @@ public class Polyline2D implements Geometry {
      */
     @Override
     public void add(Object o) {
+        materialize();
         if (o instanceof Point2D) {
-            polyline.add((Point2D) o);
+            Point2D point = (Point2D) o;
+            addPoint(point.getX(), point.getY());
         } else if (o instanceof Polyline2D) {
-            polyline.addAll(((Polyline2D) o).getPolyline());
+            Polyline2D other = (Polyline2D) o;
+            other.materialize();
+            int otherSize = other.size;
+            ensureCapacity(size + otherSize);
+            System.arraycopy(other.xs, 0, xs, size, otherSize);
+            System.arraycopy(other.ys, 0, ys, size, otherSize);
+            size += otherSize;
+            bounds = null;
         } else if (o instanceof List) {
             List<?> list = (List<?>) o;
             for (Object item : list) {
                 if (item instanceof Point2D) {
-                    polyline.add((Point2D) item);
+                    Point2D point = (Point2D) item;
+                    addPoint(point.getX(), point.getY());
                 } else if (item instanceof String) {
                     String str = (String) item;
-                    Pattern pattern = Pattern.compile("[\\[(](-?\\d+(\\.\\d+)?),\\s*(-?\\d+(\\.\\d+)?)[])]");
-                    Matcher matcher = pattern.matcher(str);
+                    Matcher matcher = BRACKETED_POINT.matcher(str);
                     if (matcher.matches()) {
                         double x = Double.parseDouble(matcher.group(1));
                         double y = Double.parseDouble(matcher.group(3));
-                        polyline.add(new Point2D.Double(x, y));
+                        addPoint(x, y);
                     } else {
                         throw new IllegalArgumentException("La chaîne doit contenir deux valeurs numériques entre parenthèses ou crochets");
                     }
@@ -131,7 +340,7 @@ public class Polyline2D implements Geometry {
                 try {
                     double x = Double.parseDouble(coordinates[0].trim());
                     double y = Double.parseDouble(coordinates[1].trim());
-                    polyline.add(new Point2D.Double(x, y));
+                    addPoint(x, y);
                 } catch (NumberFormatException e) {
                     throw new IllegalArgumentException("Format de chaîne invalide pour Point2D: " + o);
                 }
@@ -144,12 +353,27 @@ public class Polyline2D implements Geometry {
     }
 
     /**
-     * Obtient la liste des points qui forment la polyligne.
+     * Obtient une copie des points qui forment la polyligne.
+     * Les modifications de la liste retournée ne sont pas répercutées sur la polyligne.
      *
      * @return Une liste d'objets Point2D représentant la polyligne.
      */
     public List<Point2D> getPolyline() {
-        return polyline;
+        materialize();
+        List<Point2D> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(new Point2D.Double(xs[i], ys[i]));
+        }
+        return points;
+    }
+
+    /**
+     * Définit la date de capture associée à la polyligne.
+     *
+     * @param dateOfCapture La date de capture.
+     */
+    public void setDateOfCapture(LocalDateTime dateOfCapture) {
+        this.dateOfCapture = dateOfCapture;
     }
 
     /**
@@ -160,10 +384,23 @@ public class Polyline2D implements Geometry {
      */
     @Override
     public boolean equals(Object o) {
+        materialize();
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
         Polyline2D that = (Polyline2D) o;
-        return this.polyline.equals(that.polyline);
+        that.materialize();
+        if (this.size != that.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (this.xs[i] != that.xs[i] || this.ys[i] != that.ys[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "Polyline2D{points=" + size + ", dateOfCapture=" + dateOfCapture + '}';
     }
 }
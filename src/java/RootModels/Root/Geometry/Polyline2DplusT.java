@@ -3,20 +3,141 @@ package RootModels.Root.Geometry;
 import io.github.rocsg.fijiyama.registration.ItkTransform;
 
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Represents a 2D+t polyline, defined as a list of points in a 2D plane with an associated time component.
+ * Represents a 2D+t polyline, defined as a sequence of points in a 2D plane with an associated time component.
+ * Points are stored column-wise in growable primitive arrays (x, y, time, hour, diameter, vx, vy), so the polyline holds
+ * no object per point and length and transform loops run over contiguous memory.
+ * Diameter and velocity are NaN for points added without them.
  * This class provides methods to perform geometric operations on the polyline over time.
  */
 public class Polyline2DplusT implements Geometry {
-    // List of points representing the polyline over time
-    public final List<Point2DWithTime> polyline;
-    public final LocalDateTime dateOfCapture;
+    private static final int INITIAL_CAPACITY = 16;
+    // Time order of a polyline whose points are already sorted by time
+    private static final int[] SORTED_BY_TIME = new int[0];
+    private static final Pattern BRACKETED_POINT = Pattern.compile("[\\[(](-?\\d+(\\.\\d+)?),\\s*(-?\\d+(\\.\\d+)?),\\s*(-?\\d+(\\.\\d+)?)[])]");
+
+    // Coordinates and time components of the points of the polyline
+    private double[] xs;
+    private double[] ys;
+    private double[] ts;
+    private double[] ths;
+    // Diameter and velocity of the points, NaN when unknown
+    private double[] ds;
+    private double[] vxs;
+    private double[] vys;
+    private int size;
+    public LocalDateTime dateOfCapture;
+    // Source of the coordinates until they are loaded, null afterwards
+    private volatile ColumnSource source;
+
+    // Length index, built lazily on the first length query and dropped on every mutation; published as a whole
+    // through a volatile field, so that concurrent readers never see it half-built
+    private volatile LengthIndex lengthIndex;
+    // Bounding box, computed on first request and dropped with the length index; never changed once published,
+    // and volatile so that another thread does not see it half-built
+    private volatile Rectangle2D.Double bounds;
+
+    // Time order, built lazily by the first partial transform and dropped when points are added, but not when they move:
+    // SORTED_BY_TIME if the times are in increasing order, otherwise the indices of the points by increasing time.
+    // Volatile so that the array is fully built when another thread sees it
+    private volatile int[] timeOrder;
+
+    /**
+     * Constructor for an empty Polyline2DplusT.
+     *
+     * @param dateOfCapture The date of capture associated with the polyline.
+     */
+    public Polyline2DplusT(LocalDateTime dateOfCapture) {
+        this.xs = new double[INITIAL_CAPACITY];
+        this.ys = new double[INITIAL_CAPACITY];
+        this.ts = new double[INITIAL_CAPACITY];
+        this.ths = new double[INITIAL_CAPACITY];
+        this.ds = new double[INITIAL_CAPACITY];
+        this.vxs = new double[INITIAL_CAPACITY];
+        this.vys = new double[INITIAL_CAPACITY];
+        this.size = 0;
+        this.dateOfCapture = dateOfCapture;
+    }
+
+    /**
+     * Constructor for a Polyline2DplusT over existing coordinate arrays, which are used as is, without copy.
+     * Diameter and velocity are unknown.
+     *
+     * @param xs            The x-coordinates of the points.
+     * @param ys            The y-coordinates of the points.
+     * @param ts            The times of the points.
+     * @param ths           The hour values of the points.
+     * @param dateOfCapture The date of capture associated with the polyline.
+     */
+    public Polyline2DplusT(double[] xs, double[] ys, double[] ts, double[] ths, LocalDateTime dateOfCapture) {
+        this(xs, ys, ts, ths, unknownColumn(xs.length), unknownColumn(xs.length), unknownColumn(xs.length), dateOfCapture);
+    }
+
+    /**
+     * Constructor for a Polyline2DplusT over existing coordinate, diameter and velocity arrays, which are used as is, without copy.
+     *
+     * @param xs            The x-coordinates of the points.
+     * @param ys            The y-coordinates of the points.
+     * @param ts            The times of the points.
+     * @param ths           The hour values of the points.
+     * @param ds            The diameters of the root at the points.
+     * @param vxs           The x-components of the velocity at the points.
+     * @param vys           The y-components of the velocity at the points.
+     * @param dateOfCapture The date of capture associated with the polyline.
+     */
+    public Polyline2DplusT(double[] xs, double[] ys, double[] ts, double[] ths, double[] ds, double[] vxs, double[] vys,
+                           LocalDateTime dateOfCapture) {
+        int n = xs.length;
+        if (ys.length != n || ts.length != n || ths.length != n || ds.length != n || vxs.length != n || vys.length != n) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        this.xs = xs;
+        this.ys = ys;
+        this.ts = ts;
+        this.ths = ths;
+        this.ds = ds;
+        this.vxs = vxs;
+        this.vys = vys;
+        this.size = n;
+        this.dateOfCapture = dateOfCapture;
+    }
+
+    /**
+     * Constructor for a Polyline2DplusT whose coordinates are loaded on first access.
+     * Only the number of points is known before loading.
+     *
+     * @param size          The number of points.
+     * @param source        The source of the x, y, time and hour columns, optionally followed by the diameter, vx and vy columns.
+     * @param dateOfCapture The date of capture associated with the polyline.
+     */
+    public Polyline2DplusT(int size, ColumnSource source, LocalDateTime dateOfCapture) {
+        this(size, source, null, dateOfCapture);
+    }
+
+    /**
+     * Constructor for a Polyline2DplusT whose coordinates are loaded on first access and whose bounding box is already known,
+     * so that {@link #getBounds()} answers without loading the coordinates.
+     *
+     * @param size          The number of points.
+     * @param source        The source of the x, y, time and hour columns, optionally followed by the diameter, vx and vy columns.
+     * @param bounds        The bounding box of the points, or null if unknown.
+     * @param dateOfCapture The date of capture associated with the polyline.
+     */
+    public Polyline2DplusT(int size, ColumnSource source, Rectangle2D bounds, LocalDateTime dateOfCapture) {
+        this.size = size;
+        this.source = source;
+        this.bounds = Bounds.copy(bounds);
+        this.dateOfCapture = dateOfCapture;
+    }
 
     /**
      * Constructor for Polyline2DplusT.
@@ -24,88 +145,585 @@ public class Polyline2DplusT implements Geometry {
      * @param polyline A list of Point2DWithTime objects that define the polyline.
      */
     public Polyline2DplusT(List<Point2DWithTime> polyline, LocalDateTime dateOfCapture) {
-        this.polyline = polyline;
-        this.dateOfCapture = dateOfCapture;
+        this(dateOfCapture);
+        ensureCapacity(polyline.size());
+        for (Point2DWithTime point : polyline) {
+            addPoint(point.getX(), point.getY(), point.getTime(), point.getTimeHour());
+        }
+    }
+
+    /**
+     * Appends a point of unknown diameter and velocity to the end of the polyline.
+     *
+     * @param x        The x-coordinate of the point.
+     * @param y        The y-coordinate of the point.
+     * @param time     The time associated with the point.
+     * @param timeHour The hour value associated with the point.
+     */
+    public void addPoint(double x, double y, double time, double timeHour) {
+        addPoint(x, y, time, timeHour, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Appends a point to the end of the polyline.
+     *
+     * @param x        The x-coordinate of the point.
+     * @param y        The y-coordinate of the point.
+     * @param time     The time associated with the point.
+     * @param timeHour The hour value associated with the point.
+     * @param diameter The diameter of the root at the point.
+     * @param vx       The x-component of the velocity at the point.
+     * @param vy       The y-component of the velocity at the point.
+     */
+    public void addPoint(double x, double y, double time, double timeHour, double diameter, double vx, double vy) {
+        materialize();
+        ensureCapacity(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        ts[size] = time;
+        ths[size] = timeHour;
+        ds[size] = diameter;
+        vxs[size] = vx;
+        vys[size] = vy;
+        size++;
+        invalidateLengthIndex();
+        timeOrder = null;
+    }
+
+    /**
+     * Shrinks the internal arrays to the number of points, once the polyline is complete.
+     */
+    public void trimToSize() {
+        materialize();
+        if (xs.length != size) {
+            xs = Arrays.copyOf(xs, size);
+            ys = Arrays.copyOf(ys, size);
+            ts = Arrays.copyOf(ts, size);
+            ths = Arrays.copyOf(ths, size);
+            ds = Arrays.copyOf(ds, size);
+            vxs = Arrays.copyOf(vxs, size);
+            vys = Arrays.copyOf(vys, size);
+        }
+    }
+
+    /**
+     * Tells whether the coordinates are in memory.
+     *
+     * @return False if the coordinates have not been read from their source yet.
+     */
+    public boolean isMaterialized() {
+        return source == null;
+    }
+
+    /**
+     * Loads the coordinates from their source if not done yet.
+     */
+    private void materialize() {
+        if (source == null) {
+            return;
+        }
+        synchronized (this) {
+            ColumnSource pending = source;
+            if (pending == null) {
+                return;
+            }
+            double[][] columns = pending.readColumns();
+            if (columns.length != 4 && columns.length != 7) {
+                throw new IllegalStateException("Expected 4 or 7 coordinate columns, got " + columns.length);
+            }
+            for (double[] column : columns) {
+                if (column.length != size) {
+                    throw new IllegalStateException("Coordinate columns do not match the number of points: " + size);
+                }
+            }
+            xs = columns[0];
+            ys = columns[1];
+            ts = columns[2];
+            ths = columns[3];
+            ds = columns.length == 7 ? columns[4] : unknownColumn(size);
+            vxs = columns.length == 7 ? columns[5] : unknownColumn(size);
+            vys = columns.length == 7 ? columns[6] : unknownColumn(size);
+            source = null;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int newCapacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, xs.length + (xs.length >> 1)));
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+            ts = Arrays.copyOf(ts, newCapacity);
+            ths = Arrays.copyOf(ths, newCapacity);
+            ds = Arrays.copyOf(ds, newCapacity);
+            vxs = Arrays.copyOf(vxs, newCapacity);
+            vys = Arrays.copyOf(vys, newCapacity);
+        }
+    }
+
+    private static double[] unknownColumn(int size) {
+        double[] column = new double[size];
+        Arrays.fill(column, Double.NaN);
+        return column;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double getX(int index) {
+        materialize();
+        checkIndex(index);
+        return xs[index];
+    }
+
+    @Override
+    public double getY(int index) {
+        materialize();
+        checkIndex(index);
+        return ys[index];
+    }
+
+    /**
+     * Gets the time associated with a point.
+     *
+     * @param index The index of the point.
+     * @return The time value.
+     */
+    public double getTime(int index) {
+        materialize();
+        checkIndex(index);
+        return ts[index];
+    }
+
+    /**
+     * Gets the hour value associated with a point.
+     *
+     * @param index The index of the point.
+     * @return The hour value.
+     */
+    public double getTimeHour(int index) {
+        materialize();
+        checkIndex(index);
+        return ths[index];
+    }
+
+    /**
+     * Gets the diameter of the root at a point.
+     *
+     * @param index The index of the point.
+     * @return The diameter, or NaN if unknown.
+     */
+    public double getDiameter(int index) {
+        materialize();
+        checkIndex(index);
+        return ds[index];
+    }
+
+    /**
+     * Gets the x-component of the velocity at a point.
+     *
+     * @param index The index of the point.
+     * @return The x-component of the velocity, or NaN if unknown.
+     */
+    public double getVx(int index) {
+        materialize();
+        checkIndex(index);
+        return vxs[index];
+    }
+
+    /**
+     * Gets the y-component of the velocity at a point.
+     *
+     * @param index The index of the point.
+     * @return The y-component of the velocity, or NaN if unknown.
+     */
+    public double getVy(int index) {
+        materialize();
+        checkIndex(index);
+        return vys[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+
+    /**
+     * Gets the bounding box of the points of the polyline, computed once as long as the points do not change.
+     * A bounding box given at construction is returned without loading the coordinates.
+     *
+     * @return A copy of the bounding box, or null if the polyline has no point.
+     */
+    @Override
+    public Rectangle2D getBounds() {
+        Rectangle2D.Double box = bounds;
+        if (box == null) {
+            materialize();
+            box = Bounds.compute(xs, ys, size);
+            bounds = box;
+        }
+        return Bounds.copy(box);
     }
 
     /**
      * Scales the polyline by a given factor (between 0 and 1).
+     * Diameters and velocities are lengths and are scaled with the coordinates.
      *
      * @param scaleFactor The factor by which to scale the polyline. Values greater than 1 will enlarge the polyline, while values between 0 and 1 will shrink it.
      */
     @Override
     public void scale(double scaleFactor) {
+        materialize();
         // For each point in the polyline, scale its coordinates relative to the origin (0,0)
-        polyline.forEach(point -> {
-            double newX = point.getX() * scaleFactor;
-            double newY = point.getY() * scaleFactor;
-            point.setLocation(newX, newY);
-        });
+        for (int i = 0; i < size; i++) {
+            xs[i] *= scaleFactor;
+            ys[i] *= scaleFactor;
+            ds[i] *= scaleFactor;
+            vxs[i] *= scaleFactor;
+            vys[i] *= scaleFactor;
+        }
+        invalidateLengthIndex();
     }
 
     /**
      * Calculates the length of the polyline until a given time.
+     * The polyline is followed from its first point up to the first point whose time is greater than the given time;
+     * the length of that last segment is interpolated linearly on the time of its two ends. Points of unknown (NaN) time
+     * never stop the walk, as points of earlier time than a point already passed.
+     * The answer comes from a binary search in the length index, in O(log n) once the index is built.
      *
      * @param time The time until which the length of the polyline should be calculated.
      * @return The length of the polyline up to the specified time.
      */
     @Override
     public double getLengthUntil(double time) {
-        double totalLength = 0.0;
-        for (int i = 1; i < polyline.size(); i++) {
-            Point2DWithTime p1 = polyline.get(i - 1);
-            Point2DWithTime p2 = polyline.get(i);
-            if (p2.getTime() > time) {
-                break;
-            }
-            totalLength += p1.distance(p2);
+        materialize();
+        if (size == 0) {
+            return 0.0;
+        }
+        LengthIndex index = buildLengthIndex();
+        double[] lengths = index.lengths;
+        int low = index.firstPointAfter(time);
+        if (low == size) {
+            return lengths[size - 1];
+        }
+        if (low == 0) {
+            return 0.0;
+        }
+
+        // Segment crossing the requested time: maxTimes[low - 1] <= time < ts[low]
+        double fraction = segmentFraction(index, low, time);
+        return lengths[low - 1] + fraction * (lengths[low] - lengths[low - 1]);
+    }
+
+    /**
+     * Calculates the mean diameter of the polyline until a given time, weighted by arc length.
+     * The polyline is cut at the given time as in {@link #getLengthUntil(double)}, the diameter at the cut being
+     * interpolated linearly between the two ends of the crossing segment. Answered in O(log n) from the length index.
+     *
+     * @param time The time until which the diameter should be averaged.
+     * @return The mean diameter, the diameter of the first point if the polyline has no length before the given time,
+     * or NaN if no point is before the given time or a diameter involved is unknown.
+     */
+    public double getMeanDiameterUntil(double time) {
+        materialize();
+        if (size == 0) {
+            return Double.NaN;
+        }
+        LengthIndex index = buildLengthIndex();
+        int low = index.firstPointAfter(time);
+        if (low == 0) {
+            return Double.NaN;
+        }
+        double length;
+        double integral;
+        if (low == size) {
+            length = index.lengths[size - 1];
+            integral = index.diameters[size - 1];
+        } else {
+            double fraction = segmentFraction(index, low, time);
+            double partLength = fraction * (index.lengths[low] - index.lengths[low - 1]);
+            double cutDiameter = ds[low - 1] + fraction * (ds[low] - ds[low - 1]);
+            length = index.lengths[low - 1] + partLength;
+            integral = index.diameters[low - 1] + partLength * (ds[low - 1] + cutDiameter) / 2;
+        }
+        return length > 0 ? integral / length : ds[0];
+    }
+
+    /**
+     * Calculates the mean diameter of the whole polyline, weighted by arc length.
+     *
+     * @return The mean diameter, or NaN if the polyline is empty or a diameter is unknown.
+     */
+    public double getMeanDiameter() {
+        return getMeanDiameterUntil(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Calculates the volume of the root until a given time.
+     * Each segment is taken as a truncated cone whose end diameters are those of its two points; the polyline is cut at the
+     * given time as in {@link #getMeanDiameterUntil(double)}. Answered in O(log n) from the length index.
+     *
+     * @param time The time until which the volume should be calculated.
+     * @return The volume, or NaN if a diameter involved is unknown.
+     */
+    public double getVolumeUntil(double time) {
+        materialize();
+        if (size == 0) {
+            return 0.0;
+        }
+        LengthIndex index = buildLengthIndex();
+        int low = index.firstPointAfter(time);
+        if (low == size) {
+            return index.volumes[size - 1];
+        }
+        if (low == 0) {
+            return 0.0;
+        }
+        double fraction = segmentFraction(index, low, time);
+        double partLength = fraction * (index.lengths[low] - index.lengths[low - 1]);
+        double cutDiameter = ds[low - 1] + fraction * (ds[low] - ds[low - 1]);
+        return index.volumes[low - 1] + frustumVolume(partLength, ds[low - 1], cutDiameter);
+    }
+
+    /**
+     * Calculates the volume of the whole root.
+     *
+     * @return The volume, or NaN if a diameter is unknown.
+     */
+    public double getTotalVolume() {
+        return getVolumeUntil(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Gets the fraction of the segment ending at a given point that lies before a given time.
+     * The segment starts at the largest known time so far, so that an unknown or earlier time of its first point
+     * does not push the fraction out of bounds.
+     *
+     * @param index The length index.
+     * @param i     The index of the end point of the segment, with maxTimes[i - 1] <= time < ts[i].
+     * @param time  The time.
+     * @return The fraction, between 0 and 1, or 0 if no time is known before the segment.
+     */
+    private double segmentFraction(LengthIndex index, int i, double time) {
+        double startTime = index.maxTimes[i - 1];
+        if (startTime == Double.NEGATIVE_INFINITY) {
+            return 0.0;
         }
-        return totalLength;
+        return (time - startTime) / (ts[i] - startTime);
+    }
+
+    /**
+     * Gets the volume of a truncated cone.
+     *
+     * @param length        The height of the cone.
+     * @param startDiameter The diameter at one end.
+     * @param endDiameter   The diameter at the other end.
+     * @return The volume.
+     */
+    private static double frustumVolume(double length, double startDiameter, double endDiameter) {
+        double r1 = startDiameter / 2;
+        double r2 = endDiameter / 2;
+        return Math.PI * length / 3 * (r1 * r1 + r1 * r2 + r2 * r2);
     }
 
     /**
      * Calculates the total length of the polyline.
      *
-     * @return The total length of the polyline, i.e., the sum of all the Euclidean distances between consecutive points in the list.
+     * @return The total length of the polyline, i.e., the sum of all the Euclidean distances between consecutive points.
      */
     @Override
     public double getTotalLength() {
-        double totalLength = 0.0;
-        for (int i = 1; i < polyline.size(); i++) {
-            Point2DWithTime p1 = polyline.get(i - 1);
-            Point2DWithTime p2 = polyline.get(i);
-            totalLength += p1.distance(p2);
+        materialize();
+        if (size == 0) {
+            return 0.0;
+        }
+        return buildLengthIndex().lengths[size - 1];
+    }
+
+    /**
+     * Gets the length index, building it if it is not up to date.
+     * Concurrent callers may each build an index; all of them are equal and the last one published is kept.
+     *
+     * @return The length index of the current points.
+     */
+    private LengthIndex buildLengthIndex() {
+        LengthIndex index = lengthIndex;
+        if (index != null) {
+            return index;
+        }
+        double[] lengths = new double[size];
+        double[] times = new double[size];
+        double[] diameters = new double[size];
+        double[] volumes = new double[size];
+        times[0] = Double.isNaN(ts[0]) ? Double.NEGATIVE_INFINITY : ts[0];
+        for (int i = 1; i < size; i++) {
+            double length = segmentLength(i);
+            lengths[i] = lengths[i - 1] + length;
+            // Not Math.max, which would propagate a NaN time to all the following points
+            times[i] = ts[i] > times[i - 1] ? ts[i] : times[i - 1];
+            diameters[i] = diameters[i - 1] + length * (ds[i - 1] + ds[i]) / 2;
+            volumes[i] = volumes[i - 1] + frustumVolume(length, ds[i - 1], ds[i]);
         }
-        return totalLength;
+        index = new LengthIndex(lengths, times, diameters, volumes);
+        lengthIndex = index;
+        return index;
+    }
+
+    /**
+     * Drops the length index and the bounding box after a change of the points; they are rebuilt on the next query.
+     */
+    private void invalidateLengthIndex() {
+        bounds = null;
+        lengthIndex = null;
+    }
+
+    /**
+     * Gets the length of the segment ending at a given point.
+     *
+     * @param i The index of the end point of the segment, at least 1.
+     * @return The Euclidean distance between points i - 1 and i.
+     */
+    private double segmentLength(int i) {
+        double dx = xs[i] - xs[i - 1];
+        double dy = ys[i] - ys[i - 1];
+        return Math.sqrt(dx * dx + dy * dy);
     }
 
     /**
      * Applies a given transformation to the polyline.
+     * Only the coordinates are transformed; diameters and velocities are kept as they are.
      *
      * @param transform An ItkTransform object that represents the transformation to be applied to each point in the polyline.
      */
     @Override
     public void transform(ItkTransform transform) {
-        polyline.forEach(point -> {
-            double[] transformedPoint = transform.transformPoint(new double[]{point.getX(), point.getY(), 0});
-            point.setLocation(transformedPoint[0], transformedPoint[1]);
-        });
+        transformBeforeTime(transform, Double.POSITIVE_INFINITY, new double[3]);
     }
 
     /**
      * Applies a transformation to the polyline before a specified time.
+     * The points to transform are found by binary search in the time order of the points, which is detected or built
+     * on the first call and kept as long as no point is added, so only those points are visited.
      *
      * @param transform An ItkTransform object representing the transformation to apply.
      * @param time      The time before which the transformation should be applied.
      */
     @Override
     public void transformBeforeTime(ItkTransform transform, double time) {
-        polyline.stream()
-                .filter(point -> point.getTime() <= time)
-                .forEach(point -> {
-                    double[] transformedPoint = transform.transformPoint(new double[]{point.getX(), point.getY(), 0});
-                    point.setLocation(transformedPoint[0], transformedPoint[1]);
-                });
+        transformBeforeTime(transform, time, new double[3]);
+    }
+
+    /**
+     * Applies a transformation to the polyline before a specified time, reusing an array to pass the points to the transformation.
+     *
+     * @param transform The transformation to apply.
+     * @param time      The time before which the transformation should be applied, or positive infinity for every point,
+     *                  including points without time.
+     * @param point     A scratch array of at least 3 elements, overwritten for each point.
+     */
+    void transformBeforeTime(ItkTransform transform, double time, double[] point) {
+        materialize();
+        if (time == Double.POSITIVE_INFINITY) {
+            transformRange(transform, 0, size, point);
+        } else {
+            // Only the points up to the time are visited, found by binary search in the time order
+            int[] order = buildTimeOrder();
+            int count = countPointsUntil(order, time);
+            if (order == SORTED_BY_TIME) {
+                transformRange(transform, 0, count, point);
+            } else {
+                for (int k = 0; k < count; k++) {
+                    transformPoint(transform, order[k], point);
+                }
+            }
+        }
+        invalidateLengthIndex();
+    }
+
+    private void transformRange(ItkTransform transform, int from, int to, double[] point) {
+        for (int i = from; i < to; i++) {
+            transformPoint(transform, i, point);
+        }
+    }
+
+    private void transformPoint(ItkTransform transform, int i, double[] point) {
+        point[0] = xs[i];
+        point[1] = ys[i];
+        point[2] = 0;
+        double[] transformedPoint = transform.transformPoint(point);
+        xs[i] = transformedPoint[0];
+        ys[i] = transformedPoint[1];
+    }
+
+    /**
+     * Tells whether the points of the polyline are in increasing order of time.
+     *
+     * @return True if each time is greater than or equal to the previous one.
+     */
+    public boolean isSortedByTime() {
+        materialize();
+        return buildTimeOrder() == SORTED_BY_TIME;
+    }
+
+    /**
+     * Builds the time order of the points if it is not up to date.
+     * Points without time (NaN) come last and are never before a given time.
+     *
+     * @return SORTED_BY_TIME if the points are already sorted by time, otherwise the indices of the points by increasing time.
+     */
+    private int[] buildTimeOrder() {
+        int[] order = timeOrder;
+        if (order != null) {
+            return order;
+        }
+        order = SORTED_BY_TIME;
+        for (int i = 1; i < size; i++) {
+            if (Double.compare(ts[i - 1], ts[i]) > 0) {
+                order = sortByTime();
+                break;
+            }
+        }
+        timeOrder = order;
+        return order;
+    }
+
+    private int[] sortByTime() {
+        Integer[] boxed = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, (a, b) -> Double.compare(ts[a], ts[b]));
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = boxed[i];
+        }
+        return order;
+    }
+
+    /**
+     * Counts the points whose time is not after a given time, by binary search in the time order.
+     *
+     * @param order The time order, as returned by {@link #buildTimeOrder()}.
+     * @param time  The time.
+     * @return The number of points whose time is less than or equal to the given time.
+     */
+    private int countPointsUntil(int[] order, double time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            double midTime = order == SORTED_BY_TIME ? ts[mid] : ts[order[mid]];
+            if (midTime <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
     /**
@@ -115,28 +733,43 @@ public class Polyline2DplusT implements Geometry {
      */
     @Override
     public void add(Object o) {
+        materialize();
         if (o instanceof Point2DWithTime) {
             // Add a single Point2DWithTime to the polyline
-            polyline.add((Point2DWithTime) o);
+            Point2DWithTime point = (Point2DWithTime) o;
+            addPoint(point.getX(), point.getY(), point.getTime(), point.getTimeHour());
         } else if (o instanceof Polyline2DplusT) {
             // Add all points from another Polyline2DplusT to this polyline
-            polyline.addAll(((Polyline2DplusT) o).getPolyline());
+            Polyline2DplusT other = (Polyline2DplusT) o;
+            other.materialize();
+            int otherSize = other.size;
+            ensureCapacity(size + otherSize);
+            System.arraycopy(other.xs, 0, xs, size, otherSize);
+            System.arraycopy(other.ys, 0, ys, size, otherSize);
+            System.arraycopy(other.ts, 0, ts, size, otherSize);
+            System.arraycopy(other.ths, 0, ths, size, otherSize);
+            System.arraycopy(other.ds, 0, ds, size, otherSize);
+            System.arraycopy(other.vxs, 0, vxs, size, otherSize);
+            System.arraycopy(other.vys, 0, vys, size, otherSize);
+            size += otherSize;
+            invalidateLengthIndex();
+            timeOrder = null;
         } else if (o instanceof List) {
             // Add a list of Point2DWithTime objects to the polyline
             List<?> list = (List<?>) o;
             for (Object item : list) {
                 if (item instanceof Point2DWithTime) {
-                    polyline.add((Point2DWithTime) item);
+                    Point2DWithTime point = (Point2DWithTime) item;
+                    addPoint(point.getX(), point.getY(), point.getTime(), point.getTimeHour());
                 } else if (item instanceof String) {
                     // Check if the string contains two numbers inside brackets or parentheses
                     String str = (String) item;
-                    Pattern pattern = Pattern.compile("[\\[(](-?\\d+(\\.\\d+)?),\\s*(-?\\d+(\\.\\d+)?),\\s*(-?\\d+(\\.\\d+)?)[])]");
-                    Matcher matcher = pattern.matcher(str);
+                    Matcher matcher = BRACKETED_POINT.matcher(str);
                     if (matcher.matches()) {
                         double x = Double.parseDouble(matcher.group(1));
                         double y = Double.parseDouble(matcher.group(3));
                         double time = Double.parseDouble(matcher.group(5));
-                        polyline.add(new Point2DWithTime(x, y, time, time));
+                        addPoint(x, y, time, time);
                     } else {
                         throw new IllegalArgumentException("String must contain two numeric values and a time value enclosed in brackets or parentheses");
                     }
@@ -152,7 +785,7 @@ public class Polyline2DplusT implements Geometry {
                     double x = Double.parseDouble(coordinates[0].trim());
                     double y = Double.parseDouble(coordinates[1].trim());
                     double time = Double.parseDouble(coordinates[2].trim());
-                    polyline.add(new Point2DWithTime(x, y, time, time));
+                    addPoint(x, y, time, time);
                 } catch (NumberFormatException e) {
                     throw new IllegalArgumentException("Invalid string format for Point2DWithTime: " + o);
                 }
@@ -165,36 +798,56 @@ public class Polyline2DplusT implements Geometry {
     }
 
     /**
-     * Gets the list of points that form the polyline.
+     * Gets a copy of the points that form the polyline.
+     * Changes to the returned list are not reflected in the polyline.
      *
      * @return A list of Point2DWithTime objects representing the polyline.
      */
     public List<Point2DWithTime> getPolyline() {
-        return polyline;
+        materialize();
+        List<Point2DWithTime> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(new Point2DWithTime(xs[i], ys[i], ts[i], ths[i]));
+        }
+        return points;
+    }
+
+    /**
+     * Sets the date of capture associated with the polyline.
+     *
+     * @param dateOfCapture The date of capture.
+     */
+    public void setDateOfCapture(LocalDateTime dateOfCapture) {
+        this.dateOfCapture = dateOfCapture;
     }
 
     /**
      * Checks if this polyline is equal to another object.
      *
      * @param o The object to compare with.
-     * @return True if the object is a Polyline2DplusT with the same points and associated times, false otherwise.
+     * @return True if the object is a Polyline2DplusT with the same points, false otherwise.
      */
     @Override
     public boolean equals(Object o) {
+        materialize();
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Polyline2DplusT that = (Polyline2DplusT) o;
-        if (this.polyline.size() != that.polyline.size()) return false;
-        for (int i = 0; i < this.polyline.size(); i++) {
-            Point2DWithTime p1 = this.polyline.get(i);
-            Point2DWithTime p2 = that.polyline.get(i);
-            if (!p1.equals(p2) || this.polyline.get(i).getX() != that.polyline.get(i).getX() || this.polyline.get(i).getY() != that.polyline.get(i).getY()) {
+        that.materialize();
+        if (this.size != that.size) return false;
+        for (int i = 0; i < this.size; i++) {
+            if (this.xs[i] != that.xs[i] || this.ys[i] != that.ys[i]) {
                 return false;
             }
         }
         return true;
     }
 
+    @Override
+    public String toString() {
+        return "Polyline2DplusT{points=" + size + ", dateOfCapture=" + dateOfCapture + '}';
+    }
+
     /**
      * Inner class representing a point in 2D space with associated time components.
      */
@@ -253,4 +906,43 @@ public class Polyline2DplusT implements Geometry {
             return Objects.hash(getX(), getY(), time, timeHour);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Cumulative arrays of the length index, immutable once built.
+     * The running maximum keeps the time index sorted even when point times are not monotonic,
+     * so that the first point past a given time can be found by binary search. NaN times are left out of the maximum.
+     */
+    private static final class LengthIndex {
+        final double[] lengths;   // Arc length from point 0 to point i
+        final double[] maxTimes;  // Largest known time among points 0..i, negative infinity if none is known
+        final double[] diameters; // Integral of the diameter along the arc from point 0 to point i
+        final double[] volumes;   // Volume of the truncated cones between point 0 and point i
+
+        LengthIndex(double[] lengths, double[] maxTimes, double[] diameters, double[] volumes) {
+            this.lengths = lengths;
+            this.maxTimes = maxTimes;
+            this.diameters = diameters;
+            this.volumes = volumes;
+        }
+
+        /**
+         * Finds the first point whose time, and thus running maximum time, exceeds a given time.
+         *
+         * @param time The time.
+         * @return The index of that point, or the number of points if there is none.
+         */
+        int firstPointAfter(double time) {
+            int low = 0;
+            int high = maxTimes.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (maxTimes[mid] > time) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+}
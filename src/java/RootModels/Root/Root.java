@@ -1,9 +1,11 @@
 package RootModels.Root;
 
 import RootModels.Plant;
+import RootModels.Root.Geometry.Bounds;
 import RootModels.Root.Geometry.Function;
 import RootModels.Root.Geometry.Geometry;
 
+import java.awt.geom.Rectangle2D;
 import java.util.List;
 
 public class Root {
@@ -104,6 +106,31 @@ public class Root {
         return geometry;
     }
 
+    /**
+     * Gets the bounding box of the geometry of the root, cached by the geometry.
+     *
+     * @return The bounding box, or null if the root has no geometry or no point.
+     */
+    public Rectangle2D getBounds() {
+        return geometry == null ? null : geometry.getBounds();
+    }
+
+    /**
+     * Gets the bounding box of the root and of all its descendants, from the cached boxes of their geometries,
+     * in time proportional to the number of roots.
+     *
+     * @return The bounding box, or null if no root of the subtree has a point.
+     */
+    public Rectangle2D getSubtreeBounds() {
+        Rectangle2D bounds = getBounds();
+        if (children != null) {
+            for (Root child : children) {
+                bounds = Bounds.union(bounds, child.getSubtreeBounds());
+            }
+        }
+        return bounds;
+    }
+
     /**
      * Gets the parent root.
      *
@@ -1,10 +1,16 @@
 package RootModels;
 
+import io.github.rocsg.fijiyama.registration.ItkTransform;
+
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import RootModels.Root.Root;
+import RootModels.Root.Geometry.BatchTransform;
+import RootModels.Root.Geometry.Geometry;
 
 public class RootModel {
     public final TreeMap<LocalDateTime, RootModelEntry> dataByDate;
@@ -17,6 +23,53 @@ public class RootModel {
         return dataByDate;
     }
 
+    /**
+     * Gets a root by its date of capture and ID.
+     *
+     * @param date The date of capture.
+     * @param id   The ID of the root.
+     * @return The root, or null if there is no data for this date or no root with this ID.
+     */
+    public Root getRoot(LocalDateTime date, String id) {
+        RootModelEntry entry = dataByDate.get(date);
+        return entry == null ? null : entry.getRootByID(id);
+    }
+
+    /**
+     * Gets every occurrence of a root ID across the dates of the model.
+     *
+     * @param id The ID of the root.
+     * @return The roots with this ID, by date of capture; dates without such a root are absent.
+     */
+    public TreeMap<LocalDateTime, Root> getRootAcrossDates(String id) {
+        TreeMap<LocalDateTime, Root> rootsByDate = new TreeMap<>();
+        for (Map.Entry<LocalDateTime, RootModelEntry> entry : dataByDate.entrySet()) {
+            Root root = entry.getValue().getRootByID(id);
+            if (root != null) {
+                rootsByDate.put(entry.getKey(), root);
+            }
+        }
+        return rootsByDate;
+    }
+
+    /**
+     * Applies a transformation to the geometries of every root of every date, in a single batch.
+     *
+     * @param transform   The transformation to apply.
+     * @param parallelism The number of threads to use, 1 to transform in the calling thread.
+     * @see BatchTransform
+     */
+    public void transform(ItkTransform transform, int parallelism) {
+        List<Geometry> geometries = new ArrayList<>();
+        for (RootModelEntry entry : dataByDate.values()) {
+            entry.collectGeometries(geometries);
+        }
+        BatchTransform.transform(geometries, transform, parallelism);
+        for (RootModelEntry entry : dataByDate.values()) {
+            entry.invalidateSpatialIndex();
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -30,15 +83,89 @@ public class RootModel {
         return sb.toString();
     }
 
-    static class RootModelEntry {
+    public static class RootModelEntry {
         public final Scene scene;
         public final Metadata metadata;
         public final List<Root> flatRootList;
+        private final Map<String, Root> rootsById; // Index of flatRootList by ID
+        private volatile RootSpatialIndex spatialIndex; // Built on first use, dropped when the geometries are transformed
 
         public RootModelEntry(Scene scene, Metadata metadata, List<Root> flatRootList) {
             this.scene = scene;
             this.metadata = metadata;
             this.flatRootList = flatRootList;
+            this.rootsById = new HashMap<>(flatRootList.size() * 4 / 3 + 1);
+            for (Root root : flatRootList) {
+                rootsById.putIfAbsent(root.getId(), root);
+            }
+        }
+
+        /**
+         * Gets a root of this date by its ID, in constant time.
+         * If several roots share the same ID, the first one of flatRootList is returned.
+         *
+         * @param id The ID of the root.
+         * @return The root with the specified ID, or null if not found.
+         */
+        public Root getRootByID(String id) {
+            return rootsById.get(id);
+        }
+
+        /**
+         * Gets the spatial index over the segments of the roots of this date, built on first use.
+         * The index is dropped by the transform methods of this class and of {@link RootModel}; it must be dropped
+         * with {@link #invalidateSpatialIndex()} after the geometries are changed otherwise.
+         *
+         * @return The spatial index.
+         */
+        public RootSpatialIndex getSpatialIndex() {
+            RootSpatialIndex index = spatialIndex;
+            if (index == null) {
+                index = new RootSpatialIndex(flatRootList);
+                spatialIndex = index;
+            }
+            return index;
+        }
+
+        /**
+         * Drops the spatial index, so that it is rebuilt from the current geometries on next use.
+         */
+        public void invalidateSpatialIndex() {
+            spatialIndex = null;
+        }
+
+        /**
+         * Applies a transformation to the geometries of every root of this date, in a single batch.
+         *
+         * @param transform   The transformation to apply.
+         * @param parallelism The number of threads to use, 1 to transform in the calling thread.
+         * @see BatchTransform
+         */
+        public void transform(ItkTransform transform, int parallelism) {
+            BatchTransform.transform(collectGeometries(new ArrayList<>(flatRootList.size())), transform, parallelism);
+            spatialIndex = null;
+        }
+
+        /**
+         * Applies a transformation to the points of the roots of this date whose time is not after a given time, in a single batch.
+         *
+         * @param transform   The transformation to apply.
+         * @param time        The time before which the transformation should be applied.
+         * @param parallelism The number of threads to use, 1 to transform in the calling thread.
+         * @see BatchTransform
+         */
+        public void transformBeforeTime(ItkTransform transform, double time, int parallelism) {
+            BatchTransform.transformBeforeTime(collectGeometries(new ArrayList<>(flatRootList.size())), transform, time, parallelism);
+            spatialIndex = null;
+        }
+
+        private List<Geometry> collectGeometries(List<Geometry> geometries) {
+            for (Root root : flatRootList) {
+                if (root.geometry != null) {
+                    geometries.add(root.geometry);
+                }
+            }
+            return geometries;
         }
     }
 }
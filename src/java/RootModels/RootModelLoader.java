@@ -1,74 +1,224 @@
 package RootModels;
 
+import Parser.DiagnosticsSink;
+import Parser.ParseDiagnostics;
+import Parser.ParsedRsml;
 import Parser.Parser2D;
 import Parser.Parser2DTime;
+import Parser.RSMLGenerator;
+import Parser.RSMLParser;
 import RootModels.Root.Geometry.Function;
 import RootModels.Root.Geometry.Geometry;
-import RootModels.Root.Geometry.Polyline2D;
-import RootModels.Root.Geometry.Polyline2DplusT;
-import RootModels.Root.Geometry.Polyline2DplusT.Point2DWithTime;
 import RootModels.Root.Property;
 import RootModels.Root.Root;
 
-import java.awt.geom.Point2D;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 public class RootModelLoader {
 
-    public static boolean isTemporal = false;
-
+    /**
+     * Charge les fichiers RSML passés en arguments et affiche le RootModel obtenu.
+     * Sans argument, une petite série synthétique est générée dans un dossier temporaire, supprimé à la fin du programme.
+     *
+     * @param args Chemins des fichiers RSML.
+     * @throws Exception si une erreur survient durant la génération ou le chargement.
+     */
     public static void main(String[] args) throws Exception {
-        TreeSet<String> files = new TreeSet<>(Arrays.asList(
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\13_05_2018_HA01_R004_h053.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\14_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\15_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\16_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\17_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\18_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\19_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\20_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\21_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\22_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\23_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\24_05_2018_HA01_R004_h004.rsml",
-                "D:\\loaiu\\MAM5\\Stage\\data\\UC3\\Rootsystemtracker\\Original_Data\\B73_R04_01\\25_05_2018_HA01_R004_h004.rsml"
-        ));
+        TreeSet<String> files = new TreeSet<>(Arrays.asList(args));
+        if (files.isEmpty()) {
+            RSMLGenerator.Options options = new RSMLGenerator.Options();
+            options.dates = 5;
+            Path directory = Files.createTempDirectory("rsml");
+            // Les suppressions à la sortie sont faites dans l'ordre inverse des inscriptions : les fichiers, puis le dossier
+            directory.toFile().deleteOnExit();
+            for (Path file : new RSMLGenerator(options).generate(directory)) {
+                file.toFile().deleteOnExit();
+                files.add(file.toString());
+            }
+        }
 
         RootModel rm = loadRsmlFiles(files);
         System.out.println(rm);
     }
 
+    /**
+     * Charge un ensemble de fichiers RSML dans un RootModel.
+     * Le format de chaque fichier (2D ou 2D+t) est détecté d'après son premier point, puis le fichier est parsé
+     * par Parser2D ou Parser2DTime ; les deux formats peuvent donc être mélangés, et aucun état partagé n'est modifié.
+     *
+     * @param rsmlFilePaths Chemins des fichiers RSML.
+     * @return Le RootModel construit à partir des fichiers.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
     public static RootModel loadRsmlFiles(Set<String> rsmlFilePaths) throws Exception {
-        boolean isTimeData = isTimeData(rsmlFilePaths);
+        return new RootModel(buildEntries(parseRsmlFiles(rsmlFilePaths, null, 1, null), null));
+    }
 
-        List<Map<String, Object>> parsedDataList;
-        if (isTimeData) {
-            Parser2DTime parser = new Parser2DTime();
-            parsedDataList = parser.parseRsmlFiles(new HashSet<>(rsmlFilePaths));
-        } else {
-            Parser2D parser = new Parser2D();
-            parsedDataList = parser.parseRsmlFiles(new HashSet<>(rsmlFilePaths));
+    /**
+     * Charge un ensemble de fichiers RSML dans un RootModel, en parsant les fichiers en parallèle.
+     *
+     * @param rsmlFilePaths  Chemins des fichiers RSML.
+     * @param executor       Exécuteur sur lequel parser les fichiers.
+     * @param maxConcurrency Nombre maximal de fichiers parsés simultanément.
+     * @return Le RootModel construit à partir des fichiers.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
+    public static RootModel loadRsmlFiles(Set<String> rsmlFilePaths, ExecutorService executor, int maxConcurrency) throws Exception {
+        return new RootModel(buildEntries(parseRsmlFiles(rsmlFilePaths, executor, maxConcurrency, null), null));
+    }
+
+    /**
+     * Ajoute de nouveaux fichiers RSML à un RootModel existant.
+     * Seuls les fichiers fournis sont parsés ; le résultat est un nouveau RootModel qui partage les entrées des dates déjà
+     * chargées, sans les reconstruire. Le RootModel fourni n'est pas modifié : ses lecteurs, même concurrents,
+     * n'en voient aucune modification. Comme pour {@link #loadRsmlFiles(Set)}, un fichier dont la date est déjà présente
+     * remplace l'entrée de cette date ; ces dates sont signalées à part dans le résultat.
+     *
+     * @param rootModel     Le RootModel à compléter.
+     * @param rsmlFilePaths Chemins des nouveaux fichiers RSML.
+     * @return Le nouveau RootModel, avec les dates ajoutées et les dates remplacées.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
+    public static AppendResult appendRsmlFiles(RootModel rootModel, Set<String> rsmlFilePaths) throws Exception {
+        return merge(rootModel, loadEntries(rsmlFilePaths, null));
+    }
+
+    /**
+     * Fusionne des entrées dans une copie des entrées d'un RootModel, sans modifier ce dernier. Une entrée dont la date
+     * est déjà présente remplace l'entrée existante.
+     *
+     * @param rootModel  Le RootModel à compléter.
+     * @param newEntries Les entrées à ajouter, par date de capture.
+     * @return Le nouveau RootModel, avec les dates ajoutées et les dates remplacées.
+     */
+    static AppendResult merge(RootModel rootModel, SortedMap<LocalDateTime, RootModel.RootModelEntry> newEntries) {
+        TreeMap<LocalDateTime, RootModel.RootModelEntry> dataByDate = new TreeMap<>(rootModel.dataByDate);
+        TreeSet<LocalDateTime> addedDates = new TreeSet<>();
+        TreeSet<LocalDateTime> replacedDates = new TreeSet<>();
+        for (Map.Entry<LocalDateTime, RootModel.RootModelEntry> entry : newEntries.entrySet()) {
+            if (dataByDate.put(entry.getKey(), entry.getValue()) == null) {
+                addedDates.add(entry.getKey());
+            } else {
+                replacedDates.add(entry.getKey());
+            }
+        }
+        return new AppendResult(new RootModel(dataByDate), addedDates, replacedDates);
+    }
+
+    /**
+     * Résultat de {@link #appendRsmlFiles(RootModel, Set)}.
+     */
+    public static final class AppendResult {
+        /**
+         * Le nouveau RootModel, avec les dates existantes et les dates des nouveaux fichiers.
+         */
+        public final RootModel rootModel;
+        /**
+         * Les dates qui n'existaient pas dans le RootModel d'origine.
+         */
+        public final SortedSet<LocalDateTime> addedDates;
+        /**
+         * Les dates déjà présentes dont l'entrée a été remplacée par celle d'un nouveau fichier.
+         */
+        public final SortedSet<LocalDateTime> replacedDates;
+
+        AppendResult(RootModel rootModel, SortedSet<LocalDateTime> addedDates, SortedSet<LocalDateTime> replacedDates) {
+            this.rootModel = rootModel;
+            this.addedDates = Collections.unmodifiableSortedSet(addedDates);
+            this.replacedDates = Collections.unmodifiableSortedSet(replacedDates);
+        }
+    }
+
+    /**
+     * Charge des fichiers RSML en entrées par date, sans les insérer dans un RootModel.
+     *
+     * @param rsmlFilePaths Chemins des fichiers RSML.
+     * @param sink          Destination des rapports de parsing, ou null pour la destination par défaut.
+     * @return Les entrées construites, par date de capture.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
+    static TreeMap<LocalDateTime, RootModel.RootModelEntry> loadEntries(Set<String> rsmlFilePaths, DiagnosticsSink sink) throws Exception {
+        return buildEntries(parseRsmlFiles(rsmlFilePaths, null, 1, sink), sink);
+    }
+
+    /**
+     * Parse des fichiers RSML, chacun avec le parseur correspondant à son format.
+     *
+     * @param rsmlFilePaths  Chemins des fichiers RSML.
+     * @param executor       Exécuteur sur lequel parser les fichiers, ou null pour les parser dans le thread appelant.
+     * @param maxConcurrency Nombre maximal de fichiers parsés simultanément sur l'exécuteur.
+     * @param sink           Destination des rapports de parsing, ou null pour la destination par défaut.
+     * @return Les données parsées des fichiers valides.
+     * @throws Exception si une erreur survient durant le parsing.
+     */
+    static List<ParsedRsml<?>> parseRsmlFiles(Set<String> rsmlFilePaths, ExecutorService executor, int maxConcurrency,
+                                              DiagnosticsSink sink) throws Exception {
+        Set<String> files2D = new HashSet<>();
+        Set<String> filesTime = new HashSet<>();
+        for (String filePath : rsmlFilePaths) {
+            if (isTimeData(filePath)) {
+                filesTime.add(filePath);
+            } else {
+                files2D.add(filePath);
+            }
         }
 
-        return buildRootModelFromParsedData(parsedDataList, isTimeData);
+        List<ParsedRsml<?>> parsedDataList = new ArrayList<>();
+        if (!files2D.isEmpty()) {
+            Parser2D parser = new Parser2D();
+            parser.setDiagnosticsSink(sink);
+            parsedDataList.addAll(executor == null ? parser.parseRsmlFiles(files2D) : parser.parseRsmlFiles(files2D, executor, maxConcurrency));
+        }
+        if (!filesTime.isEmpty()) {
+            Parser2DTime parser = new Parser2DTime();
+            parser.setDiagnosticsSink(sink);
+            parsedDataList.addAll(executor == null ? parser.parseRsmlFiles(filesTime) : parser.parseRsmlFiles(filesTime, executor, maxConcurrency));
+        }
+        return parsedDataList;
     }
 
-    private static boolean isTimeData(Set<String> rsmlFilePaths) {
-        return isTemporal;
+    /**
+     * Détermine le format d'un fichier RSML. Un fichier illisible est laissé au parseur 2D, qui signalera l'erreur
+     * dans le rapport du fichier.
+     *
+     * @param filePath Chemin du fichier RSML.
+     * @return true si le fichier est au format 2D+t, false sinon.
+     */
+    private static boolean isTimeData(String filePath) {
+        try {
+            return RSMLParser.containsTimeData(filePath);
+        } catch (Exception e) {
+            return false;
+        }
     }
 
-    private static RootModel buildRootModelFromParsedData(List<Map<String, Object>> parsedDataList, boolean isTimeData) {
+    /**
+     * Construit les entrées par date à partir des données parsées.
+     *
+     * @param parsedDataList Les données parsées des fichiers.
+     * @param sink           Destination des rapports des fichiers sans scène ou sans plante, ou null pour la destination par défaut.
+     * @return Les entrées construites, par date de capture.
+     */
+    static TreeMap<LocalDateTime, RootModel.RootModelEntry> buildEntries(List<? extends ParsedRsml<?>> parsedDataList, DiagnosticsSink sink) {
+        if (sink == null) {
+            sink = ParseDiagnostics.getDefaultSink();
+        }
         TreeMap<LocalDateTime, RootModel.RootModelEntry> dataByDate = new TreeMap<>();
 
-        for (Map<String, Object> parsedData : parsedDataList) {
-            Metadata metadata = buildMetadata((Map<String, Object>) parsedData.get("metadata"));
+        for (ParsedRsml<?> parsedData : parsedDataList) {
+            Metadata metadata = buildMetadata(parsedData.metadata);
 
             LocalDateTime dateOfCapture = metadata.getDateOfCapture().first();
 
-            List<Map<String, Object>> scenesData = (List<Map<String, Object>>) parsedData.get("scenes");
-            if (scenesData == null || scenesData.isEmpty()) {
-                System.err.println("Aucune scène trouvée dans les données parsées.");
+            ParseDiagnostics diagnostics = new ParseDiagnostics(parsedData.filePath);
+            List<? extends ParsedRsml.Scene<?>> scenesData = parsedData.scenes;
+            if (scenesData.isEmpty()) {
+                diagnostics.report(ParseDiagnostics.Category.NO_SCENE, null, null);
+                sink.accept(diagnostics);
                 continue; // Passer au fichier suivant
             }
 
@@ -76,63 +226,62 @@ public class RootModelLoader {
 
             List<Root> flatRootList = new ArrayList<>();
 
-            for (Map<String, Object> sceneData : scenesData) {
-                List<Map<String, Object>> plantsData = (List<Map<String, Object>>) sceneData.get("plants");
-                if (plantsData == null || plantsData.isEmpty()) {
-                    System.err.println("Aucune plante trouvée dans la scène.");
+            for (ParsedRsml.Scene<?> sceneData : scenesData) {
+                List<? extends ParsedRsml.Plant<?>> plantsData = sceneData.plants;
+                if (plantsData.isEmpty()) {
+                    diagnostics.report(ParseDiagnostics.Category.NO_PLANT, null, null);
                     continue; // Passer à la scène suivante
                 }
 
-                for (Map<String, Object> plantData : plantsData) {
-                    Plant plant = buildPlant(plantData, scene, isTimeData);
+                for (ParsedRsml.Plant<?> plantData : plantsData) {
+                    Plant plant = buildPlant(plantData, scene);
                     scene.addPlant(plant);
 
                     flatRootList.addAll(plant.getFlatRoots());
                 }
             }
 
+            if (!diagnostics.isEmpty()) {
+                sink.accept(diagnostics);
+            }
+
             RootModel.RootModelEntry entry = new RootModel.RootModelEntry(scene, metadata, flatRootList);
 
             dataByDate.put(dateOfCapture, entry);
         }
 
-        return new RootModel(dataByDate);
+        return dataByDate;
     }
 
     /**
      * Construit un objet Metadata à partir des données fournies.
      *
-     * @param metadataData Map contenant les données des métadonnées.
+     * @param metadataData Les métadonnées parsées.
      * @return Un objet Metadata.
      */
-    private static Metadata buildMetadata(Map<String, Object> metadataData) {
+    private static Metadata buildMetadata(ParsedRsml.Metadata metadataData) {
         Metadata metadata = new Metadata();
 
-        metadata.setVersion(Float.parseFloat((String) metadataData.getOrDefault("version", "0")));
-        metadata.setUnit((String) metadataData.getOrDefault("unit", ""));
-        metadata.setResolution(Float.parseFloat((String) metadataData.getOrDefault("resolution", "0")));
-        metadata.setModifyDate((LocalDateTime) metadataData.getOrDefault("lastModified", LocalDateTime.now()));
-        metadata.setSoftware((String) metadataData.getOrDefault("software", ""));
-        metadata.setUser((String) metadataData.getOrDefault("user", ""));
-        metadata.setFileKey((String) metadataData.getOrDefault("fileKey", ""));
-
-        List<Map<String, String>> propertyDefinitionsData = (List<Map<String, String>>) metadataData.getOrDefault("propertyDefinitions", Collections.emptyList());
-        List<Metadata.PropertyDefinition> propertyDefinitions = new ArrayList<>();
-        for (Map<String, String> propDefData : propertyDefinitionsData) {
-            String label = propDefData.getOrDefault("label", "");
-            String type = propDefData.getOrDefault("type", "");
-            String unit = propDefData.getOrDefault("unit", "");
-            Metadata.PropertyDefinition propDef = new Metadata.PropertyDefinition(label, type, unit);
-            propertyDefinitions.add(propDef);
+        metadata.setVersion(Float.parseFloat(metadataData.version));
+        metadata.setUnit(metadataData.unit);
+        metadata.setResolution(Float.parseFloat(metadataData.resolution));
+        metadata.setModifyDate(metadataData.lastModified != null ? metadataData.lastModified : LocalDateTime.now());
+        metadata.setSoftware(metadataData.software);
+        metadata.setUser(metadataData.user);
+        metadata.setFileKey(metadataData.fileKey);
+
+        List<Metadata.PropertyDefinition> propertyDefinitions = new ArrayList<>(metadataData.propertyDefinitions.size());
+        for (ParsedRsml.PropertyDefinition propDefData : metadataData.propertyDefinitions) {
+            propertyDefinitions.add(new Metadata.PropertyDefinition(propDefData.label, propDefData.type, propDefData.unit));
         }
         metadata.propertyDefinitions = propertyDefinitions;
 
         // Ajouter la date de capture
-        LocalDateTime dateToUse = (LocalDateTime) metadataData.getOrDefault("dateToUse", LocalDateTime.now());
+        LocalDateTime dateToUse = metadataData.dateToUse != null ? metadataData.dateToUse : LocalDateTime.now();
         metadata.addDateOfCapture(dateToUse);
 
         // Récupérer 'observationHours' s'il existe
-        List<Double> observationHours = (List<Double>) metadataData.get("observationHours");
+        List<Double> observationHours = metadataData.observationHours;
         if (observationHours != null) {
             metadata.setObservationHours(observationHours);
         }
@@ -140,40 +289,19 @@ public class RootModelLoader {
         return metadata;
     }
 
-    /**
-     * Construit un objet Scene à partir des données fournies.
-     *
-     * @param sceneData  Map contenant les données de la scène.
-     * @param isTimeData Indique si les données contiennent des informations temporelles.
-     * @return Un objet Scene.
-     */
-    private static Scene buildScene(Map<String, Object> sceneData, boolean isTimeData) {
-        Scene scene = new Scene();
-
-        List<Map<String, Object>> plantsData = (List<Map<String, Object>>) sceneData.get("plants");
-        for (Map<String, Object> plantData : plantsData) {
-            Plant plant = buildPlant(plantData, scene, isTimeData);
-            scene.addPlant(plant);
-        }
-
-        return scene;
-    }
-
     /**
      * Construit un objet Plant à partir des données fournies.
      *
-     * @param plantData   Map contenant les données de la plante.
+     * @param plantData   Les données parsées de la plante.
      * @param parentScene La scène parente.
-     * @param isTimeData  Indique si les données contiennent des informations temporelles.
      * @return Un objet Plant.
      */
-    private static Plant buildPlant(Map<String, Object> plantData, Scene parentScene, boolean isTimeData) {
+    private static Plant buildPlant(ParsedRsml.Plant<?> plantData, Scene parentScene) {
         Plant plant = new Plant();
         plant.parentScene = parentScene;
 
-        List<Map<String, Object>> rootsData = (List<Map<String, Object>>) plantData.get("roots");
-        for (Map<String, Object> rootData : rootsData) {
-            Root root = buildRoot(rootData, null, plant, isTimeData);
+        for (ParsedRsml.Root<?> rootData : plantData.roots) {
+            Root root = buildRoot(rootData, null, plant);
             plant.addRoot(root);
         }
 
@@ -183,78 +311,41 @@ public class RootModelLoader {
     /**
      * Construit un objet Root à partir des données fournies.
      *
-     * @param rootData    Map contenant les données de la racine.
+     * @param rootData    Les données parsées de la racine.
      * @param parentRoot  La racine parente.
      * @param parentPlant La plante parente.
-     * @param isTimeData  Indique si les données contiennent des informations temporelles.
      * @return Un objet Root.
      */
-    private static Root buildRoot(Map<String, Object> rootData, Root parentRoot, Plant parentPlant, boolean isTimeData) {
-        String id = (String) rootData.getOrDefault("ID", "");
-        String label = (String) rootData.getOrDefault("label", "");
-        String poAccession = (String) rootData.getOrDefault("po:accession", "");
-        int order = (int) rootData.getOrDefault("order", 1);
+    private static Root buildRoot(ParsedRsml.Root<?> rootData, Root parentRoot, Plant parentPlant) {
+        String id = rootData.id;
+        String label = rootData.label;
+        String poAccession = rootData.poAccession;
+        int order = rootData.order;
 
         // Propriétés
-        Map<String, Double> propertiesData = (Map<String, Double>) rootData.getOrDefault("properties", Collections.emptyMap());
-        List<Property> properties = new ArrayList<>();
-        for (Map.Entry<String, Double> entry : propertiesData.entrySet()) {
+        List<Property> properties = new ArrayList<>(rootData.properties.size());
+        for (Map.Entry<String, Double> entry : rootData.properties.entrySet()) {
             Property property = new Property(entry.getKey(), entry.getValue());
             properties.add(property);
         }
 
         // Fonctions
-        Map<String, List<Double>> functionsData = (Map<String, List<Double>>) rootData.getOrDefault("functions", Collections.emptyMap());
-        List<Function> functions = new ArrayList<>();
-        for (Map.Entry<String, List<Double>> entry : functionsData.entrySet()) {
+        List<Function> functions = new ArrayList<>(rootData.functions.size());
+        for (Map.Entry<String, List<Double>> entry : rootData.functions.entrySet()) {
             Function function = new Function(entry.getKey(), entry.getValue());
             functions.add(function);
         }
 
-        // Géométrie
-        List<List<?>> geometryData = (List<List<?>>) rootData.get("geometry");
-        Geometry geometry = null;
-        if (geometryData != null && !geometryData.isEmpty()) {
-            // Déterminer le type de données (2D ou 2D+t)
-            if (isTimeData) {
-                // Données 2D+t
-                List<Point2DWithTime> points = new ArrayList<>();
-                for (List<?> polylineData : geometryData) {
-                    for (Object pointObj : polylineData) {
-                        Parser2DTime.PointData pointData = (Parser2DTime.PointData) pointObj;
-                        Point2DWithTime point = new Point2DWithTime(pointData.coord_x, pointData.coord_y, pointData.coord_t, pointData.coord_th);
-                        points.add(point);
-                    }
-                }
-                geometry = new Polyline2DplusT(points, LocalDateTime.now());
-            } else {
-                // Données 2D
-                List<Point2D> points = new ArrayList<>();
-                for (List<?> polylineData : geometryData) {
-                    for (Object pointObj : polylineData) {
-                        Point2D.Double pointData = (Point2D.Double) pointObj;
-                        points.add(pointData);
-                    }
-                }
-                // Récupérer la date de capture à partir des métadonnées
-                LocalDateTime dateOfCapture = (LocalDateTime) rootData.get("date");
-                if (dateOfCapture == null) {
-                    dateOfCapture = LocalDateTime.now();
-                }
-                geometry = new Polyline2D(points, dateOfCapture);
-            }
-        }
+        // Géométrie, déjà construite par le parseur (Polyline2D ou Polyline2DplusT)
+        Geometry geometry = rootData.geometry;
 
         // Créer la racine sans enfants pour commencer
         Root root = new Root(new ArrayList<>(), id, order, properties, label, functions, poAccession, parentRoot, geometry, parentPlant);
 
         // Racines enfants
-        List<Map<String, Object>> childRootsData = (List<Map<String, Object>>) rootData.get("childRoots");
-        if (childRootsData != null) {
-            for (Map<String, Object> childRootData : childRootsData) {
-                Root childRoot = buildRoot(childRootData, root, parentPlant, isTimeData);
-                root.children.add(childRoot);
-            }
+        for (ParsedRsml.Root<?> childRootData : rootData.childRoots) {
+            Root childRoot = buildRoot(childRootData, root, parentPlant);
+            root.children.add(childRoot);
         }
 
         // Ajouter la racine au flatSet de la plante
@@ -0,0 +1,789 @@
+package RootModels;
+
+import RootModels.Root.Geometry.ColumnSource;
+import RootModels.Root.Geometry.Function;
+import RootModels.Root.Geometry.Geometry;
+import RootModels.Root.Geometry.Polyline2D;
+import RootModels.Root.Geometry.Polyline2DplusT;
+import RootModels.Root.Property;
+import RootModels.Root.Root;
+
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a fully loaded RootModel, so that an experiment can be re-opened without parsing its RSML files again.
+ * <p>
+ * Layout of a snapshot file (big-endian):
+ * <ul>
+ *     <li>a fixed-size header: magic number, format version, offsets, lengths and CRC32 of the two sections, and the CRC32
+ *     of the header itself;</li>
+ *     <li>the geometry section: the coordinates of every geometry as contiguous columns of doubles (x, y, and for 2D+t
+ *     geometries time, hour, diameter, vx and vy);</li>
+ *     <li>the structure section: dates, metadata, scenes, plants, the root hierarchy with properties and functions,
+ *     and the flat root list of each date. Each geometry is referenced by its type, point count, offset and the CRC32
+ *     of its block, followed by its date of capture and bounding box.</li>
+ * </ul>
+ * The file is memory-mapped when read. The geometry section is mapped in chunks of {@link #CHUNK_SIZE} bytes, and the writer
+ * pads it so that no geometry block crosses a chunk boundary; coordinates are then bulk-copied from the mapping.
+ * In lazy mode, geometries are only copied from the mapping the first time they are accessed, so opening a large model
+ * costs the structure plus the geometries actually queried; bounding boxes are read from the structure, so spatial
+ * extents of roots, plants and scenes do not load any geometry.
+ * Metadata image information is not part of the snapshot.
+ */
+public class RootModelSnapshot {
+
+    public static final int MAGIC = 0x524D534E; // "RMSN"
+    public static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final long CHUNK_SIZE = 1L << 30;
+
+    private static final byte GEOMETRY_NONE = 0;
+    private static final byte GEOMETRY_2D = 1;
+    private static final byte GEOMETRY_2D_T = 2;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private RootModelSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a RootModel.
+     * Geometries other than Polyline2D and Polyline2DplusT are stored as Polyline2D, from their x and y coordinates.
+     *
+     * @param model The model to write.
+     * @param file  The snapshot file, created or overwritten.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(RootModel model, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+
+            // Geometries first: their offsets are known once written, and the structure refers to them
+            GeometryWriter geometryWriter = new GeometryWriter(channel, HEADER_SIZE);
+            ByteArrayOutputStream structureBytes = new ByteArrayOutputStream();
+            DataOutputStream structure = new DataOutputStream(structureBytes);
+
+            structure.writeInt(model.dataByDate.size());
+            for (Map.Entry<LocalDateTime, RootModel.RootModelEntry> entry : model.dataByDate.entrySet()) {
+                writeDate(structure, entry.getKey());
+                writeEntry(structure, geometryWriter, entry.getValue());
+            }
+            structure.flush();
+
+            long geometryLength = geometryWriter.finish();
+            long structureOffset = HEADER_SIZE + geometryLength;
+            byte[] structureArray = structureBytes.toByteArray();
+            CRC32 structureCrc = new CRC32();
+            structureCrc.update(structureArray, 0, structureArray.length);
+            writeFully(channel, ByteBuffer.wrap(structureArray), structureOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            header.putInt(model.dataByDate.size());
+            header.putInt(0); // Flags, reserved
+            header.putLong(HEADER_SIZE);
+            header.putLong(geometryLength);
+            header.putLong(structureOffset);
+            header.putLong(structureArray.length);
+            header.putInt((int) geometryWriter.crc.getValue());
+            header.putInt((int) structureCrc.getValue());
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(header.array(), 0, header.position());
+            header.putInt((int) headerCrc.getValue());
+            header.putInt(0);
+            header.flip();
+            writeFully(channel, header, 0);
+            channel.truncate(structureOffset + structureArray.length);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(RootModel, Path)}, after checking its header and the checksums of both sections.
+     *
+     * @param file The snapshot file.
+     * @return The RootModel stored in the snapshot.
+     * @throws IOException If the file cannot be read, is not a snapshot, has an unsupported version or is corrupted.
+     */
+    public static RootModel read(Path file) throws IOException {
+        return read(file, false);
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write(RootModel, Path)}.
+     * <p>
+     * In lazy mode, the hierarchy, metadata, properties and functions are read, but each geometry only records the position
+     * of its coordinates in the mapped file and copies them on first access. The checksum of a geometry block is then
+     * verified when the block is loaded, instead of checking the whole geometry section up front; a corrupted block
+     * surfaces as an {@link java.io.UncheckedIOException} from the geometry. The mapping stays valid after this method
+     * returns and is released once the model is no longer referenced.
+     *
+     * @param file         The snapshot file.
+     * @param lazyGeometry True to load geometries on first access, false to load them all now.
+     * @return The RootModel stored in the snapshot.
+     * @throws IOException If the file cannot be read, is not a snapshot, has an unsupported version or is corrupted.
+     */
+    public static RootModel read(Path file, boolean lazyGeometry) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Header header = Header.read(channel, file);
+
+            GeometrySection geometry = new GeometrySection(file, channel, header.geometryOffset, header.geometryLength, lazyGeometry);
+            if (!lazyGeometry && geometry.crc() != header.geometryCrc) {
+                throw new IOException("Corrupted snapshot " + file + ": geometry checksum mismatch");
+            }
+
+            if (header.structureLength > Integer.MAX_VALUE) {
+                throw new IOException("Structure section too large in snapshot " + file);
+            }
+            ByteBuffer structure = channel.map(FileChannel.MapMode.READ_ONLY, header.structureOffset, header.structureLength);
+            CRC32 structureCrc = new CRC32();
+            structureCrc.update(structure.duplicate());
+            if ((int) structureCrc.getValue() != header.structureCrc) {
+                throw new IOException("Corrupted snapshot " + file + ": structure checksum mismatch");
+            }
+
+            try {
+                return readModel(structure, geometry, header.dateCount);
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid structure in snapshot " + file + ": " + e, e);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- Structure writing
+
+    private static void writeEntry(DataOutputStream out, GeometryWriter geometryWriter, RootModel.RootModelEntry entry) throws IOException {
+        writeMetadata(out, entry.metadata);
+
+        // Roots are numbered in scene traversal order, so that the flat root list can refer to them
+        IdentityHashMap<Root, Integer> rootIndices = new IdentityHashMap<>();
+        List<Plant> plants = entry.scene.getPlants();
+        out.writeInt(plants.size());
+        for (Plant plant : plants) {
+            writeString(out, plant.id);
+            writeString(out, plant.label);
+            out.writeInt(plant.getRoots().size());
+            for (Root root : plant.getRoots()) {
+                writeRoot(out, geometryWriter, root, rootIndices);
+            }
+        }
+
+        out.writeInt(entry.flatRootList.size());
+        for (Root root : entry.flatRootList) {
+            Integer index = rootIndices.get(root);
+            if (index == null) {
+                throw new IllegalArgumentException("Root " + root.getId() + " of the flat root list is not part of the scene");
+            }
+            out.writeInt(index);
+        }
+    }
+
+    private static void writeMetadata(DataOutputStream out, Metadata metadata) throws IOException {
+        out.writeFloat(metadata.getVersion());
+        writeString(out, metadata.getUnit());
+        out.writeFloat(metadata.getResolution());
+        writeDate(out, metadata.getModifyDate());
+        out.writeInt(metadata.getDateOfCapture().size());
+        for (LocalDateTime date : metadata.getDateOfCapture()) {
+            writeDate(out, date);
+        }
+        writeString(out, metadata.getSoftware());
+        writeString(out, metadata.getUser());
+        writeString(out, metadata.getFileKey());
+        List<Double> observationHours = metadata.getObservationHours();
+        out.writeInt(observationHours.size());
+        for (double hour : observationHours) {
+            out.writeDouble(hour);
+        }
+        List<Metadata.PropertyDefinition> propertyDefinitions = metadata.getPropertyDefinitions();
+        out.writeInt(propertyDefinitions.size());
+        for (Metadata.PropertyDefinition definition : propertyDefinitions) {
+            writeString(out, definition.label);
+            writeString(out, definition.type);
+            writeString(out, definition.unit);
+        }
+    }
+
+    private static void writeRoot(DataOutputStream out, GeometryWriter geometryWriter, Root root,
+                                  IdentityHashMap<Root, Integer> rootIndices) throws IOException {
+        rootIndices.put(root, rootIndices.size());
+
+        writeString(out, root.getId());
+        writeString(out, root.getLabel());
+        writeString(out, root.getPoAccession());
+        out.writeInt(root.getOrder());
+
+        out.writeInt(root.getProperties().size());
+        for (Property property : root.getProperties()) {
+            writeString(out, property.getName());
+            out.writeDouble(property.getValue());
+        }
+
+        out.writeInt(root.getFunctions().size());
+        for (Function function : root.getFunctions()) {
+            writeString(out, function.getName());
+            List<Double> samples = function.getSamples();
+            out.writeInt(samples.size());
+            for (double sample : samples) {
+                out.writeDouble(sample);
+            }
+        }
+
+        writeGeometry(out, geometryWriter, root.getGeometry());
+
+        out.writeInt(root.getChildren().size());
+        for (Root child : root.getChildren()) {
+            writeRoot(out, geometryWriter, child, rootIndices);
+        }
+    }
+
+    private static void writeGeometry(DataOutputStream out, GeometryWriter geometryWriter, Geometry geometry) throws IOException {
+        if (geometry == null) {
+            out.writeByte(GEOMETRY_NONE);
+            return;
+        }
+        int size = geometry.size();
+        if (geometry instanceof Polyline2DplusT) {
+            Polyline2DplusT polyline = (Polyline2DplusT) geometry;
+            out.writeByte(GEOMETRY_2D_T);
+            out.writeInt(size);
+            out.writeLong(geometryWriter.startBlock(size, 7));
+            for (int i = 0; i < size; i++) geometryWriter.putDouble(polyline.getX(i));
+            for (int i = 0; i < size; i++) geometryWriter.putDouble(polyline.getY(i));
+            for (int i = 0; i < size; i++) geometryWriter.putDouble(polyline.getTime(i));
+            for (int i = 0; i < size; i++) geometryWriter.putDouble(polyline.getTimeHour(i));
+            for (int i = 0; i < size; i++) geometryWriter.putDouble(polyline.getDiameter(i));
+            for (int i = 0; i < size; i++) geometryWriter.putDouble(polyline.getVx(i));
+            for (int i = 0; i < size; i++) geometryWriter.putDouble(polyline.getVy(i));
+            out.writeInt(geometryWriter.endBlock());
+            writeDate(out, polyline.dateOfCapture);
+            writeBounds(out, polyline.getBounds());
+        } else {
+            out.writeByte(GEOMETRY_2D);
+            out.writeInt(size);
+            out.writeLong(geometryWriter.startBlock(size, 2));
+            for (int i = 0; i < size; i++) geometryWriter.putDouble(geometry.getX(i));
+            for (int i = 0; i < size; i++) geometryWriter.putDouble(geometry.getY(i));
+            out.writeInt(geometryWriter.endBlock());
+            writeDate(out, geometry instanceof Polyline2D ? ((Polyline2D) geometry).dateOfCapture : null);
+            writeBounds(out, geometry.getBounds());
+        }
+    }
+
+    private static void writeBounds(DataOutputStream out, Rectangle2D bounds) throws IOException {
+        if (bounds == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        out.writeDouble(bounds.getX());
+        out.writeDouble(bounds.getY());
+        out.writeDouble(bounds.getWidth());
+        out.writeDouble(bounds.getHeight());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDateTime date) throws IOException {
+        if (date == null) {
+            out.writeLong(NULL_DATE);
+            return;
+        }
+        out.writeLong(date.toLocalDate().toEpochDay());
+        out.writeLong(date.toLocalTime().toNanoOfDay());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    // ---------------------------------------------------------------- Structure reading
+
+    private static RootModel readModel(ByteBuffer in, GeometrySection geometry, int dateCount) throws IOException {
+        int storedDateCount = in.getInt();
+        if (storedDateCount != dateCount) {
+            throw new IllegalStateException("date count mismatch between header and structure");
+        }
+        TreeMap<LocalDateTime, RootModel.RootModelEntry> dataByDate = new TreeMap<>();
+        for (int d = 0; d < dateCount; d++) {
+            LocalDateTime date = readDate(in);
+            dataByDate.put(date, readEntry(in, geometry));
+        }
+        return new RootModel(dataByDate);
+    }
+
+    private static RootModel.RootModelEntry readEntry(ByteBuffer in, GeometrySection geometry) throws IOException {
+        Metadata metadata = readMetadata(in);
+
+        Scene scene = new Scene();
+        List<Root> roots = new ArrayList<>();
+        int plantCount = in.getInt();
+        for (int p = 0; p < plantCount; p++) {
+            Plant plant = new Plant();
+            plant.id = readString(in);
+            plant.label = readString(in);
+            plant.parentScene = scene;
+            int rootCount = in.getInt();
+            for (int r = 0; r < rootCount; r++) {
+                plant.addRoot(readRoot(in, geometry, null, plant, roots));
+            }
+            scene.addPlant(plant);
+        }
+
+        int flatRootCount = in.getInt();
+        List<Root> flatRootList = new ArrayList<>(flatRootCount);
+        for (int i = 0; i < flatRootCount; i++) {
+            flatRootList.add(roots.get(in.getInt()));
+        }
+        return new RootModel.RootModelEntry(scene, metadata, flatRootList);
+    }
+
+    private static Metadata readMetadata(ByteBuffer in) {
+        Metadata metadata = new Metadata();
+        metadata.setVersion(in.getFloat());
+        metadata.setUnit(readString(in));
+        metadata.setResolution(in.getFloat());
+        metadata.setModifyDate(readDate(in));
+        int dateCount = in.getInt();
+        for (int i = 0; i < dateCount; i++) {
+            metadata.addDateOfCapture(readDate(in));
+        }
+        metadata.setSoftware(readString(in));
+        metadata.setUser(readString(in));
+        metadata.setFileKey(readString(in));
+        int hourCount = in.getInt();
+        List<Double> observationHours = new ArrayList<>(hourCount);
+        for (int i = 0; i < hourCount; i++) {
+            observationHours.add(in.getDouble());
+        }
+        metadata.setObservationHours(observationHours);
+        int definitionCount = in.getInt();
+        List<Metadata.PropertyDefinition> propertyDefinitions = new ArrayList<>(definitionCount);
+        for (int i = 0; i < definitionCount; i++) {
+            propertyDefinitions.add(new Metadata.PropertyDefinition(readString(in), readString(in), readString(in)));
+        }
+        metadata.propertyDefinitions = propertyDefinitions;
+        return metadata;
+    }
+
+    /**
+     * Reads a root and its children, in the same order as RootModelLoader builds them.
+     */
+    private static Root readRoot(ByteBuffer in, GeometrySection geometrySection, Root parent, Plant plant, List<Root> roots) throws IOException {
+        String id = readString(in);
+        String label = readString(in);
+        String poAccession = readString(in);
+        int order = in.getInt();
+
+        int propertyCount = in.getInt();
+        List<Property> properties = new ArrayList<>(propertyCount);
+        for (int i = 0; i < propertyCount; i++) {
+            properties.add(new Property(readString(in), in.getDouble()));
+        }
+
+        int functionCount = in.getInt();
+        List<Function> functions = new ArrayList<>(functionCount);
+        for (int i = 0; i < functionCount; i++) {
+            String name = readString(in);
+            int sampleCount = in.getInt();
+            List<Double> samples = new ArrayList<>(sampleCount);
+            for (int j = 0; j < sampleCount; j++) {
+                samples.add(in.getDouble());
+            }
+            functions.add(new Function(name, samples));
+        }
+
+        Geometry geometry = readGeometry(in, geometrySection);
+
+        Root root = new Root(new ArrayList<>(), id, order, properties, label, functions, poAccession, parent, geometry, plant);
+        roots.add(root);
+
+        int childCount = in.getInt();
+        for (int i = 0; i < childCount; i++) {
+            root.children.add(readRoot(in, geometrySection, root, plant, roots));
+        }
+
+        plant.add2FlatSet(root);
+        return root;
+    }
+
+    private static Geometry readGeometry(ByteBuffer in, GeometrySection geometrySection) throws IOException {
+        byte type = in.get();
+        switch (type) {
+            case GEOMETRY_NONE:
+                return null;
+            case GEOMETRY_2D: {
+                int size = in.getInt();
+                long offset = in.getLong();
+                int crc = in.getInt();
+                LocalDateTime date = readDate(in);
+                Rectangle2D bounds = readBounds(in);
+                geometrySection.checkBlock(offset, size, 2);
+                if (geometrySection.lazy) {
+                    return new Polyline2D(size, new MappedColumns(geometrySection, offset, size, 2, crc), bounds, date);
+                }
+                double[][] columns = geometrySection.readColumns(offset, size, 2, false, 0);
+                return new Polyline2D(columns[0], columns[1], date);
+            }
+            case GEOMETRY_2D_T: {
+                int size = in.getInt();
+                long offset = in.getLong();
+                int crc = in.getInt();
+                LocalDateTime date = readDate(in);
+                Rectangle2D bounds = readBounds(in);
+                geometrySection.checkBlock(offset, size, 7);
+                if (geometrySection.lazy) {
+                    return new Polyline2DplusT(size, new MappedColumns(geometrySection, offset, size, 7, crc), bounds, date);
+                }
+                double[][] columns = geometrySection.readColumns(offset, size, 7, false, 0);
+                return new Polyline2DplusT(columns[0], columns[1], columns[2], columns[3], columns[4], columns[5], columns[6], date);
+            }
+            default:
+                throw new IllegalStateException("unknown geometry type " + type);
+        }
+    }
+
+    private static Rectangle2D readBounds(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        return new Rectangle2D.Double(in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble());
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime readDate(ByteBuffer in) {
+        long epochDay = in.getLong();
+        if (epochDay == NULL_DATE) {
+            return null;
+        }
+        return LocalDateTime.of(LocalDate.ofEpochDay(epochDay), LocalTime.ofNanoOfDay(in.getLong()));
+    }
+
+    // ---------------------------------------------------------------- Sections
+
+    /**
+     * Fixed-size header of a snapshot file.
+     */
+    static final class Header {
+        int version;
+        int dateCount;
+        long geometryOffset;
+        long geometryLength;
+        long structureOffset;
+        long structureLength;
+        int geometryCrc;
+        int structureCrc;
+
+        static Header read(FileChannel channel, Path file) throws IOException {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not a RootModel snapshot: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()) < 0) {
+                    throw new IOException("Truncated snapshot header: " + file);
+                }
+            }
+            buffer.flip();
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a RootModel snapshot: " + file);
+            }
+            Header header = new Header();
+            header.version = buffer.getInt();
+            if (header.version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + header.version + " in " + file
+                        + " (expected " + FORMAT_VERSION + ")");
+            }
+            header.dateCount = buffer.getInt();
+            buffer.getInt(); // Flags
+            header.geometryOffset = buffer.getLong();
+            header.geometryLength = buffer.getLong();
+            header.structureOffset = buffer.getLong();
+            header.structureLength = buffer.getLong();
+            header.geometryCrc = buffer.getInt();
+            header.structureCrc = buffer.getInt();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, buffer.position());
+            if (buffer.getInt() != (int) crc.getValue()) {
+                throw new IOException("Corrupted snapshot " + file + ": header checksum mismatch");
+            }
+            if (header.dateCount < 0 || header.geometryLength < 0 || header.structureLength < 0
+                    || header.geometryOffset + header.geometryLength > fileSize
+                    || header.structureOffset + header.structureLength > fileSize) {
+                throw new IOException("Corrupted snapshot " + file + ": sections out of bounds");
+            }
+            return header;
+        }
+    }
+
+    /**
+     * Sequential writer of the geometry section, which pads blocks so that none crosses a chunk boundary.
+     */
+    private static final class GeometryWriter {
+        final CRC32 crc = new CRC32();
+        private final CRC32 blockCrc = new CRC32();
+        private final FileChannel channel;
+        private final long start;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private long position;
+        private int blockStart = -1; // Position of the current block in the buffer, -1 outside a block
+
+        GeometryWriter(FileChannel channel, long start) {
+            this.channel = channel;
+            this.start = start;
+            this.position = start;
+        }
+
+        /**
+         * Starts a block of columns of doubles.
+         *
+         * @return The absolute offset of the block in the file.
+         */
+        long startBlock(int size, int columns) throws IOException {
+            long length = (long) size * columns * Double.BYTES;
+            if (length > 0 && length <= CHUNK_SIZE && position / CHUNK_SIZE != (position + length - 1) / CHUNK_SIZE) {
+                long padding = CHUNK_SIZE - position % CHUNK_SIZE;
+                for (long i = 0; i < padding; i += Double.BYTES) {
+                    putDouble(0);
+                }
+            }
+            blockCrc.reset();
+            blockStart = buffer.position();
+            return position;
+        }
+
+        /**
+         * Ends the current block.
+         *
+         * @return The CRC32 of the block.
+         */
+        int endBlock() {
+            ByteBuffer pending = buffer.duplicate();
+            pending.flip();
+            pending.position(blockStart);
+            blockCrc.update(pending);
+            blockStart = -1;
+            return (int) blockCrc.getValue();
+        }
+
+        void putDouble(double value) throws IOException {
+            if (buffer.remaining() < Double.BYTES) {
+                flush();
+            }
+            buffer.putDouble(value);
+            position += Double.BYTES;
+        }
+
+        /**
+         * Flushes the remaining bytes.
+         *
+         * @return The length of the geometry section.
+         */
+        long finish() throws IOException {
+            flush();
+            return position - start;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            if (blockStart >= 0) {
+                ByteBuffer pending = buffer.duplicate();
+                pending.position(blockStart);
+                blockCrc.update(pending);
+                blockStart = 0;
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Read-only mapping of the geometry section, in chunks of at most {@link #CHUNK_SIZE} bytes aligned on file offsets.
+     */
+    static final class GeometrySection {
+        final boolean lazy;
+        private final Path file;
+        private final long start;
+        private final long end;
+        private final MappedByteBuffer[] chunks;
+
+        GeometrySection(Path file, FileChannel channel, long start, long length, boolean lazy) throws IOException {
+            this.file = file;
+            this.lazy = lazy;
+            this.start = start;
+            this.end = start + length;
+            int chunkCount = length == 0 ? 0 : (int) ((end - 1) / CHUNK_SIZE + 1);
+            this.chunks = new MappedByteBuffer[chunkCount];
+            for (int k = 0; k < chunkCount; k++) {
+                long chunkStart = k * CHUNK_SIZE;
+                long chunkEnd = Math.min(end, chunkStart + CHUNK_SIZE);
+                chunks[k] = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart);
+            }
+        }
+
+        /**
+         * Computes the CRC32 of the section.
+         */
+        int crc() {
+            CRC32 crc = new CRC32();
+            for (int k = 0; k < chunks.length; k++) {
+                ByteBuffer chunk = chunks[k].duplicate();
+                long chunkStart = k * CHUNK_SIZE;
+                if (start > chunkStart) {
+                    chunk.position((int) (start - chunkStart));
+                }
+                crc.update(chunk);
+            }
+            return (int) crc.getValue();
+        }
+
+        /**
+         * Checks that a block lies within the section.
+         */
+        void checkBlock(long offset, int size, int columns) {
+            long length = (long) size * columns * Double.BYTES;
+            if (size < 0 || offset < start || offset + length > end) {
+                throw new IllegalStateException("geometry block out of bounds");
+            }
+        }
+
+        /**
+         * Reads a block of columns of doubles.
+         *
+         * @param offset      The absolute offset of the block.
+         * @param size        The number of values per column.
+         * @param columns     The number of columns.
+         * @param verify      True to check the CRC32 of the block.
+         * @param expectedCrc The expected CRC32 of the block, if verified.
+         * @return The columns.
+         */
+        double[][] readColumns(long offset, int size, int columns, boolean verify, int expectedCrc) throws IOException {
+            long length = (long) size * columns * Double.BYTES;
+            double[][] values = new double[columns][size];
+            if (length == 0) {
+                return values;
+            }
+
+            int chunkIndex = (int) (offset / CHUNK_SIZE);
+            long local = offset - chunkIndex * CHUNK_SIZE;
+            if (local + length <= CHUNK_SIZE) {
+                ByteBuffer block = chunks[chunkIndex].duplicate();
+                block.position((int) local);
+                block.limit((int) (local + length));
+                if (verify) {
+                    CRC32 crc = new CRC32();
+                    crc.update(block.duplicate());
+                    if ((int) crc.getValue() != expectedCrc) {
+                        throw new IOException("Corrupted snapshot " + file + ": checksum mismatch in geometry block at " + offset);
+                    }
+                }
+                DoubleBuffer doubles = block.asDoubleBuffer();
+                for (double[] column : values) {
+                    doubles.get(column);
+                }
+                return values;
+            }
+
+            // Block larger than a chunk: read from the file directly
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            long position = offset;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (double[] column : values) {
+                    int index = 0;
+                    while (index < size) {
+                        buffer.clear();
+                        buffer.limit((int) Math.min(buffer.capacity(), (long) (size - index) * Double.BYTES));
+                        while (buffer.hasRemaining()) {
+                            int read = channel.read(buffer, position);
+                            if (read < 0) {
+                                throw new IOException("Unexpected end of snapshot " + file);
+                            }
+                            position += read;
+                        }
+                        buffer.flip();
+                        crc.update(buffer.duplicate());
+                        DoubleBuffer doubles = buffer.asDoubleBuffer();
+                        int count = doubles.remaining();
+                        doubles.get(column, index, count);
+                        index += count;
+                    }
+                }
+            }
+            if (verify && (int) crc.getValue() != expectedCrc) {
+                throw new IOException("Corrupted snapshot " + file + ": checksum mismatch in geometry block at " + offset);
+            }
+            return values;
+        }
+    }
+
+    /**
+     * Coordinates of one geometry in the mapped geometry section, copied on first access.
+     */
+    private static final class MappedColumns implements ColumnSource {
+        private final GeometrySection section;
+        private final long offset;
+        private final int size;
+        private final int columns;
+        private final int crc;
+
+        MappedColumns(GeometrySection section, long offset, int size, int columns, int crc) {
+            this.section = section;
+            this.offset = offset;
+            this.size = size;
+            this.columns = columns;
+            this.crc = crc;
+        }
+
+        @Override
+        public double[][] readColumns() {
+            try {
+                return section.readColumns(offset, size, columns, true, crc);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package RootModels;
+
+import RootModels.Root.Geometry.Geometry;
+import RootModels.Root.Root;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Spatial index over the polyline segments of a set of roots, typically the roots of one date.
+ * Segments are registered in every cell of a uniform grid that their bounding box overlaps, so window, nearest-root and
+ * nearest-point queries only look at the segments close to the query instead of every point of every root.
+ * The index copies the coordinates of the segments when it is built: it must be rebuilt after the geometries are transformed.
+ * Queries do not modify the index and can be run concurrently.
+ */
+public class RootSpatialIndex {
+
+    // Average number of segments per cell the default cell size aims for, at most
+    private static final int SEGMENTS_PER_CELL = 4;
+    // Default cell size, in segment lengths
+    private static final double SEGMENTS_PER_CELL_SIDE = 4;
+
+    private final List<Root> roots; // Indexed roots, those with at least one point
+    // Segments, as the index of their root in roots, the index of their first point in its geometry, and their two ends;
+    // a root with a single point has one segment of zero length
+    private final int[] segmentRoots;
+    private final int[] segmentStarts;
+    private final double[] x1s;
+    private final double[] y1s;
+    private final double[] x2s;
+    private final double[] y2s;
+    private final int segmentCount;
+
+    // Grid: cell (column, row) covers [minX + column * cellSize, minX + (column + 1) * cellSize[ and the same along y;
+    // the segments of cell c are cellSegments[cellStarts[c] .. cellStarts[c + 1][
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStarts;
+    private final int[] cellSegments;
+
+    /**
+     * Result of a nearest-point query: the closest point of a root to the query point, on one of its segments.
+     */
+    public static final class NearestPoint {
+        public final Root root;
+        public final int segment; // Index in the geometry of the first point of the segment
+        public final double fraction; // Position along the segment, 0 at its first point and 1 at the next one
+        public final double x;
+        public final double y;
+        public final double distance;
+
+        NearestPoint(Root root, int segment, double fraction, double x, double y, double distance) {
+            this.root = root;
+            this.segment = segment;
+            this.fraction = fraction;
+            this.x = x;
+            this.y = y;
+            this.distance = distance;
+        }
+
+        @Override
+        public String toString() {
+            return "NearestPoint{root=" + root.getId() + ", segment=" + segment + ", fraction=" + fraction
+                    + ", x=" + x + ", y=" + y + ", distance=" + distance + '}';
+        }
+    }
+
+    /**
+     * Builds the index over the given roots, with a cell size chosen from the length of their segments.
+     *
+     * @param roots The roots to index; roots without geometry or without points are ignored.
+     */
+    public RootSpatialIndex(List<Root> roots) {
+        this(roots, 0);
+    }
+
+    /**
+     * Builds the index over the given roots.
+     *
+     * @param roots    The roots to index; roots without geometry or without points are ignored.
+     * @param cellSize The side of the grid cells, or 0 to choose it from the length of the segments.
+     */
+    public RootSpatialIndex(List<Root> roots, double cellSize) {
+        if (cellSize < 0 || Double.isNaN(cellSize)) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        List<Root> indexed = new ArrayList<>(roots.size());
+        int count = 0;
+        for (Root root : roots) {
+            Geometry geometry = root.geometry;
+            if (geometry != null && geometry.size() > 0) {
+                indexed.add(root);
+                count += Math.max(1, geometry.size() - 1);
+            }
+        }
+        this.roots = Collections.unmodifiableList(indexed);
+        this.segmentCount = count;
+        segmentRoots = new int[count];
+        segmentStarts = new int[count];
+        x1s = new double[count];
+        y1s = new double[count];
+        x2s = new double[count];
+        y2s = new double[count];
+
+        // Copy the segments and measure their extent
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        double totalLength = 0;
+        int s = 0;
+        for (int r = 0; r < indexed.size(); r++) {
+            Geometry geometry = indexed.get(r).geometry;
+            int size = geometry.size();
+            double previousX = geometry.getX(0);
+            double previousY = geometry.getY(0);
+            if (size == 1) {
+                setSegment(s++, r, 0, previousX, previousY, previousX, previousY);
+            }
+            for (int i = 1; i < size; i++) {
+                double x = geometry.getX(i);
+                double y = geometry.getY(i);
+                setSegment(s++, r, i - 1, previousX, previousY, x, y);
+                totalLength += Math.hypot(x - previousX, y - previousY);
+                previousX = x;
+                previousY = y;
+            }
+        }
+        // Points with NaN coordinates are left out of the extent; their segments land in the first cell and never match
+        // (comparisons with NaN are false)
+        for (int i = 0; i < count; i++) {
+            for (int end = 0; end < 2; end++) {
+                double x = end == 0 ? x1s[i] : x2s[i];
+                double y = end == 0 ? y1s[i] : y2s[i];
+                if (x < minX) minX = x;
+                if (x > maxX) maxX = x;
+                if (y < minY) minY = y;
+                if (y > maxY) maxY = y;
+            }
+        }
+        if (minX > maxX || minY > maxY) {
+            minX = minY = maxX = maxY = 0;
+        }
+
+        // Choose the cell size, keeping the number of cells in proportion to the number of segments
+        double width = maxX - minX;
+        double height = maxY - minY;
+        if (cellSize == 0) {
+            cellSize = count == 0 ? 1 : SEGMENTS_PER_CELL_SIDE * totalLength / count;
+        }
+        cellSize = Math.max(cellSize, Math.sqrt(width * height / ((double) SEGMENTS_PER_CELL * Math.max(1, count))));
+        cellSize = Math.max(cellSize, Math.max(width, height) / ((double) SEGMENTS_PER_CELL * Math.max(1, count)));
+        if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+            cellSize = Math.max(1, Math.max(width, height));
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = cellSize;
+        this.columns = (int) Math.min(Integer.MAX_VALUE / 2, (long) (width / cellSize) + 1);
+        this.rows = (int) Math.min(Integer.MAX_VALUE / 2, (long) (height / cellSize) + 1);
+
+        // Register each segment in the cells of its bounding box, in two passes: count, then fill
+        int cellCount = columns * rows;
+        cellStarts = new int[cellCount + 1];
+        for (int i = 0; i < count; i++) {
+            int column1 = column(Math.max(x1s[i], x2s[i]));
+            int row1 = row(Math.max(y1s[i], y2s[i]));
+            for (int row = row(Math.min(y1s[i], y2s[i])); row <= row1; row++) {
+                for (int column = column(Math.min(x1s[i], x2s[i])); column <= column1; column++) {
+                    cellStarts[row * columns + column + 1]++;
+                }
+            }
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+        cellSegments = new int[cellStarts[cellCount]];
+        int[] cursors = Arrays.copyOf(cellStarts, cellCount);
+        for (int i = 0; i < count; i++) {
+            int column1 = column(Math.max(x1s[i], x2s[i]));
+            int row1 = row(Math.max(y1s[i], y2s[i]));
+            for (int row = row(Math.min(y1s[i], y2s[i])); row <= row1; row++) {
+                for (int column = column(Math.min(x1s[i], x2s[i])); column <= column1; column++) {
+                    cellSegments[cursors[row * columns + column]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The indexed roots, those with at least one point, in the order they were given.
+     */
+    public List<Root> getRoots() {
+        return roots;
+    }
+
+    /**
+     * @return The number of indexed segments.
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return The side of the grid cells.
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Finds the roots that have at least one segment inside or crossing a window.
+     *
+     * @param window The window, borders included.
+     * @return The roots, in the order they were given to the index.
+     */
+    public List<Root> getRootsInWindow(Rectangle2D window) {
+        if (segmentCount == 0 || window.getMaxX() < minX || window.getMaxY() < minY
+                || window.getMinX() > minX + columns * cellSize || window.getMinY() > minY + rows * cellSize) {
+            return new ArrayList<>();
+        }
+        BitSet found = new BitSet(roots.size());
+        int column0 = column(window.getMinX());
+        int column1 = column(window.getMaxX());
+        int row1 = row(window.getMaxY());
+        for (int row = row(window.getMinY()); row <= row1; row++) {
+            for (int column = column0; column <= column1; column++) {
+                int cell = row * columns + column;
+                for (int k = cellStarts[cell]; k < cellStarts[cell + 1]; k++) {
+                    int segment = cellSegments[k];
+                    if (!found.get(segmentRoots[segment])
+                            && window.intersectsLine(x1s[segment], y1s[segment], x2s[segment], y2s[segment])) {
+                        found.set(segmentRoots[segment]);
+                    }
+                }
+            }
+        }
+        List<Root> result = new ArrayList<>(found.cardinality());
+        for (int r = found.nextSetBit(0); r >= 0; r = found.nextSetBit(r + 1)) {
+            result.add(roots.get(r));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the k roots closest to a point, the distance to a root being that to its closest segment.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @param k The number of roots to find.
+     * @return At most k roots, closest first.
+     */
+    public List<Root> getNearestRoots(double x, double y, int k) {
+        return getNearestRoots(x, y, k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the k roots closest to a point within a maximum distance, the distance to a root being that to its closest segment.
+     *
+     * @param x           The x-coordinate of the point.
+     * @param y           The y-coordinate of the point.
+     * @param k           The number of roots to find.
+     * @param maxDistance The maximum distance, included.
+     * @return At most k roots, closest first.
+     */
+    public List<Root> getNearestRoots(double x, double y, int k, double maxDistance) {
+        if (k <= 0 || segmentCount == 0) {
+            return new ArrayList<>();
+        }
+        double[] distances = new double[roots.size()];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        int[] touched = new int[roots.size()];
+        int touchedCount = 0;
+
+        // Visit rings of cells around the cell of the point until the k-th closest root found so far
+        // is closer than any segment outside the visited block
+        int centerColumn = column(x);
+        int centerRow = row(y);
+        for (int ring = 0; ; ring++) {
+            int column0 = centerColumn - ring;
+            int column1 = centerColumn + ring;
+            int row0 = centerRow - ring;
+            int row1 = centerRow + ring;
+            for (int row = Math.max(row0, 0); row <= Math.min(row1, rows - 1); row++) {
+                boolean fullRow = row == row0 || row == row1;
+                for (int column = Math.max(column0, 0); column <= Math.min(column1, columns - 1); column++) {
+                    if (!fullRow && column != column0 && column != column1) {
+                        column = column1 - 1;
+                        continue;
+                    }
+                    int cell = row * columns + column;
+                    for (int c = cellStarts[cell]; c < cellStarts[cell + 1]; c++) {
+                        int segment = cellSegments[c];
+                        int r = segmentRoots[segment];
+                        double distance = Math.sqrt(squaredDistance(segment, x, y));
+                        if (distances[r] == Double.POSITIVE_INFINITY) {
+                            touched[touchedCount++] = r;
+                        }
+                        if (distance < distances[r]) {
+                            distances[r] = distance;
+                        }
+                    }
+                }
+            }
+            double reach = reach(x, y, column0, column1, row0, row1);
+            if (reach > maxDistance || reach == Double.POSITIVE_INFINITY) {
+                break;
+            }
+            if (touchedCount >= k) {
+                double[] sorted = new double[touchedCount];
+                for (int t = 0; t < touchedCount; t++) {
+                    sorted[t] = distances[touched[t]];
+                }
+                Arrays.sort(sorted);
+                if (sorted[k - 1] <= reach) {
+                    break;
+                }
+            }
+        }
+
+        Integer[] order = new Integer[touchedCount];
+        for (int t = 0; t < touchedCount; t++) {
+            order[t] = touched[t];
+        }
+        Arrays.sort(order, (a, b) -> distances[a] != distances[b] ? Double.compare(distances[a], distances[b]) : Integer.compare(a, b));
+        List<Root> result = new ArrayList<>(Math.min(k, touchedCount));
+        for (int t = 0; t < touchedCount && result.size() < k && distances[order[t]] <= maxDistance; t++) {
+            result.add(roots.get(order[t]));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the point of the indexed roots closest to a given point.
+     *
+     * @param x The x-coordinate of the point.
+     * @param y The y-coordinate of the point.
+     * @return The closest point, or null if no root is indexed.
+     */
+    public NearestPoint getNearestPoint(double x, double y) {
+        return getNearestPoint(x, y, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the point of the indexed roots closest to a given point, within a maximum distance.
+     *
+     * @param x           The x-coordinate of the point.
+     * @param y           The y-coordinate of the point.
+     * @param maxDistance The maximum distance, included.
+     * @return The closest point, or null if there is none within the maximum distance.
+     */
+    public NearestPoint getNearestPoint(double x, double y, double maxDistance) {
+        if (segmentCount == 0) {
+            return null;
+        }
+        int best = -1;
+        double bestSquaredDistance = Double.POSITIVE_INFINITY;
+        int centerColumn = column(x);
+        int centerRow = row(y);
+        for (int ring = 0; ; ring++) {
+            int column0 = centerColumn - ring;
+            int column1 = centerColumn + ring;
+            int row0 = centerRow - ring;
+            int row1 = centerRow + ring;
+            for (int row = Math.max(row0, 0); row <= Math.min(row1, rows - 1); row++) {
+                boolean fullRow = row == row0 || row == row1;
+                for (int column = Math.max(column0, 0); column <= Math.min(column1, columns - 1); column++) {
+                    if (!fullRow && column != column0 && column != column1) {
+                        column = column1 - 1;
+                        continue;
+                    }
+                    int cell = row * columns + column;
+                    for (int c = cellStarts[cell]; c < cellStarts[cell + 1]; c++) {
+                        int segment = cellSegments[c];
+                        double squaredDistance = squaredDistance(segment, x, y);
+                        if (squaredDistance < bestSquaredDistance || squaredDistance == bestSquaredDistance && segment < best) {
+                            bestSquaredDistance = squaredDistance;
+                            best = segment;
+                        }
+                    }
+                }
+            }
+            double reach = reach(x, y, column0, column1, row0, row1);
+            if (reach > maxDistance || reach == Double.POSITIVE_INFINITY || best >= 0 && Math.sqrt(bestSquaredDistance) <= reach) {
+                break;
+            }
+        }
+        if (best < 0 || Math.sqrt(bestSquaredDistance) > maxDistance) {
+            return null;
+        }
+        double fraction = projection(best, x, y);
+        double px = x1s[best] + fraction * (x2s[best] - x1s[best]);
+        double py = y1s[best] + fraction * (y2s[best] - y1s[best]);
+        return new NearestPoint(roots.get(segmentRoots[best]), segmentStarts[best], fraction, px, py, Math.hypot(px - x, py - y));
+    }
+
+    /**
+     * Gets the distance from a point to the part of the grid outside a block of cells that contains the cell of the point.
+     * No segment outside the block is closer than that, since segments are registered in every cell their bounding box overlaps.
+     *
+     * @return The distance, or positive infinity if the block covers the whole grid.
+     */
+    private double reach(double x, double y, int column0, int column1, int row0, int row1) {
+        double reach = Double.POSITIVE_INFINITY;
+        if (column0 > 0) {
+            reach = Math.min(reach, x - (minX + column0 * cellSize));
+        }
+        if (column1 < columns - 1) {
+            reach = Math.min(reach, minX + (column1 + 1) * cellSize - x);
+        }
+        if (row0 > 0) {
+            reach = Math.min(reach, y - (minY + row0 * cellSize));
+        }
+        if (row1 < rows - 1) {
+            reach = Math.min(reach, minY + (row1 + 1) * cellSize - y);
+        }
+        return Math.max(reach, 0);
+    }
+
+    /**
+     * Gets the position along a segment of the projection of a point, clamped to the segment.
+     *
+     * @return The position, between 0 at the first end of the segment and 1 at the second one.
+     */
+    private double projection(int segment, double x, double y) {
+        double dx = x2s[segment] - x1s[segment];
+        double dy = y2s[segment] - y1s[segment];
+        double squaredLength = dx * dx + dy * dy;
+        if (squaredLength == 0) {
+            return 0;
+        }
+        double fraction = ((x - x1s[segment]) * dx + (y - y1s[segment]) * dy) / squaredLength;
+        return Math.max(0, Math.min(1, fraction));
+    }
+
+    private double squaredDistance(int segment, double x, double y) {
+        double fraction = projection(segment, x, y);
+        double dx = x1s[segment] + fraction * (x2s[segment] - x1s[segment]) - x;
+        double dy = y1s[segment] + fraction * (y2s[segment] - y1s[segment]) - y;
+        return dx * dx + dy * dy;
+    }
+
+    private int column(double x) {
+        return clamp((x - minX) / cellSize, columns);
+    }
+
+    private int row(double y) {
+        return clamp((y - minY) / cellSize, rows);
+    }
+
+    private static int clamp(double cell, int cells) {
+        if (!(cell >= 0)) {
+            return 0;
+        }
+        return cell >= cells ? cells - 1 : (int) cell;
+    }
+
+    private void setSegment(int s, int root, int start, double x1, double y1, double x2, double y2) {
+        segmentRoots[s] = root;
+        segmentStarts[s] = start;
+        x1s[s] = x1;
+        y1s[s] = y1;
+        x2s[s] = x2;
+        y2s[s] = y2;
+    }
+}
@@ -0,0 +1,421 @@
+package RootModels;
+
+import RootModels.Root.Geometry.Geometry;
+import RootModels.Root.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Links the roots of consecutive dates of a {@link RootModel} into identity chains, one {@link Track} per physical root.
+ * The roots of a date are matched to those of the previous date in three passes, each only considering roots left unmatched
+ * by the previous ones:
+ * <ol>
+ *     <li>by ID, when both roots have the same ID and are close to each other;</li>
+ *     <li>by geometric overlap: the fraction of points of the earlier root lying within the maximum distance of the later root,
+ *     a growing root covering its earlier self;</li>
+ *     <li>by proximity of the first points of the roots, their bases, which do not move as the root grows.</li>
+ * </ol>
+ * Overlap and proximity are measured through the {@link RootSpatialIndex} of the later date, so that linking two dates costs
+ * about O(points of the earlier date) instead of comparing every pair of roots.
+ * Chains are kept in identity maps and queried in constant time; appending a date only links that date to the last one.
+ * All methods are synchronized, so that the tracker can be updated while it is queried from another thread.
+ */
+public class RootTracker {
+
+    /**
+     * Default maximum distance between matching points, in the unit of the coordinates.
+     */
+    public static final double DEFAULT_MAX_DISTANCE = 10.0;
+    /**
+     * Default minimum overlap for a match by geometric overlap.
+     */
+    public static final double DEFAULT_MIN_OVERLAP = 0.5;
+
+    // Number of points of the earlier root sampled to measure the overlap
+    private static final int OVERLAP_SAMPLES = 16;
+    // Number of nearby roots considered for each sampled point
+    private static final int NEAREST_ROOTS = 4;
+
+    /**
+     * How a root was linked to its predecessor in its track.
+     */
+    public enum LinkType {
+        ID,
+        OVERLAP,
+        PROXIMITY
+    }
+
+    /**
+     * Identity chain of a root across dates: the roots that represent the same physical root, by date.
+     */
+    public static final class Track {
+        public final int id; // Number of the track, in order of creation
+        private final List<LocalDateTime> dates = new ArrayList<>();
+        private final List<Root> roots = new ArrayList<>();
+
+        Track(int id) {
+            this.id = id;
+        }
+
+        /**
+         * @return The dates of the track, in increasing order.
+         */
+        public List<LocalDateTime> getDates() {
+            return Collections.unmodifiableList(dates);
+        }
+
+        /**
+         * @return The roots of the track, in the order of their dates.
+         */
+        public List<Root> getRoots() {
+            return Collections.unmodifiableList(roots);
+        }
+
+        /**
+         * @return The root of the first date of the track.
+         */
+        public Root getFirstRoot() {
+            return roots.get(0);
+        }
+
+        /**
+         * @return The root of the last date of the track.
+         */
+        public Root getLastRoot() {
+            return roots.get(roots.size() - 1);
+        }
+
+        /**
+         * @return The number of dates of the track.
+         */
+        public int size() {
+            return roots.size();
+        }
+
+        @Override
+        public String toString() {
+            return "Track{id=" + id + ", roots=" + roots.size() + ", first=" + getFirstRoot().getId() + ", dates=" + dates + '}';
+        }
+    }
+
+    private final double maxDistance;
+    private final double minOverlap;
+
+    // Entries already linked, by date
+    private final TreeMap<LocalDateTime, RootModel.RootModelEntry> entries = new TreeMap<>();
+    private final List<Track> tracks = new ArrayList<>();
+    // Per root: its track, its position in the track, and how it was linked to its predecessor
+    private final Map<Root, Track> tracksByRoot = new IdentityHashMap<>();
+    private final Map<Root, Integer> positionsByRoot = new IdentityHashMap<>();
+    private final Map<Root, LinkType> linkTypes = new IdentityHashMap<>();
+
+    /**
+     * Creates an empty tracker with the default maximum distance and minimum overlap.
+     */
+    public RootTracker() {
+        this(DEFAULT_MAX_DISTANCE, DEFAULT_MIN_OVERLAP);
+    }
+
+    /**
+     * Creates an empty tracker.
+     *
+     * @param maxDistance The maximum distance between matching points, in the unit of the coordinates.
+     * @param minOverlap  The minimum fraction of points of a root that must lie near its successor for a match by overlap,
+     *                    between 0 and 1.
+     */
+    public RootTracker(double maxDistance, double minOverlap) {
+        if (!(maxDistance >= 0)) {
+            throw new IllegalArgumentException("Maximum distance must be positive: " + maxDistance);
+        }
+        if (!(minOverlap > 0 && minOverlap <= 1)) {
+            throw new IllegalArgumentException("Minimum overlap must be in ]0, 1]: " + minOverlap);
+        }
+        this.maxDistance = maxDistance;
+        this.minOverlap = minOverlap;
+    }
+
+    /**
+     * Creates a tracker with the default parameters and links all the dates of a model.
+     *
+     * @param model The model.
+     * @return The tracker.
+     */
+    public static RootTracker track(RootModel model) {
+        RootTracker tracker = new RootTracker();
+        tracker.update(model);
+        return tracker;
+    }
+
+    /**
+     * Brings the tracker up to date with a model, typically after new dates were appended to it.
+     * Dates after the last linked one are linked incrementally. If an already linked date was removed or replaced,
+     * or a date was inserted before the last linked one, all the dates are linked again.
+     *
+     * @param model The model.
+     */
+    public synchronized void update(RootModel model) {
+        LocalDateTime lastDate = entries.isEmpty() ? null : entries.lastKey();
+        Map<LocalDateTime, RootModel.RootModelEntry> linked = lastDate == null
+                ? Collections.emptyMap() : model.dataByDate.headMap(lastDate, true);
+        boolean unchanged = linked.size() == entries.size();
+        if (unchanged) {
+            for (Map.Entry<LocalDateTime, RootModel.RootModelEntry> entry : linked.entrySet()) {
+                if (entries.get(entry.getKey()) != entry.getValue()) {
+                    unchanged = false;
+                    break;
+                }
+            }
+        }
+        if (!unchanged) {
+            clear();
+            lastDate = null;
+        }
+        Map<LocalDateTime, RootModel.RootModelEntry> added = lastDate == null
+                ? model.dataByDate : model.dataByDate.tailMap(lastDate, false);
+        for (Map.Entry<LocalDateTime, RootModel.RootModelEntry> entry : added.entrySet()) {
+            append(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Links the roots of a new date to those of the last linked date.
+     *
+     * @param date  The date, after the last linked one.
+     * @param entry The roots of this date.
+     */
+    public synchronized void append(LocalDateTime date, RootModel.RootModelEntry entry) {
+        if (!entries.isEmpty() && !date.isAfter(entries.lastKey())) {
+            throw new IllegalArgumentException("Date " + date + " is not after the last tracked date " + entries.lastKey());
+        }
+        Map.Entry<LocalDateTime, RootModel.RootModelEntry> last = entries.lastEntry();
+        Map<Root, Root> predecessors = last == null ? Collections.emptyMap() : link(last.getValue(), entry);
+        for (Root root : entry.flatRootList) {
+            if (tracksByRoot.containsKey(root)) {
+                continue;
+            }
+            Root predecessor = predecessors.get(root);
+            Track track = predecessor == null ? null : tracksByRoot.get(predecessor);
+            if (track == null) {
+                track = new Track(tracks.size());
+                tracks.add(track);
+            }
+            positionsByRoot.put(root, track.roots.size());
+            track.dates.add(date);
+            track.roots.add(root);
+            tracksByRoot.put(root, track);
+        }
+        entries.put(date, entry);
+    }
+
+    /**
+     * Forgets all the linked dates.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        tracks.clear();
+        tracksByRoot.clear();
+        positionsByRoot.clear();
+        linkTypes.clear();
+    }
+
+    /**
+     * @return The identity chains, in order of creation.
+     */
+    public synchronized List<Track> getTracks() {
+        return new ArrayList<>(tracks);
+    }
+
+    /**
+     * @return The linked dates, in increasing order.
+     */
+    public synchronized List<LocalDateTime> getDates() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * Gets the identity chain of a root.
+     *
+     * @param root A root of a linked date.
+     * @return The track of the root, or null if the root is not part of a linked date.
+     */
+    public synchronized Track getTrack(Root root) {
+        return tracksByRoot.get(root);
+    }
+
+    /**
+     * Gets the same root at the previous date where it was seen.
+     *
+     * @param root A root of a linked date.
+     * @return The previous root of its track, or null if there is none.
+     */
+    public synchronized Root getPrevious(Root root) {
+        Track track = tracksByRoot.get(root);
+        int position = track == null ? 0 : positionsByRoot.get(root);
+        return position == 0 ? null : track.roots.get(position - 1);
+    }
+
+    /**
+     * Gets the same root at the next date where it was seen.
+     *
+     * @param root A root of a linked date.
+     * @return The next root of its track, or null if there is none.
+     */
+    public synchronized Root getNext(Root root) {
+        Track track = tracksByRoot.get(root);
+        if (track == null) {
+            return null;
+        }
+        int position = positionsByRoot.get(root);
+        return position + 1 < track.roots.size() ? track.roots.get(position + 1) : null;
+    }
+
+    /**
+     * Gets the same root at a given date.
+     *
+     * @param root A root of a linked date.
+     * @param date A date.
+     * @return The root of the same track at that date, or null if the track has no root at that date.
+     */
+    public synchronized Root getRootAt(Root root, LocalDateTime date) {
+        Track track = tracksByRoot.get(root);
+        if (track == null) {
+            return null;
+        }
+        int index = Collections.binarySearch(track.dates, date);
+        return index >= 0 ? track.roots.get(index) : null;
+    }
+
+    /**
+     * Tells how a root was linked to its predecessor.
+     *
+     * @param root A root of a linked date.
+     * @return How the root was linked, or null if it starts its track.
+     */
+    public synchronized LinkType getLinkType(Root root) {
+        return linkTypes.get(root);
+    }
+
+    /**
+     * Matches the roots of a date to those of the previous date.
+     *
+     * @return The predecessor of each matched root of the later date.
+     */
+    private Map<Root, Root> link(RootModel.RootModelEntry previous, RootModel.RootModelEntry current) {
+        RootSpatialIndex index = current.getSpatialIndex();
+        Map<Root, Root> predecessors = new IdentityHashMap<>();
+        Map<Root, Root> successors = new IdentityHashMap<>();
+
+        // Overlap of each earlier root with the later roots near its sampled points
+        Map<Root, Map<Root, Double>> overlaps = new IdentityHashMap<>();
+        for (Root root : previous.flatRootList) {
+            overlaps.put(root, overlaps(root, index));
+        }
+
+        // 1. Same ID, provided the roots are close somewhere
+        for (Root root : current.flatRootList) {
+            Root candidate = previous.getRootByID(root.getId());
+            if (candidate != null && !successors.containsKey(candidate) && !predecessors.containsKey(root)
+                    && (overlaps.get(candidate).containsKey(root) || isEmpty(candidate.geometry) || isEmpty(root.geometry))) {
+                match(candidate, root, LinkType.ID, predecessors, successors);
+            }
+        }
+
+        // 2. Best overlaps first; the sort is stable, so ties keep the order of the roots
+        List<Candidate> candidates = new ArrayList<>();
+        for (Root root : previous.flatRootList) {
+            if (successors.containsKey(root)) {
+                continue;
+            }
+            for (Map.Entry<Root, Double> overlap : overlaps.get(root).entrySet()) {
+                if (overlap.getValue() >= minOverlap && !predecessors.containsKey(overlap.getKey())) {
+                    candidates.add(new Candidate(root, overlap.getKey(), overlap.getValue()));
+                }
+            }
+        }
+        candidates.sort((a, b) -> Double.compare(b.overlap, a.overlap));
+        for (Candidate candidate : candidates) {
+            if (!successors.containsKey(candidate.earlier) && !predecessors.containsKey(candidate.later)) {
+                match(candidate.earlier, candidate.later, LinkType.OVERLAP, predecessors, successors);
+            }
+        }
+
+        // 3. Closest bases
+        for (Root root : previous.flatRootList) {
+            if (successors.containsKey(root) || isEmpty(root.geometry)) {
+                continue;
+            }
+            double x = root.geometry.getX(0);
+            double y = root.geometry.getY(0);
+            Root best = null;
+            double bestDistance = maxDistance;
+            for (Root candidate : index.getNearestRoots(x, y, NEAREST_ROOTS, maxDistance)) {
+                if (predecessors.containsKey(candidate)) {
+                    continue;
+                }
+                double distance = Math.hypot(candidate.geometry.getX(0) - x, candidate.geometry.getY(0) - y);
+                if (distance <= bestDistance) {
+                    best = candidate;
+                    bestDistance = distance;
+                }
+            }
+            if (best != null) {
+                match(root, best, LinkType.PROXIMITY, predecessors, successors);
+            }
+        }
+        return predecessors;
+    }
+
+    private void match(Root earlier, Root later, LinkType type, Map<Root, Root> predecessors, Map<Root, Root> successors) {
+        predecessors.put(later, earlier);
+        successors.put(earlier, later);
+        linkTypes.put(later, type);
+    }
+
+    /**
+     * Measures the overlap of a root with the roots of the spatial index: for each root near one of its sampled points,
+     * the fraction of sampled points within the maximum distance of that root.
+     */
+    private Map<Root, Double> overlaps(Root root, RootSpatialIndex index) {
+        Geometry geometry = root.geometry;
+        if (isEmpty(geometry)) {
+            return Collections.emptyMap();
+        }
+        int size = geometry.size();
+        int samples = Math.min(size, OVERLAP_SAMPLES);
+        // Roots do not override equals, so a LinkedHashMap compares them by identity and keeps a deterministic order
+        Map<Root, Double> overlaps = new LinkedHashMap<>();
+        for (int s = 0; s < samples; s++) {
+            int i = samples == 1 ? 0 : (int) ((long) s * (size - 1) / (samples - 1));
+            for (Root candidate : index.getNearestRoots(geometry.getX(i), geometry.getY(i), NEAREST_ROOTS, maxDistance)) {
+                overlaps.merge(candidate, 1.0 / samples, Double::sum);
+            }
+        }
+        return overlaps;
+    }
+
+    /**
+     * Possible match by overlap between a root and a root of the next date.
+     */
+    private static final class Candidate {
+        final Root earlier;
+        final Root later;
+        final double overlap;
+
+        Candidate(Root earlier, Root later, double overlap) {
+            this.earlier = earlier;
+            this.later = later;
+            this.overlap = overlap;
+        }
+    }
+
+    private static boolean isEmpty(Geometry geometry) {
+        return geometry == null || geometry.size() == 0;
+    }
+}
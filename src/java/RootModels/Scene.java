@@ -1,5 +1,8 @@
 package RootModels;
 
+import RootModels.Root.Geometry.Bounds;
+
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,6 +37,20 @@ public class Scene {
         return plants;
     }
 
+    /**
+     * Gets the bounding box of all the roots of the scene, from the cached boxes of their geometries,
+     * in time proportional to the number of roots.
+     *
+     * @return The bounding box, or null if no root has a point.
+     */
+    public Rectangle2D getBounds() {
+        Rectangle2D bounds = null;
+        for (Plant plant : plants) {
+            bounds = Bounds.union(bounds, plant.getBounds());
+        }
+        return bounds;
+    }
+
     /**
      * Returns a string representation of the Scene object.
      *
@@ -0,0 +1,316 @@
+package RootModels;
+
+import RootModels.Root.Geometry.Geometry;
+import RootModels.Root.Geometry.Polyline2DplusT;
+import RootModels.Root.Root;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fuses a time series of 2D snapshots, one {@link RootModel} date per observation, into a single 2D+t model.
+ * The roots of the dates are chained by a {@link RootTracker}; each chain becomes one root whose {@link Polyline2DplusT}
+ * holds every point once, with the time of the first date where it appears. As in the 2D+t dialect, the time of a point is
+ * the number of its date, starting at 1, and its hour the number of hours since the first date.
+ * <p>
+ * A root that grows keeps its earlier points: the points added at a date are those of the new polyline beyond the projection
+ * of the tip of the previous one. The fusion is incremental: {@link #update(RootModel)} only processes the dates added since
+ * the previous call and appends their points to the fused polylines in place, without copying the earlier ones, so that
+ * growth queries such as {@link Polyline2DplusT#getLengthUntil(double)} run on one structure instead of one snapshot per date.
+ * A model returned by {@link #getModel()} shares these polylines, and is therefore extended by later updates.
+ * The fused model has a single date, the last one of the series, and the metadata of that date.
+ * <p>
+ * The fused roots take the ID, order, label, properties and functions of the first root of their chain. A plant of the series
+ * is fused with the plant of an earlier date that holds the chain of one of its roots, or else with the plant of the same
+ * non-empty ID.
+ */
+public class TimeSeriesFusion {
+
+    private final RootTracker tracker;
+
+    // Dates already fused and their entries; the number of a date is its position, from 1
+    private final TreeMap<LocalDateTime, RootModel.RootModelEntry> entries = new TreeMap<>();
+    private LocalDateTime firstDate;
+
+    // Fused root of each chain, fused roots and plants in order of creation
+    private final Map<RootTracker.Track, Root> fusedRoots = new IdentityHashMap<>();
+    private final List<Root> fusedRootList = new ArrayList<>();
+    private final Map<Plant, Plant> fusedPlants = new IdentityHashMap<>(); // By plant of the series
+    private final Map<String, Plant> fusedPlantsById = new LinkedHashMap<>();
+    private Scene scene = new Scene();
+    private RootModel model; // Built on demand, dropped at each update
+
+    /**
+     * Creates an empty fusion, chaining roots with a tracker of default parameters.
+     */
+    public TimeSeriesFusion() {
+        this(RootTracker.DEFAULT_MAX_DISTANCE, RootTracker.DEFAULT_MIN_OVERLAP);
+    }
+
+    /**
+     * Creates an empty fusion, chaining roots with a tracker of the given parameters.
+     *
+     * @param maxDistance The maximum distance between matching points, see {@link RootTracker#RootTracker(double, double)}.
+     * @param minOverlap  The minimum fraction of points of a root that must lie near its successor for a match by overlap.
+     */
+    public TimeSeriesFusion(double maxDistance, double minOverlap) {
+        this.tracker = new RootTracker(maxDistance, minOverlap);
+    }
+
+    /**
+     * Fuses all the dates of a model.
+     *
+     * @param series The time series of 2D snapshots.
+     * @return The fused 2D+t model.
+     */
+    public static RootModel fuse(RootModel series) {
+        TimeSeriesFusion fusion = new TimeSeriesFusion();
+        fusion.update(series);
+        return fusion.getModel();
+    }
+
+    /**
+     * Brings the fusion up to date with a time series, typically after new dates were appended to it.
+     * Dates after the last fused one are fused incrementally. If an already fused date was removed or replaced,
+     * or a date was inserted before the last fused one, the whole series is fused again.
+     *
+     * @param series The time series of 2D snapshots.
+     */
+    public synchronized void update(RootModel series) {
+        LocalDateTime lastDate = entries.isEmpty() ? null : entries.lastKey();
+        if (lastDate != null && !isPrefix(series, lastDate)) {
+            clear();
+            lastDate = null;
+        }
+        Map<LocalDateTime, RootModel.RootModelEntry> added = lastDate == null
+                ? series.dataByDate : series.dataByDate.tailMap(lastDate, false);
+        for (Map.Entry<LocalDateTime, RootModel.RootModelEntry> entry : added.entrySet()) {
+            append(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Gets the fused model. The model is not a copy: it shares the fused roots, their geometries and the scene with the
+     * fusion, so a later {@link #update(RootModel)} extends the geometries and the scene of a model returned earlier in
+     * place, while its root list keeps the roots it had. The update drops the spatial index of that model, which is rebuilt
+     * from the extended geometries on next use; call this method again to get the new roots.
+     *
+     * @return A model with a single date, the last fused one, holding one root per chain; null if no date was fused.
+     */
+    public synchronized RootModel getModel() {
+        if (model == null && !entries.isEmpty()) {
+            Map.Entry<LocalDateTime, RootModel.RootModelEntry> last = entries.lastEntry();
+            TreeMap<LocalDateTime, RootModel.RootModelEntry> dataByDate = new TreeMap<>();
+            dataByDate.put(last.getKey(), new RootModel.RootModelEntry(scene, last.getValue().metadata, new ArrayList<>(fusedRootList)));
+            model = new RootModel(dataByDate);
+        }
+        return model;
+    }
+
+    /**
+     * @return The tracker that chains the roots of the series, owned by the fusion: it must not be updated or cleared
+     * from outside.
+     */
+    public RootTracker getTracker() {
+        return tracker;
+    }
+
+    /**
+     * @return The fused dates, in increasing order.
+     */
+    public synchronized List<LocalDateTime> getDates() {
+        return Collections.unmodifiableList(new ArrayList<>(entries.keySet()));
+    }
+
+    /**
+     * Gets the fused root of a root of the series.
+     *
+     * @param root A root of a fused date.
+     * @return The fused root of its chain, or null if the root is not part of a fused date.
+     */
+    public synchronized Root getFusedRoot(Root root) {
+        RootTracker.Track track = tracker.getTrack(root);
+        return track == null ? null : fusedRoots.get(track);
+    }
+
+    /**
+     * Forgets all the fused dates.
+     */
+    public synchronized void clear() {
+        tracker.clear();
+        entries.clear();
+        firstDate = null;
+        fusedRoots.clear();
+        fusedRootList.clear();
+        fusedPlants.clear();
+        fusedPlantsById.clear();
+        scene = new Scene();
+        model = null;
+    }
+
+    private boolean isPrefix(RootModel series, LocalDateTime lastDate) {
+        Map<LocalDateTime, RootModel.RootModelEntry> fused = series.dataByDate.headMap(lastDate, true);
+        if (fused.size() != entries.size()) {
+            return false;
+        }
+        for (Map.Entry<LocalDateTime, RootModel.RootModelEntry> entry : fused.entrySet()) {
+            if (entries.get(entry.getKey()) != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fuses a new date: extends the chains that continue and creates a fused root for each new chain.
+     */
+    private void append(LocalDateTime date, RootModel.RootModelEntry entry) {
+        tracker.append(date, entry);
+        if (firstDate == null) {
+            firstDate = date;
+        }
+        entries.put(date, entry);
+        double time = entries.size();
+        double hour = Duration.between(firstDate, date).toMillis() / 3_600_000.0;
+
+        for (Root root : entry.flatRootList) {
+            Root previous = tracker.getPrevious(root);
+            Root fused = fusedRoot(root, date);
+            if (previous != null && previous.geometry != null && root.geometry != null && fused != null) {
+                Polyline2DplusT geometry = (Polyline2DplusT) fused.geometry;
+                appendGrowth(geometry, previous.geometry, root.geometry, time, hour);
+                geometry.setDateOfCapture(date);
+            }
+        }
+        if (model != null) {
+            // The geometries of the model already returned were extended in place
+            for (RootModel.RootModelEntry fusedEntry : model.dataByDate.values()) {
+                fusedEntry.invalidateSpatialIndex();
+            }
+            model = null;
+        }
+    }
+
+    /**
+     * Gets the fused root of the chain of a root, creating it with all the points of the root if the chain starts here.
+     * The fused root of the parent is created first, so that the hierarchy of the first date of each chain is kept.
+     *
+     * @return The fused root, or null if the root is not part of a chain.
+     */
+    private Root fusedRoot(Root root, LocalDateTime date) {
+        RootTracker.Track track = tracker.getTrack(root);
+        if (track == null) {
+            return null;
+        }
+        Root fused = fusedRoots.get(track);
+        if (fused != null || track.getFirstRoot() != root) {
+            return fused;
+        }
+
+        Root parent = root.getParent() == null ? null : fusedRoot(root.getParent(), date);
+        Plant plant = fusedPlant(root.getParentPlant());
+        Polyline2DplusT geometry = new Polyline2DplusT(date);
+        if (root.geometry != null) {
+            double time = entries.size();
+            double hour = Duration.between(firstDate, date).toMillis() / 3_600_000.0;
+            appendPoints(geometry, root.geometry, 0, time, hour);
+        }
+        fused = new Root(new ArrayList<>(), root.getId(), root.getOrder(), root.getProperties(), root.getLabel(),
+                root.getFunctions(), root.getPoAccession(), parent, geometry, plant);
+        fusedRoots.put(track, fused);
+        fusedRootList.add(fused);
+        if (parent != null) {
+            parent.children.add(fused);
+            if (plant != null) {
+                plant.add2FlatSet(fused);
+            }
+        } else if (plant != null) {
+            plant.addRoot(fused);
+        }
+        return fused;
+    }
+
+    private Plant fusedPlant(Plant plant) {
+        if (plant == null) {
+            return null;
+        }
+        Plant fused = fusedPlants.get(plant);
+        if (fused != null) {
+            return fused;
+        }
+        // A root of the plant that continues a chain tells which plant it is
+        for (Root root : plant.flatSetOfRoots) {
+            RootTracker.Track track = tracker.getTrack(root);
+            Root fusedRoot = track == null ? null : fusedRoots.get(track);
+            if (fusedRoot != null && fusedRoot.getParentPlant() != null) {
+                fused = fusedRoot.getParentPlant();
+                break;
+            }
+        }
+        if (fused == null && !plant.id.isEmpty()) {
+            fused = fusedPlantsById.get(plant.id);
+        }
+        if (fused == null) {
+            fused = new Plant();
+            fused.id = plant.id;
+            fused.label = plant.label;
+            fused.parentScene = scene;
+            scene.addPlant(fused);
+            if (!plant.id.isEmpty()) {
+                fusedPlantsById.put(plant.id, fused);
+            }
+        }
+        fusedPlants.put(plant, fused);
+        return fused;
+    }
+
+    /**
+     * Appends to a fused polyline the points of the current polyline that lie beyond the tip of the previous one.
+     * The tip is projected on the nearest segment of the current polyline; the points after the projection are new.
+     */
+    private static void appendGrowth(Polyline2DplusT fused, Geometry previous, Geometry current, double time, double hour) {
+        int size = current.size();
+        if (previous.size() == 0 || size < 2) {
+            if (fused.size() == 0) {
+                appendPoints(fused, current, 0, time, hour);
+            }
+            return;
+        }
+        double tipX = previous.getX(previous.size() - 1);
+        double tipY = previous.getY(previous.size() - 1);
+        int bestSegment = 0;
+        double bestFraction = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < size; i++) {
+            double x1 = current.getX(i - 1);
+            double y1 = current.getY(i - 1);
+            double dx = current.getX(i) - x1;
+            double dy = current.getY(i) - y1;
+            double squaredLength = dx * dx + dy * dy;
+            double fraction = squaredLength == 0 ? 0 : ((tipX - x1) * dx + (tipY - y1) * dy) / squaredLength;
+            fraction = Math.max(0, Math.min(1, fraction));
+            double distance = Math.hypot(x1 + fraction * dx - tipX, y1 + fraction * dy - tipY);
+            // Ties go to the later segment, so that a tip on a point is past it
+            if (distance <= bestDistance) {
+                bestDistance = distance;
+                bestSegment = i - 1;
+                bestFraction = fraction;
+            }
+        }
+        int start = bestSegment + (bestFraction >= 1 ? 2 : 1);
+        appendPoints(fused, current, start, time, hour);
+    }
+
+    private static void appendPoints(Polyline2DplusT fused, Geometry geometry, int start, double time, double hour) {
+        for (int i = start; i < geometry.size(); i++) {
+            fused.addPoint(geometry.getX(i), geometry.getY(i), time, hour);
+        }
+    }
+}